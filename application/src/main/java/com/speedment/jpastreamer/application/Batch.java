@@ -0,0 +1,96 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A batch of independent stream operations that are executed together, for example:
+ * <pre>{@code
+ *     Batch batch = jpaStreamer.batch();
+ *     CompletableFuture<Long> films = batch.add(Film.class, Stream::count);
+ *     CompletableFuture<Long> longFilms = batch.add(Film.class, s -> s.filter(Film$.length.greaterThan(120)).count());
+ *     CompletableFuture<Optional<Actor>> actor = batch.add(Actor.class, s -> s.sorted(Actor$.lastName).findFirst());
+ *     batch.execute().join();
+ * }</pre>
+ * When the batch is executed, its operations are executed concurrently on the
+ * executor of the JPAStreamer, each on its own {@code EntityManager}, so that the
+ * time to execute the batch is bounded by its slowest operation. Operations that
+ * count the entities of the same stream configuration (e.g. {@code count()}
+ * after any number of filters) are computed using a single query with a
+ * conditional aggregate per operation. To find these operations, the terminal
+ * operation of each operation is applied once more, to a stream that is not
+ * executed, when the batch is executed. Terminal operations should therefore
+ * only operate on the stream they are given.
+ * <p>
+ * A batch can only be executed once.
+ *
+ * @see JPAStreamer#batch()
+ * @see JPAStreamer#async(StreamConfiguration, Function)
+ */
+public interface Batch {
+
+    /**
+     * Adds an operation that creates a {@link Stream} according to the provided
+     * {@code streamConfiguration} and applies the provided {@code terminalOperation}
+     * to it, returning a {@link CompletableFuture} of the result that is completed
+     * once the batch is executed.
+     *
+     * @param <T> The element type
+     * @param <R> The result type
+     * @param streamConfiguration to use
+     * @param terminalOperation to apply to the stream
+     * @return a {@link CompletableFuture} of the result of the provided
+     *         {@code terminalOperation}
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    <T, R> CompletableFuture<R> add(StreamConfiguration<T> streamConfiguration, Function<? super Stream<T>, ? extends R> terminalOperation);
+
+    /**
+     * Adds an operation that creates a {@link Stream} over all entities of the
+     * provided type {@code entityClass} and applies the provided {@code terminalOperation}
+     * to it.
+     * <p>
+     * This method is a convenience method equivalent to:
+     * <pre>{@code add(StreamConfiguration.of(entityClass), terminalOperation)}</pre>
+     *
+     * @param <T> The element type (type of a class token)
+     * @param <R> The result type
+     * @param entityClass to use
+     * @param terminalOperation to apply to the stream
+     * @return a {@link CompletableFuture} of the result of the provided
+     *         {@code terminalOperation}
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    default <T, R> CompletableFuture<R> add(final Class<T> entityClass, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+        requireNonNull(entityClass);
+        return add(StreamConfiguration.of(entityClass), terminalOperation);
+    }
+
+    /**
+     * Executes the operations of this batch, returning a {@link CompletableFuture}
+     * that is completed when all operations are completed. The future is completed
+     * exceptionally if any operation fails.
+     *
+     * @return a {@link CompletableFuture} that is completed when all operations
+     *         of this batch are completed
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    CompletableFuture<Void> execute();
+}
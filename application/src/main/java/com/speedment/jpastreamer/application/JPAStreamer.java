@@ -21,6 +21,9 @@ import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -190,11 +193,104 @@ public interface JPAStreamer {
         return stream(StreamConfiguration.of(projection.entityClass()).selecting(projection));
     }
 
+    /**
+     * Creates a {@link Stream} according to the provided {@code streamConfiguration}
+     * and applies the provided {@code terminalOperation} to it asynchronously,
+     * returning a {@link CompletableFuture} of the result.
+     * <p>
+     * The stream is rendered, executed and reduced on the executor of this
+     * JPAStreamer (see {@link JPAStreamerBuilder#withExecutor(Executor)}),
+     * which by default runs each operation on a virtual thread on JDK 21 and later.
+     * This allows several independent streams to be executed concurrently, for example:
+     * <pre>{@code
+     *     CompletableFuture<List<Film>> films = jpaStreamer.async(Film.class, s -> s.limit(10).collect(toList()));
+     *     CompletableFuture<Long> actors = jpaStreamer.async(Actor.class, Stream::count);
+     * }</pre>
+     * The {@code terminalOperation} must consume the stream it is given. Cancelling the
+     * returned future cancels the statements of the operation (if supported by the
+     * persistence provider) and stops the stream from reading further rows, which
+     * closes the stream and its underlying query. The thread running the operation is
+     * not interrupted.
+     *
+     * @param <T> The element type
+     * @param <R> The result type
+     * @param streamConfiguration to use
+     * @param terminalOperation to apply to the stream
+     * @return a {@link CompletableFuture} of the result of the provided
+     *         {@code terminalOperation}
+     *
+     * @see JPAStreamer#stream(StreamConfiguration) for further details
+     */
+    <T, R> CompletableFuture<R> async(StreamConfiguration<T> streamConfiguration, Function<? super Stream<T>, ? extends R> terminalOperation);
+
+    /**
+     * Creates a {@link Stream} according to the provided {@code streamConfiguration}
+     * and applies the provided {@code terminalOperation} to it asynchronously on the
+     * provided {@code executor}, returning a {@link CompletableFuture} of the result.
+     * <p>
+     * This method behaves like {@link #async(StreamConfiguration, Function)}, except
+     * that the operation is run on the provided {@code executor} instead of the
+     * executor of this JPAStreamer.
+     *
+     * @param <T> The element type
+     * @param <R> The result type
+     * @param streamConfiguration to use
+     * @param terminalOperation to apply to the stream
+     * @param executor to run the operation on
+     * @return a {@link CompletableFuture} of the result of the provided
+     *         {@code terminalOperation}
+     *
+     * @see JPAStreamer#async(StreamConfiguration, Function) for further details
+     */
+    <T, R> CompletableFuture<R> async(StreamConfiguration<T> streamConfiguration, Function<? super Stream<T>, ? extends R> terminalOperation, Executor executor);
+
+    /**
+     * Creates a {@link Stream} over all entities of the provided type {@code entityClass}
+     * and applies the provided {@code terminalOperation} to it asynchronously.
+     * <p>
+     * This method is a convenience method equivalent to:
+     * <pre>{@code async(StreamConfiguration.of(entityClass), terminalOperation)}</pre>
+     *
+     * @param <T> The element type (type of a class token)
+     * @param <R> The result type
+     * @param entityClass to use
+     * @param terminalOperation to apply to the stream
+     * @return a {@link CompletableFuture} of the result of the provided
+     *         {@code terminalOperation}
+     *
+     * @see JPAStreamer#async(StreamConfiguration, Function) for further details
+     */
+    default <T, R> CompletableFuture<R> async(final Class<T> entityClass, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+        requireNonNull(entityClass);
+        return async(StreamConfiguration.of(entityClass), terminalOperation);
+    }
+
+    /**
+     * Creates and returns a new {@link Batch} of independent stream operations
+     * that are executed concurrently, whereby counts of the same stream
+     * configuration are computed using a single query.
+     *
+     * @return a new {@link Batch}
+     *
+     * @see Batch for further details
+     */
+    Batch batch();
+
+    /**
+     * Returns the statistics of the cache of streamers of this JPAStreamer.
+     *
+     * @return the statistics of the cache of streamers of this JPAStreamer
+     *
+     * @see JPAStreamerBuilder#withStreamerCache(int, java.time.Duration)
+     */
+    StreamerCacheStatistics streamerCacheStatistics();
+
     /**
      * Resets the Streamer associated with the provided Entity classes.
      * <p> 
      * This will create a new instance of the underlying {@code java.persistence.EntityManager}, removing all entries of the 
      * associated Entity class from the first-level cache. 
+     * Result caches of the Entity classes (see {@link JPAStreamerBuilder#withResultCache}) are invalidated. 
      * 
      * In case JPAStreamer was configured with a {@code Supplier<EntityManager>} the lifecycle of the Entity Managers is 
      * not managed by JPAStreamer, thus use of the method is not permitted and will result in an {@code UnsupportedOperationException}. 
@@ -12,8 +12,204 @@
  */
 package com.speedment.jpastreamer.application;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 public interface JPAStreamerBuilder {
 
+    /**
+     * Enables caching of the results of streams over the provided {@code entityClass}.
+     * <p>
+     * Results are cached by query and bound parameters, so a repeated stream
+     * with the same filters, sorts, skips and limits is served from memory
+     * without using the {@code EntityManager}. At most {@code maximumSize}
+     * results are cached, whereby the least recently used results are evicted
+     * first, and each result is cached for at most the provided {@code timeToLive}.
+     * <p>
+     * The cache of an entity is invalidated when {@link JPAStreamer#resetStreamer(Class[])}
+     * is called for the entity or when a {@link ResultCacheInvalidator} registered as
+     * an entity listener reports a write to the entity. As the listener reports the
+     * write before the transaction commits, results that are read before the commit
+     * may remain cached for up to {@code timeToLive} (see {@link ResultCacheInvalidator}).
+     * Cached entities are shared between streams and should be treated as read-only.
+     *
+     * @param entityClass to cache the results of
+     * @param maximumSize of the cache
+     * @param timeToLive of each result in the cache
+     * @return this builder
+     * @throws IllegalArgumentException if the {@code maximumSize} or {@code timeToLive}
+     *                                  is not positive
+     */
+    JPAStreamerBuilder withResultCache(Class<?> entityClass, long maximumSize, Duration timeToLive);
+
+    /**
+     * Sets whether streams are read-only by default. The default applies to
+     * streams whose {@code StreamConfiguration} does not specify whether the
+     * stream is read-only.
+     *
+     * @param readOnly whether streams are read-only by default
+     * @return this builder
+     * @see com.speedment.jpastreamer.streamconfiguration.StreamConfiguration#readOnly(boolean)
+     */
+    JPAStreamerBuilder withReadOnly(boolean readOnly);
+
+    /**
+     * Sets the JDBC fetch size of streams whose {@code StreamConfiguration} does
+     * not specify a fetch size. By default, the fetch size is chosen adaptively.
+     *
+     * @param fetchSize the number of rows to fetch in each round trip
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code fetchSize} is not positive
+     * @see com.speedment.jpastreamer.streamconfiguration.StreamConfiguration#fetchSize(int)
+     */
+    JPAStreamerBuilder withFetchSize(int fetchSize);
+
+    /**
+     * Sets the timeout of the queries of streams whose stream configuration
+     * does not set a timeout of its own.
+     *
+     * @param timeout of the queries of streams
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code timeout} is not positive
+     * @see com.speedment.jpastreamer.streamconfiguration.StreamConfiguration#queryTimeout(Duration)
+     */
+    JPAStreamerBuilder withQueryTimeout(Duration timeout);
+
+    /**
+     * Bounds the number of {@code EntityManager}s that the streams of a stream
+     * configuration lease at the same time.
+     * <p>
+     * Each open stream leases an {@code EntityManager} (a parallel stream may lease
+     * one per key range it reads). A stream that is opened while {@code maximumSize}
+     * {@code EntityManager}s are leased waits until one is released, and fails with an
+     * {@code IllegalStateException} if none is released within {@code leaseTimeout}.
+     * By default, at most twice the number of available processors (and at least four)
+     * {@code EntityManager}s are leased, with a lease timeout of 30 seconds.
+     * <p>
+     * {@code EntityManager}s provided by {@link JPAStreamer#of(java.util.function.Supplier)}
+     * are owned by the application and are never pooled.
+     *
+     * @param maximumSize of the pool
+     * @param leaseTimeout how long a stream waits for an {@code EntityManager}
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code maximumSize} or
+     *         {@code leaseTimeout} is not positive
+     */
+    JPAStreamerBuilder withEntityManagerPool(int maximumSize, Duration leaseTimeout);
+
+    /**
+     * Sets the number of rows after which the persistence context is cleared
+     * while a stream is consumed, so that the entities of long streams can be
+     * garbage collected once the stream has moved past them.
+     * <p>
+     * Clearing is disabled by default, as detached entities can not load lazy
+     * associations. The persistence context is never cleared while it is joined
+     * to a transaction or when the {@code EntityManager}s are provided by
+     * {@link JPAStreamer#of(java.util.function.Supplier)}.
+     *
+     * @param rows after which the persistence context is cleared, or {@code 0} to never clear it
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code rows} is negative
+     */
+    JPAStreamerBuilder withClearInterval(int rows);
+
+    /**
+     * Sets the maximum number of rows that are read ahead of the consumer of a
+     * stream by a separate thread, so that fetching rows from the database
+     * overlaps with processing them.
+     * <p>
+     * Prefetching is disabled by default, as lazy associations of the streamed
+     * entities must not be loaded while rows are read ahead. Rows are never read
+     * ahead while the persistence context is joined to a transaction or when the
+     * {@code EntityManager}s are provided by {@link JPAStreamer#of(java.util.function.Supplier)}.
+     *
+     * @param rows to read ahead, or {@code 0} to never read ahead
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code rows} is negative
+     */
+    JPAStreamerBuilder withPrefetch(int rows);
+
+    /**
+     * Sets the number of ranges of the primary key that parallel streams are read
+     * in, each by its own query and {@code EntityManager}. By default, parallel
+     * streams are read in as many ranges as the parallelism of the common fork-join
+     * pool.
+     *
+     * @param partitions the number of ranges, or less than two to read parallel
+     *                   streams using a single query
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code partitions} is negative
+     */
+    JPAStreamerBuilder withPartitions(int partitions);
+
+    /**
+     * Sets whether the statement of a stream is cancelled when the stream is closed
+     * before its results are exhausted (e.g. after {@code anyMatch} or an in-memory
+     * {@code limit}), which is {@code true} by default. Statements are only cancelled
+     * by persistence providers that support it.
+     *
+     * @param cancelOnClose whether statements of streams that are closed early are cancelled
+     * @return this builder
+     */
+    JPAStreamerBuilder withCancelOnClose(boolean cancelOnClose);
+
+    /**
+     * Sets whether streams use server-side cursors on databases whose driver
+     * otherwise reads the whole result at once (e.g. MySQL), which is
+     * {@code false} by default. A fetch size set for a stream takes precedence.
+     *
+     * @param serverSideCursors whether streams use server-side cursors
+     * @return this builder
+     * @see #withFetchSize(int)
+     */
+    JPAStreamerBuilder withServerSideCursors(boolean serverSideCursors);
+
+    /**
+     * Sets the maximum number of values of an {@code IN} predicate that is rendered
+     * in a single query. A stream filtered by an {@code IN} predicate with more values
+     * is read by one query per chunk of values. By default, the maximum depends on
+     * the database of the persistence unit.
+     *
+     * @param chunkSize the maximum number of values of an {@code IN} predicate in a single query
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code chunkSize} is not positive
+     */
+    JPAStreamerBuilder withInChunkSize(int chunkSize);
+
+    /**
+     * Sets the executor that runs asynchronous stream operations.
+     * <p>
+     * By default, each operation runs on a new virtual thread on JDK 21
+     * and later, and on a cached pool of daemon threads on earlier JDKs.
+     * The default executor is created on the first asynchronous operation.
+     * An executor provided by the application is not shut down when the
+     * JPAStreamer is closed.
+     *
+     * @param executor that runs asynchronous stream operations
+     * @return this builder
+     * @see JPAStreamer#async(com.speedment.jpastreamer.streamconfiguration.StreamConfiguration, java.util.function.Function)
+     */
+    JPAStreamerBuilder withExecutor(Executor executor);
+
+    /**
+     * Bounds the cache of streamers, which hold the {@code EntityManager}s of each
+     * stream configuration (including configurations with joins and projections).
+     * <p>
+     * At most {@code maximumSize} streamers are cached, evicting the least recently
+     * used streamer when the cache is full, and streamers that are not used for
+     * {@code maximumIdleTime} are evicted. The {@code EntityManager}s of an evicted
+     * streamer are closed once its open streams are closed. By default, at most
+     * 64 streamers are cached for at most 10 minutes of idle time.
+     *
+     * @param maximumSize of the cache
+     * @param maximumIdleTime of a cached streamer
+     * @return this builder
+     * @throws IllegalArgumentException if the provided {@code maximumSize} or
+     *         {@code maximumIdleTime} is not positive
+     * @see JPAStreamer#streamerCacheStatistics()
+     */
+    JPAStreamerBuilder withStreamerCache(int maximumSize, Duration maximumIdleTime);
+
     /**
      * Creates and returns a new JPAStreamer instance.
      *
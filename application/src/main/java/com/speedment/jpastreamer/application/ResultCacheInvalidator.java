@@ -0,0 +1,82 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * An entity listener that invalidates the result caches of an entity
+ * whenever the entity is written. Register it on cached entities using
+ * {@code @EntityListeners(ResultCacheInvalidator.class)}.
+ * <p>
+ * The {@code @PostPersist}, {@code @PostUpdate} and {@code @PostRemove} callbacks
+ * run when the write is flushed, which is before the transaction commits. A stream
+ * that reads the entity between the flush and the commit (e.g. using another
+ * {@code EntityManager}) still sees the rows before the write, and its results may
+ * be cached after the invalidation. Such stale results are served until they expire
+ * after the time to live of the cache, unless the cache is invalidated again after
+ * the commit. Applications that need the cache to reflect a write as soon as it is
+ * committed should call {@link #notifyWrite(Class)} after the commit, for example
+ * from the {@code afterCompletion} callback of a transaction synchronization.
+ *
+ * @see JPAStreamerBuilder#withResultCache(Class, long, java.time.Duration)
+ */
+public final class ResultCacheInvalidator {
+
+    private static final Set<Consumer<Class<?>>> SUBSCRIBERS = new CopyOnWriteArraySet<>();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(final Object entity) {
+        notifyWrite(entity.getClass());
+    }
+
+    /**
+     * Notifies all subscribers that an entity of the provided {@code entityClass}
+     * has been written. This may be called after the transaction that wrote the
+     * entity has committed, so that results that were cached before the commit
+     * are invalidated.
+     *
+     * @param entityClass of the written entity
+     */
+    public static void notifyWrite(final Class<?> entityClass) {
+        requireNonNull(entityClass);
+        SUBSCRIBERS.forEach(subscriber -> subscriber.accept(entityClass));
+    }
+
+    /**
+     * Subscribes the provided {@code subscriber} to the classes of written entities.
+     *
+     * @param subscriber to notify when an entity is written
+     */
+    public static void subscribe(final Consumer<Class<?>> subscriber) {
+        SUBSCRIBERS.add(requireNonNull(subscriber));
+    }
+
+    /**
+     * Unsubscribes the provided {@code subscriber}.
+     *
+     * @param subscriber to no longer notify when an entity is written
+     */
+    public static void unsubscribe(final Consumer<Class<?>> subscriber) {
+        SUBSCRIBERS.remove(requireNonNull(subscriber));
+    }
+}
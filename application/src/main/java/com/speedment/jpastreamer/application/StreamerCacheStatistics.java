@@ -0,0 +1,55 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application;
+
+import java.time.Duration;
+
+/**
+ * Statistics of the cache of streamers of a {@link JPAStreamer}. A streamer
+ * renders the streams of a stream configuration and holds the
+ * {@code EntityManager}s that are used to execute them.
+ *
+ * @see JPAStreamer#streamerCacheStatistics()
+ * @see JPAStreamerBuilder#withStreamerCache(int, Duration)
+ */
+public interface StreamerCacheStatistics {
+
+    /**
+     * Returns the number of streams whose stream configuration had a cached streamer.
+     *
+     * @return the number of streams whose stream configuration had a cached streamer
+     */
+    long hitCount();
+
+    /**
+     * Returns the number of streams whose stream configuration required a new streamer.
+     *
+     * @return the number of streams whose stream configuration required a new streamer
+     */
+    long missCount();
+
+    /**
+     * Returns the number of streamers that have been evicted because the cache
+     * was full or because they were idle.
+     *
+     * @return the number of evicted streamers
+     */
+    long evictionCount();
+
+    /**
+     * Returns the number of cached streamers.
+     *
+     * @return the number of cached streamers
+     */
+    int size();
+}
@@ -12,7 +12,10 @@
  */
 package com.speedment.jpastreamer.criteria;
 
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+
 import javax.persistence.criteria.ParameterExpression;
+import java.util.Optional;
 
 /**
  * Stores a query parameter and the value associated with the parameter
@@ -26,4 +29,30 @@ public interface QueryParameter<T> {
 
     T getValue();
 
+    /**
+     * Returns the predicate that the value of this parameter was taken from, or
+     * {@code Optional.empty()} if the value was not taken from a predicate.
+     *
+     * @return the predicate that the value of this parameter was taken from, or
+     *         {@code Optional.empty()} if the value was not taken from a predicate
+     */
+    default Optional<FieldPredicate<?>> getSource() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the value of this parameter for the provided {@code predicate}, which
+     * must have the same shape as the {@link #getSource() source} of this parameter
+     * (the same predicate type, field and, for {@code IN} predicates, number of values).
+     * <p>
+     * This allows a query that was rendered for one predicate to be reused for
+     * another predicate of the same shape by binding new values to its parameters.
+     *
+     * @param predicate with the same shape as the source of this parameter
+     * @return the value of this parameter for the provided {@code predicate}
+     * @throws UnsupportedOperationException if this parameter has no source
+     */
+    default T getValue(FieldPredicate<?> predicate) {
+        throw new UnsupportedOperationException("The value of " + getParameterExpression() + " was not taken from a predicate");
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.field.collector;
+
+import com.speedment.jpastreamer.field.Field;
+
+import java.util.Optional;
+import java.util.stream.Collector;
+
+/**
+ * A {@link Collector} that computes a single aggregate value, optionally
+ * of a {@link Field}. As the aggregate is known, it can be computed by
+ * the database when used as the downstream collector of a
+ * {@link FieldCollectors#groupingBy(Field, java.util.function.Function,
+ * java.util.function.Supplier, Collector) grouping collector}.
+ *
+ * @param <T>  the entity type to be collected
+ * @param <A>  the intermediate accumulation type
+ * @param <R>  the collected result
+ *
+ * @since 1.1.4
+ */
+public interface AggregateCollector<T, A, R> extends Collector<T, A, R> {
+
+    /**
+     * The aggregate function computed by an {@link AggregateCollector}.
+     */
+    enum Aggregate {
+        COUNT, SUM, AVERAGE, MIN, MAX
+    }
+
+    /**
+     * Returns the aggregate function computed by this collector.
+     *
+     * @return  the aggregate function
+     */
+    Aggregate aggregate();
+
+    /**
+     * Returns the field that is aggregated, or {@code Optional.empty()} if
+     * the aggregate is computed over the entities themselves, as is the
+     * case for {@link Aggregate#COUNT}.
+     *
+     * @return  the aggregated field
+     */
+    Optional<Field<T>> getField();
+
+    /**
+     * Converts an aggregate value computed by the database into the result
+     * that this collector would have produced.
+     *
+     * @param value  the aggregate value computed by the database, may be {@code null}
+     * @return       the collected result
+     */
+    R fromAggregate(Object value);
+
+}
@@ -14,6 +14,7 @@ package com.speedment.jpastreamer.field.collector;
 
 import com.speedment.jpastreamer.field.Field;
 
+import java.util.Optional;
 import java.util.stream.Collector;
 
 /**
@@ -33,5 +34,16 @@ public interface FieldCollector<T, A, R> extends Collector<T, A, R> {
      * @return  the field
      */
     Field<T> getField();
+
+    /**
+     * Returns the downstream collector that is applied to the elements
+     * of each group, or {@code Optional.empty()} if this collector does
+     * not group its elements.
+     *
+     * @return  the downstream collector
+     */
+    default Optional<Collector<? super T, ?, ?>> getDownstream() {
+        return Optional.empty();
+    }
     
 }
@@ -13,11 +13,14 @@
 package com.speedment.jpastreamer.field.collector;
 
 import com.speedment.jpastreamer.field.*;
+import com.speedment.jpastreamer.field.collector.AggregateCollector.Aggregate;
+import com.speedment.jpastreamer.field.internal.collector.AggregateCollectorImpl;
 import com.speedment.jpastreamer.field.internal.collector.FieldCollectorImpl;
 
 import java.util.*;
 import java.util.function.*;
 import java.util.stream.Collector;
+import java.util.stream.Collectors;
 
 import static java.util.Collections.emptySet;
 import static java.util.Collections.unmodifiableSet;
@@ -152,21 +155,276 @@ public final class FieldCollectors {
         Supplier<Map<K, A>> mangledFactory = (Supplier<Map<K, A>>) mapFactory;
 
         if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
-            return new FieldCollectorImpl<>(field, mangledFactory, accumulator, merger, CH_ID);
+            return new FieldCollectorImpl<>(field, downstream, mangledFactory, accumulator, merger, CH_ID);
         }
         else {
             @SuppressWarnings("unchecked")
-            UnaryOperator<A> downstreamFinisher = (UnaryOperator<A>) downstream.finisher();
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
             Function<Map<K, A>, M> finisher = intermediate -> {
                 intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
                 @SuppressWarnings("unchecked")
                 M castResult = (M) intermediate;
                 return castResult;
             };
-            return new FieldCollectorImpl<>(field, mangledFactory, accumulator, merger, finisher, CH_NOID);
+            return new FieldCollectorImpl<>(field, downstream, mangledFactory, accumulator, merger, finisher, CH_NOID);
         }
     }
 
+    /**
+     * Returns a collector that counts the number of input elements. If used
+     * as the downstream collector of {@code groupingBy}, the count can be
+     * computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @return          a collector that counts the input elements
+     *
+     * @see Collectors#counting()
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Long> counting() {
+        return new AggregateCollectorImpl<>(Aggregate.COUNT, null, Collectors.<ENTITY>counting(),
+            value -> value == null ? 0L : ((Number) value).longValue());
+    }
+
+    /**
+     * Returns a collector that produces the sum of the given field, or zero
+     * if there are no input elements. If used as the downstream collector of
+     * {@code groupingBy}, the sum can be computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to sum
+     * @return          a collector that produces the sum of the field
+     *
+     * @see Collectors#summingInt(ToIntFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Integer>
+    summingInt(IntField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.SUM, field, Collectors.summingInt(field.getter()::applyAsInt),
+            value -> value == null ? 0 : ((Number) value).intValue());
+    }
+
+    /**
+     * Returns a collector that produces the sum of the given field, or zero
+     * if there are no input elements. If used as the downstream collector of
+     * {@code groupingBy}, the sum can be computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to sum
+     * @return          a collector that produces the sum of the field
+     *
+     * @see Collectors#summingLong(ToLongFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Long>
+    summingLong(LongField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.SUM, field, Collectors.summingLong(field.getter()::applyAsLong),
+            value -> value == null ? 0L : ((Number) value).longValue());
+    }
+
+    /**
+     * Returns a collector that produces the sum of the given field, or zero
+     * if there are no input elements. If used as the downstream collector of
+     * {@code groupingBy}, the sum can be computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to sum
+     * @return          a collector that produces the sum of the field
+     *
+     * @see Collectors#summingDouble(ToDoubleFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Double>
+    summingDouble(DoubleField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.SUM, field, Collectors.summingDouble(field.getter()::applyAsDouble),
+            value -> value == null ? 0d : ((Number) value).doubleValue());
+    }
+
+    /**
+     * Returns a collector that produces the arithmetic mean of the given
+     * field, or zero if there are no input elements. If used as the
+     * downstream collector of {@code groupingBy}, the mean can be computed
+     * by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to average
+     * @return          a collector that produces the mean of the field
+     *
+     * @see Collectors#averagingInt(ToIntFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Double>
+    averagingInt(IntField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.AVERAGE, field, Collectors.averagingInt(field.getter()::applyAsInt),
+            value -> value == null ? 0d : ((Number) value).doubleValue());
+    }
+
+    /**
+     * Returns a collector that produces the arithmetic mean of the given
+     * field, or zero if there are no input elements. If used as the
+     * downstream collector of {@code groupingBy}, the mean can be computed
+     * by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to average
+     * @return          a collector that produces the mean of the field
+     *
+     * @see Collectors#averagingLong(ToLongFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Double>
+    averagingLong(LongField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.AVERAGE, field, Collectors.averagingLong(field.getter()::applyAsLong),
+            value -> value == null ? 0d : ((Number) value).doubleValue());
+    }
+
+    /**
+     * Returns a collector that produces the arithmetic mean of the given
+     * field, or zero if there are no input elements. If used as the
+     * downstream collector of {@code groupingBy}, the mean can be computed
+     * by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to average
+     * @return          a collector that produces the mean of the field
+     *
+     * @see Collectors#averagingDouble(ToDoubleFunction)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Double>
+    averagingDouble(DoubleField<ENTITY> field) {
+        return new AggregateCollectorImpl<>(Aggregate.AVERAGE, field, Collectors.averagingDouble(field.getter()::applyAsDouble),
+            value -> value == null ? 0d : ((Number) value).doubleValue());
+    }
+
+    /**
+     * Returns a collector that produces the minimal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements. If
+     * used as the downstream collector of {@code groupingBy}, the minimum
+     * can be computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the minimal value of
+     * @return          a collector that produces the minimal value
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Integer>>
+    min(IntField<ENTITY> field) {
+        return extreme(Aggregate.MIN, field, field.getter()::apply, BinaryOperator.minBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the minimal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the minimal value of
+     * @return          a collector that produces the minimal value
+     *
+     * @see #min(IntField)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Long>>
+    min(LongField<ENTITY> field) {
+        return extreme(Aggregate.MIN, field, field.getter()::apply, BinaryOperator.minBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the minimal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the minimal value of
+     * @return          a collector that produces the minimal value
+     *
+     * @see #min(IntField)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Double>>
+    min(DoubleField<ENTITY> field) {
+        return extreme(Aggregate.MIN, field, field.getter()::apply, BinaryOperator.minBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the minimal value of the given
+     * field in its natural order, or {@code Optional.empty()} if there are
+     * no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param <V>       the field value type
+     * @param field     the field to find the minimal value of
+     * @return          a collector that produces the minimal value
+     *
+     * @see #min(IntField)
+     */
+    public static <ENTITY, V extends Comparable<? super V>> AggregateCollector<ENTITY, ?, Optional<V>>
+    min(ComparableField<ENTITY, V> field) {
+        return extreme(Aggregate.MIN, field, field.getter()::apply, BinaryOperator.minBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the maximal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements. If
+     * used as the downstream collector of {@code groupingBy}, the maximum
+     * can be computed by the database.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the maximal value of
+     * @return          a collector that produces the maximal value
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Integer>>
+    max(IntField<ENTITY> field) {
+        return extreme(Aggregate.MAX, field, field.getter()::apply, BinaryOperator.maxBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the maximal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the maximal value of
+     * @return          a collector that produces the maximal value
+     *
+     * @see #max(IntField)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Long>>
+    max(LongField<ENTITY> field) {
+        return extreme(Aggregate.MAX, field, field.getter()::apply, BinaryOperator.maxBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the maximal value of the given
+     * field, or {@code Optional.empty()} if there are no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param field     the field to find the maximal value of
+     * @return          a collector that produces the maximal value
+     *
+     * @see #max(IntField)
+     */
+    public static <ENTITY> AggregateCollector<ENTITY, ?, Optional<Double>>
+    max(DoubleField<ENTITY> field) {
+        return extreme(Aggregate.MAX, field, field.getter()::apply, BinaryOperator.maxBy(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Returns a collector that produces the maximal value of the given
+     * field in its natural order, or {@code Optional.empty()} if there are
+     * no input elements.
+     *
+     * @param <ENTITY>  the entity type
+     * @param <V>       the field value type
+     * @param field     the field to find the maximal value of
+     * @return          a collector that produces the maximal value
+     *
+     * @see #max(IntField)
+     */
+    public static <ENTITY, V extends Comparable<? super V>> AggregateCollector<ENTITY, ?, Optional<V>>
+    max(ComparableField<ENTITY, V> field) {
+        return extreme(Aggregate.MAX, field, field.getter()::apply, BinaryOperator.maxBy(Comparator.naturalOrder()));
+    }
+
+    private static <ENTITY, V> AggregateCollector<ENTITY, ?, Optional<V>> extreme(
+            Aggregate aggregate,
+            Field<ENTITY> field,
+            Function<ENTITY, V> getter,
+            BinaryOperator<V> operator) {
+
+        @SuppressWarnings("unchecked")
+        final Function<Object, Optional<V>> converter = value -> Optional.ofNullable((V) value);
+        return new AggregateCollectorImpl<>(aggregate, field, Collectors.mapping(getter, Collectors.reducing(operator)), converter);
+    }
+
     private static <K, V, M extends Map<K,V>>
     BinaryOperator<M> mapMerger(BinaryOperator<V> mergeFunction) {
         return (m1, m2) -> {
@@ -0,0 +1,95 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.field.internal.collector;
+
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.field.collector.AggregateCollector;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ *
+ * @param <T>  the entity type to be collected
+ * @param <A>  the intermediate accumulation type
+ * @param <R>  the collected result
+ *
+ * @since 1.1.4
+ */
+public final class AggregateCollectorImpl<T, A, R>
+implements AggregateCollector<T, A, R> {
+
+    private final Aggregate aggregate;
+    private final Field<T> field;
+    private final Collector<T, A, R> collector;
+    private final Function<Object, R> converter;
+
+    public AggregateCollectorImpl(
+            Aggregate aggregate,
+            Field<T> field,
+            Collector<T, A, R> collector,
+            Function<Object, R> converter) {
+
+        this.aggregate = requireNonNull(aggregate);
+        this.field     = field;
+        this.collector = requireNonNull(collector);
+        this.converter = requireNonNull(converter);
+    }
+
+    @Override
+    public Aggregate aggregate() {
+        return aggregate;
+    }
+
+    @Override
+    public Optional<Field<T>> getField() {
+        return Optional.ofNullable(field);
+    }
+
+    @Override
+    public R fromAggregate(Object value) {
+        return converter.apply(value);
+    }
+
+    @Override
+    public Supplier<A> supplier() {
+        return collector.supplier();
+    }
+
+    @Override
+    public BiConsumer<A, T> accumulator() {
+        return collector.accumulator();
+    }
+
+    @Override
+    public BinaryOperator<A> combiner() {
+        return collector.combiner();
+    }
+
+    @Override
+    public Function<A, R> finisher() {
+        return collector.finisher();
+    }
+
+    @Override
+    public Set<Collector.Characteristics> characteristics() {
+        return collector.characteristics();
+    }
+}
@@ -15,6 +15,7 @@ package com.speedment.jpastreamer.field.internal.collector;
 import com.speedment.jpastreamer.field.collector.FieldCollector;
 import com.speedment.jpastreamer.field.Field;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -37,6 +38,7 @@ public final class FieldCollectorImpl<T, A, R>
 implements FieldCollector<T, A, R> {
 
     private final Field<T> field;
+    private final Collector<? super T, ?, ?> downstream;
     private final Supplier<A> supplier;
     private final BiConsumer<A, T> accumulator;
     private final BinaryOperator<A> combiner;
@@ -50,8 +52,21 @@ implements FieldCollector<T, A, R> {
                 BinaryOperator<A> combiner,
                 Function<A, R> finisher,
                 Set<Collector.Characteristics> characteristics) {
+
+        this(field, null, supplier, accumulator, combiner, finisher, characteristics);
+    }
+
+    public FieldCollectorImpl(
+                Field<T> field,
+                Collector<? super T, ?, ?> downstream,
+                Supplier<A> supplier,
+                BiConsumer<A, T> accumulator,
+                BinaryOperator<A> combiner,
+                Function<A, R> finisher,
+                Set<Collector.Characteristics> characteristics) {
         
         this.field           = requireNonNull(field);
+        this.downstream      = downstream;
         this.supplier        = requireNonNull(supplier);
         this.accumulator     = requireNonNull(accumulator);
         this.combiner        = requireNonNull(combiner);
@@ -68,12 +83,28 @@ implements FieldCollector<T, A, R> {
         
         this(field, supplier, accumulator, combiner, castingIdentity(), characteristics);
     }
+
+    public FieldCollectorImpl(
+            Field<T> field,
+            Collector<? super T, ?, ?> downstream,
+            Supplier<A> supplier,
+            BiConsumer<A, T> accumulator,
+            BinaryOperator<A> combiner,
+            Set<Collector.Characteristics> characteristics) {
+
+        this(field, downstream, supplier, accumulator, combiner, castingIdentity(), characteristics);
+    }
     
     @Override
     public Field<T> getField() {
         return field;
     }
 
+    @Override
+    public Optional<Collector<? super T, ?, ?>> getDownstream() {
+        return Optional.ofNullable(downstream);
+    }
+
     @Override
     public BiConsumer<A, T> accumulator() {
         return accumulator;
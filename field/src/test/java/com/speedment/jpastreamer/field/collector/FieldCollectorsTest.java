@@ -0,0 +1,76 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.field.collector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class FieldCollectorsTest {
+
+    @Test
+    void groupingByIdentityDownstream() {
+        final Map<String, List<Integer>> lengths = films()
+            .collect(FieldCollectors.groupingBy(Film$.title, Collectors.mapping(Film::getLength, Collectors.toList())));
+
+        final Map<String, List<Integer>> expected = new HashMap<>();
+        expected.put("Alien", Arrays.asList(117, 116));
+        expected.put("Brazil", Collections.singletonList(132));
+        assertEquals(expected, lengths);
+    }
+
+    @Test
+    void groupingByNonIdentityDownstream() {
+        // Used to fail with a ClassCastException as the finisher of the downstream was cast to a UnaryOperator
+        final Map<String, Long> counts = films()
+            .collect(FieldCollectors.groupingBy(Film$.title, Collectors.counting()));
+
+        final Map<String, Long> expected = new HashMap<>();
+        expected.put("Alien", 2L);
+        expected.put("Brazil", 1L);
+        assertEquals(expected, counts);
+    }
+
+    @Test
+    void aggregateDownstreams() {
+        assertEquals(2L, (long) films().collect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.counting())).get("Alien"));
+        assertEquals(233, (int) films().collect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.summingInt(Film$.length))).get("Alien"));
+        assertEquals(116.5, (double) films().collect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.averagingInt(Film$.length))).get("Alien"));
+        assertEquals(Optional.of(116), films().collect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.min(Film$.length))).get("Alien"));
+        assertEquals(Optional.of(117), films().collect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.max(Film$.length))).get("Alien"));
+        assertEquals(Optional.of("Alien"), films().collect(FieldCollectors.min(Film$.title)));
+        assertEquals(Optional.of("Brazil"), films().collect(FieldCollectors.max(Film$.title)));
+    }
+
+    @Test
+    void aggregatesOfNoElements() {
+        assertEquals(0L, (long) Stream.<Film>empty().collect(FieldCollectors.counting()));
+        assertEquals(0, (int) Stream.<Film>empty().collect(FieldCollectors.summingInt(Film$.length)));
+        assertEquals(0d, (double) Stream.<Film>empty().collect(FieldCollectors.averagingInt(Film$.length)));
+        assertEquals(Optional.empty(), Stream.<Film>empty().collect(FieldCollectors.min(Film$.length)));
+        assertEquals(Optional.empty(), Stream.<Film>empty().collect(FieldCollectors.max(Film$.title)));
+    }
+
+    private static Stream<Film> films() {
+        return Stream.of(new Film("Alien", 117), new Film("Brazil", 132), new Film("Alien", 116));
+    }
+}
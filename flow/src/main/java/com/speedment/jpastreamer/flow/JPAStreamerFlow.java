@@ -0,0 +1,262 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.flow;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.application.JPAStreamer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Exposes the streams of a {@link JPAStreamer} as {@link Flow.Publisher}s.
+ * <p>
+ * Each subscription renders the stream like {@link JPAStreamer#stream(StreamConfiguration)}
+ * and consumes it sequentially on a thread of the provided executor, which reads rows
+ * from the result only as the subscriber signals demand, even if the stream is
+ * parallel. The thread waits while there is no demand, so an executor that runs each
+ * task on its own (preferably virtual) thread should be used. Cancelling the
+ * subscription cancels the statement of the stream (if supported by the persistence
+ * provider) and closes the stream, and with it the query and the {@code EntityManager}
+ * of the stream.
+ * <p>
+ * This class requires Java 9 or later, and is provided by the {@code flow}
+ * artifact.
+ *
+ * @since 1.1.4
+ */
+public final class JPAStreamerFlow {
+
+    private JPAStreamerFlow() {}
+
+    /**
+     * Creates and returns a new {@link Flow.Publisher} of all entities in the
+     * underlying data source according to the provided {@code streamConfiguration}.
+     *
+     * @param <T> The element type
+     * @param jpaStreamer to create the stream with
+     * @param streamConfiguration to use
+     * @param executor to consume the stream on
+     * @return a new {@link Flow.Publisher} of all entities in the
+     *         underlying data source according to the provided {@code streamConfiguration}
+     */
+    public static <T> Flow.Publisher<T> publisher(
+        final JPAStreamer jpaStreamer,
+        final StreamConfiguration<T> streamConfiguration,
+        final Executor executor
+    ) {
+        return publisher(jpaStreamer, streamConfiguration, Function.identity(), executor);
+    }
+
+    /**
+     * Creates and returns a new {@link Flow.Publisher} of the elements of the stream
+     * returned by the provided {@code pipeline} when applied to a stream of all
+     * entities according to the provided {@code streamConfiguration}, for example:
+     * <pre>{@code
+     *     Flow.Publisher<String> titles = JPAStreamerFlow.publisher(jpaStreamer, StreamConfiguration.of(Film.class),
+     *         films -> films.filter(Film$.rating.equal("G")).map(Film$.title),
+     *         executor);
+     * }</pre>
+     * The operations of the {@code pipeline} are rendered to the database as for
+     * any other stream.
+     *
+     * @param <T> The entity type
+     * @param <R> The element type
+     * @param jpaStreamer to create the stream with
+     * @param streamConfiguration to use
+     * @param pipeline that applies intermediate operations to the stream
+     * @param executor to consume the stream on
+     * @return a new {@link Flow.Publisher} of the elements of the stream
+     *         returned by the provided {@code pipeline}
+     */
+    public static <T, R> Flow.Publisher<R> publisher(
+        final JPAStreamer jpaStreamer,
+        final StreamConfiguration<T> streamConfiguration,
+        final Function<? super Stream<T>, ? extends Stream<R>> pipeline,
+        final Executor executor
+    ) {
+        requireNonNull(jpaStreamer);
+        requireNonNull(streamConfiguration);
+        requireNonNull(pipeline);
+        requireNonNull(executor);
+        // Streams of asynchronous operations have their statements cancelled when the operation is cancelled
+        return publisher(consumer -> jpaStreamer.async(streamConfiguration, stream -> consumer.apply(pipeline.apply(stream)), executor));
+    }
+
+    /**
+     * Creates and returns a new {@link Flow.Publisher} whose subscriptions each
+     * consume a stream of the provided {@code streamSupplier} on the provided
+     * {@code executor}.
+     */
+    static <R> Flow.Publisher<R> publisher(final Supplier<? extends Stream<R>> streamSupplier, final Executor executor) {
+        requireNonNull(streamSupplier);
+        requireNonNull(executor);
+        return publisher(consumer -> CompletableFuture.supplyAsync(() -> {
+            try (Stream<R> stream = streamSupplier.get()) {
+                return consumer.apply(stream);
+            }
+        }, executor));
+    }
+
+    /**
+     * Creates and returns a new {@link Flow.Publisher} whose subscriptions each
+     * consume a stream using the provided {@code operation}, which applies a
+     * consumer to a stream asynchronously and closes the stream. Cancelling the
+     * returned future must stop the stream.
+     */
+    static <R> Flow.Publisher<R> publisher(final Function<Function<Stream<R>, Void>, CompletableFuture<Void>> operation) {
+        return subscriber -> {
+            requireNonNull(subscriber);
+            final StreamSubscription<R> subscription = new StreamSubscription<>(subscriber);
+            subscriber.onSubscribe(subscription);
+            final CompletableFuture<Void> future;
+            try {
+                future = operation.apply(subscription::consume);
+            } catch (RejectedExecutionException e) {
+                subscription.fail(e);
+                return;
+            }
+            subscription.runningAs(future);
+        };
+    }
+
+    private static final class StreamSubscription<R> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super R> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean terminated = new AtomicBoolean();
+
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private volatile Thread consumer;
+        private volatile CompletableFuture<Void> future;
+
+        private StreamSubscription(final Flow.Subscriber<? super R> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The requested number of elements must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            LockSupport.unpark(consumer);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            LockSupport.unpark(consumer);
+            final CompletableFuture<Void> running = future;
+            if (running != null) {
+                // Cancels a statement that is blocked in the database
+                running.cancel(true);
+            }
+        }
+
+        /**
+         * Tracks the provided {@code future} of the operation consuming the stream,
+         * which fails the subscription if the stream can not be consumed.
+         */
+        private void runningAs(final CompletableFuture<Void> future) {
+            this.future = future;
+            if (cancelled) {
+                future.cancel(true);
+            }
+            future.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    fail(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                }
+            });
+        }
+
+        /**
+         * Emits the elements of the provided {@code stream} one at a time on the
+         * current thread as the subscriber signals demand.
+         */
+        private Void consume(final Stream<R> stream) {
+            consumer = Thread.currentThread();
+            try {
+                Iterator<R> iterator = null;
+                while (awaitDemand()) {
+                    if (iterator == null) {
+                        // Elements of a parallel stream would otherwise be emitted on the threads of the stream
+                        iterator = stream.sequential().iterator();
+                    }
+                    if (!iterator.hasNext()) {
+                        if (terminated.compareAndSet(false, true) && !cancelled) {
+                            subscriber.onComplete();
+                        }
+                        return null;
+                    }
+                    final R element = iterator.next();
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(element);
+                }
+                failOnInvalidRequest();
+            } catch (CancellationException e) {
+                failOnInvalidRequest();
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                consumer = null;
+            }
+            return null;
+        }
+
+        /**
+         * Waits until there is demand, returning {@code false} if the subscription
+         * is cancelled or an invalid request was made.
+         */
+        private boolean awaitDemand() {
+            while (true) {
+                if (cancelled || invalidRequest != null) {
+                    return false;
+                }
+                if (demand.get() > 0) {
+                    return true;
+                }
+                LockSupport.park(this);
+            }
+        }
+
+        private void failOnInvalidRequest() {
+            if (invalidRequest != null) {
+                fail(invalidRequest);
+            }
+        }
+
+        private void fail(final Throwable throwable) {
+            if (terminated.compareAndSet(false, true) && !cancelled) {
+                subscriber.onError(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.flow;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+final class JPAStreamerFlowTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void elementsAreReadOnDemand() throws InterruptedException {
+        final AtomicInteger read = new AtomicInteger();
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.publisher(() -> IntStream.range(0, 5).boxed().peek(i -> read.incrementAndGet()), executor).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        subscriber.awaitElements(2);
+        Thread.sleep(50);
+
+        assertEquals(2, subscriber.elements.size());
+        // The stream waits for demand before reading the next row
+        assertTrue(read.get() <= 3);
+        assertFalse(subscriber.completed.await(0, TimeUnit.SECONDS));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 5).boxed().collect(toList()), subscriber.elements);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void cancelClosesTheStream() throws InterruptedException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.publisher(() -> Stream.iterate(0, i -> i + 1).onClose(closed::countDown), executor).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        subscriber.awaitElements(1);
+        subscriber.subscription.cancel();
+
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, subscriber.elements.size());
+        assertEquals(1, subscriber.completed.getCount());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void cancelBeforeDemandDoesNotReadTheStream() throws InterruptedException {
+        final AtomicBoolean read = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.publisher(() -> Stream.of(1).peek(i -> read.set(true)), command -> executor.execute(() -> {
+            command.run();
+            done.countDown();
+        })).subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse(read.get());
+        assertTrue(subscriber.elements.isEmpty());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void parallelStreamIsEmittedSerially() throws InterruptedException {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>() {
+            @Override
+            public void onNext(final Integer item) {
+                threads.add(Thread.currentThread());
+                super.onNext(item);
+            }
+        };
+        JPAStreamerFlow.publisher(() -> IntStream.range(0, 1000).boxed().parallel(), executor).subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        subscriber.awaitElements(10);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 1000).boxed().collect(toList()), subscriber.elements);
+        assertEquals(1, threads.size());
+    }
+
+    @Test
+    void cancelCancelsBlockedOperation() throws InterruptedException {
+        final CompletableFuture<Void> operation = new CompletableFuture<>();
+        final CountDownLatch reading = new CountDownLatch(1);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.<Integer>publisher(consumer -> {
+            executor.execute(() -> consumer.apply(Stream.<Integer>generate(() -> {
+                reading.countDown();
+                // Blocks like a statement in the database until the operation is cancelled
+                operation.handle((result, throwable) -> result).join();
+                throw new CancellationException();
+            })));
+            return operation;
+        }).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        subscriber.subscription.cancel();
+
+        assertTrue(operation.isCancelled());
+        assertTrue(subscriber.elements.isEmpty());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void streamFailureIsSignalledWithOnError() throws InterruptedException {
+        final IllegalStateException failure = new IllegalStateException();
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.<Integer>publisher(() -> Stream.of(1, 2).peek(i -> {
+            if (i == 2) {
+                throw failure;
+            }
+        }), executor).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.failed.await(10, TimeUnit.SECONDS));
+        assertSame(failure, subscriber.error);
+        assertEquals(1, subscriber.elements.size());
+        assertEquals(1, subscriber.completed.getCount());
+    }
+
+    @Test
+    void nonPositiveRequestIsSignalledWithOnError() throws InterruptedException {
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.publisher(() -> Stream.of(1), executor).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.failed.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.elements.isEmpty());
+    }
+
+    @Test
+    void rejectedExecutionIsSignalledWithOnError() {
+        final RejectedExecutionException rejection = new RejectedExecutionException();
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        JPAStreamerFlow.publisher(() -> Stream.of(1), command -> {
+            throw rejection;
+        }).subscribe(subscriber);
+
+        assertSame(rejection, subscriber.error);
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final List<T> elements = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final T item) {
+            elements.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        private void awaitElements(final int count) throws InterruptedException {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (elements.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.speedment.jpastreamer.projection.Projection;
 
 import javax.persistence.Tuple;
 import java.util.Collections;
+import java.util.Objects;
 import java.util.Set;
 
 public final class InternalProjection<ENTITY> implements Projection<ENTITY> {
@@ -47,4 +48,20 @@ public final class InternalProjection<ENTITY> implements Projection<ENTITY> {
     public Tuple apply(ENTITY entity) {
         return tupleContext.create(entity);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final InternalProjection<?> that = (InternalProjection<?>) o;
+
+        if (!entityClass.equals(that.entityClass)) return false;
+        return fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityClass, fields);
+    }
 }
@@ -38,6 +38,14 @@ final class ProjectionTest {
         assertEquals(new HashSet<>(Arrays.asList(Person$.personId, Person$.name)), projection.fields());
     }
 
+    @Test
+    void equality() {
+        final Projection<Person> projection = Projection.select(Person$.personId, Person$.name);
+        assertEquals(projection, Projection.select(Person$.name, Person$.personId));
+        assertEquals(projection.hashCode(), Projection.select(Person$.name, Person$.personId).hashCode());
+        assertNotEquals(projection, Projection.select(Person$.personId));
+    }
+
     private static final class Person {
         int personId;
         String name;
@@ -0,0 +1,82 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.renderer.Cancellation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The result of an asynchronous stream operation. Cancelling the result
+ * cancels the {@link #cancellation()} of the streams of the operation, which
+ * cancels their statements and makes the streams stop reading rows, so that
+ * the operation closes the stream and its query on its own thread.
+ * <p>
+ * The thread running the operation is not interrupted, as interrupting a
+ * thread that is blocked reading from the database may close the connection
+ * of the statement.
+ *
+ * @param <R> the result type
+ */
+final class AsyncResult<R> extends CompletableFuture<R> {
+
+    private final Cancellation cancellation = new Cancellation();
+
+    /**
+     * Returns the cancellation of the streams of the operation, which is
+     * cancelled when this result is cancelled.
+     *
+     * @return the cancellation of the streams of the operation
+     */
+    Cancellation cancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Applies the provided {@code terminalOperation} to the stream of the provided
+     * {@code streamSupplier} on the current thread, completing this result.
+     *
+     * @param streamSupplier    of the stream
+     * @param terminalOperation to apply to the stream
+     * @param <T>               the element type
+     */
+    <T> void run(final Supplier<Stream<T>> streamSupplier, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+        requireNonNull(streamSupplier);
+        requireNonNull(terminalOperation);
+
+        if (isDone()) {
+            return;
+        }
+
+        try (Stream<T> stream = streamSupplier.get()) {
+            complete(terminalOperation.apply(stream));
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        }
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        if (isDone()) {
+            return false;
+        }
+        // Cancels the statements and stops the streams before the result is completed
+        cancellation.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+}
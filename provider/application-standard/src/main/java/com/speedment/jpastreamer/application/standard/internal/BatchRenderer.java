@@ -0,0 +1,187 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.renderer.Cancellation;
+import com.speedment.jpastreamer.renderer.RenderResult;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+
+/**
+ * Renders the streams of an operation of a batch. If the count of the first
+ * stream of the operation was computed when the batch was executed, the count
+ * is returned instead of rendering the stream. The streams are rendered with
+ * the cancellation of the operation.
+ */
+final class BatchRenderer implements Renderer {
+
+    private final Renderer renderer;
+    private final Optional<Long> count;
+    private final Cancellation cancellation;
+    private final AtomicBoolean rendered = new AtomicBoolean();
+
+    /**
+     * Creates a new BatchRenderer.
+     *
+     * @param renderer     to render the streams with
+     * @param count        of the first stream of the operation, if computed
+     * @param cancellation of the operation
+     */
+    BatchRenderer(final Renderer renderer, final Optional<Long> count, final Cancellation cancellation) {
+        this.renderer = requireNonNull(renderer);
+        this.count = requireNonNull(count);
+        this.cancellation = requireNonNull(cancellation);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+        if (rendered.compareAndSet(false, true)
+            && count.isPresent()
+            && pipeline.terminatingOperation().type() == TerminalOperationType.COUNT) {
+            // The operations of the pipeline are accounted for by the count
+            pipeline.intermediateOperations().clear();
+            return (RenderResult<E, T, S>) new CountResult<>(pipeline.root(), count.get(), pipeline.terminatingOperation());
+        }
+        return renderer.render(pipeline, streamConfiguration, cancellation);
+    }
+
+    @Override
+    public Map<Pipeline<?>, Long> renderCounts(final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+        return renderer.renderCounts(pipelines);
+    }
+
+    @Override
+    public void close() {
+        // The decorated renderer is closed by its streamer
+    }
+
+    /**
+     * Records the first pipeline of an operation when a batch is executed, if it
+     * terminates with {@code count()}, and aborts the operation without rendering it.
+     */
+    static final class Probe implements Renderer {
+
+        private final Renderer renderer;
+
+        // Guarded by this
+        private Pipeline<?> pipeline;
+        private StreamConfiguration<?> streamConfiguration;
+        private boolean rendered;
+
+        /**
+         * Creates a new Probe.
+         *
+         * @param renderer whose counts the recorded pipeline is computed with
+         */
+        Probe(final Renderer renderer) {
+            this.renderer = requireNonNull(renderer);
+        }
+
+        @Override
+        public synchronized <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+            if (!rendered) {
+                rendered = true;
+                if (pipeline.terminatingOperation().type() == TerminalOperationType.COUNT) {
+                    this.pipeline = pipeline;
+                    this.streamConfiguration = streamConfiguration;
+                }
+            }
+            throw new Abort();
+        }
+
+        /**
+         * Returns the renderer to compute the count of the recorded pipeline with.
+         *
+         * @return the renderer to compute the count of the recorded pipeline with
+         */
+        Renderer renderer() {
+            return renderer;
+        }
+
+        /**
+         * Returns the recorded pipeline, if the first pipeline of the operation
+         * terminates with {@code count()}.
+         *
+         * @return the recorded pipeline
+         */
+        synchronized Optional<Pipeline<?>> pipeline() {
+            return Optional.ofNullable(pipeline);
+        }
+
+        /**
+         * Returns the stream configuration of the recorded pipeline.
+         *
+         * @return the stream configuration of the recorded pipeline
+         */
+        synchronized StreamConfiguration<?> streamConfiguration() {
+            return streamConfiguration;
+        }
+
+        @Override
+        public void close() {
+            // The decorated renderer is closed by its streamer
+        }
+    }
+
+    /**
+     * Aborts an operation that is applied to the stream of a {@link Probe}.
+     */
+    private static final class Abort extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private Abort() {
+            super("The operation is only probed", null, false, false);
+        }
+    }
+
+    private static final class CountResult<E> implements RenderResult<E, Long, Stream<Long>> {
+
+        private final Class<E> root;
+        private final long count;
+        private final TerminalOperation<?, ?> terminalOperation;
+
+        private CountResult(final Class<E> root, final long count, final TerminalOperation<?, ?> terminalOperation) {
+            this.root = root;
+            this.count = count;
+            this.terminalOperation = terminalOperation;
+        }
+
+        @Override
+        public Class<E> root() {
+            return root;
+        }
+
+        @Override
+        public Stream<Long> stream() {
+            return Stream.of(count);
+        }
+
+        @Override
+        public TerminalOperation<?, ?> terminalOperation() {
+            return terminalOperation;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.renderer.Cancellation;
+import com.speedment.jpastreamer.renderer.RenderResult;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.util.Map;
+import java.util.stream.BaseStream;
+
+/**
+ * Renders the streams of an asynchronous operation with the cancellation of
+ * the operation, so that cancelling the operation cancels their statements.
+ */
+final class CancellableRenderer implements Renderer {
+
+    private final Renderer renderer;
+    private final Cancellation cancellation;
+
+    /**
+     * Creates a new CancellableRenderer.
+     *
+     * @param renderer     to render the streams with
+     * @param cancellation of the operation
+     */
+    CancellableRenderer(final Renderer renderer, final Cancellation cancellation) {
+        this.renderer = requireNonNull(renderer);
+        this.cancellation = requireNonNull(cancellation);
+    }
+
+    @Override
+    public <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+        return renderer.render(pipeline, streamConfiguration, cancellation);
+    }
+
+    @Override
+    public Map<Pipeline<?>, Long> renderCounts(final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+        return renderer.renderCounts(pipelines);
+    }
+
+    @Override
+    public void close() {
+        // The decorated renderer is closed by its streamer
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.application.Batch;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A batch whose operations are executed concurrently as asynchronous stream
+ * operations.
+ * <p>
+ * When the batch is executed, each operation is first applied to a stream
+ * whose renderer records the first pipeline of the operation, if it terminates
+ * with {@code count()}, and aborts the operation. The recorded pipelines of
+ * each renderer are then counted together, and each operation is executed
+ * with a {@link BatchRenderer} that returns its computed count, if any.
+ */
+final class StandardBatch implements Batch {
+
+    /**
+     * Creates streams whose renderer is decorated by a provided decorator.
+     */
+    interface StreamFactory {
+
+        <T> Stream<T> stream(StreamConfiguration<T> streamConfiguration, UnaryOperator<Renderer> rendererDecorator);
+    }
+
+    private final StreamFactory streamFactory;
+    private final Executor executor;
+
+    // Guarded by this
+    private final List<Operation<?, ?>> operations = new ArrayList<>();
+    private boolean executed;
+
+    StandardBatch(final StreamFactory streamFactory, final Executor executor) {
+        this.streamFactory = requireNonNull(streamFactory);
+        this.executor = requireNonNull(executor);
+    }
+
+    @Override
+    public synchronized <T, R> CompletableFuture<R> add(final StreamConfiguration<T> streamConfiguration, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+        requireNonNull(streamConfiguration);
+        requireNonNull(terminalOperation);
+        requireNotExecuted();
+        final Operation<T, R> operation = new Operation<>(streamConfiguration, terminalOperation);
+        operations.add(operation);
+        return operation.result;
+    }
+
+    @Override
+    public CompletableFuture<Void> execute() {
+        final List<Operation<?, ?>> batch;
+        synchronized (this) {
+            requireNotExecuted();
+            executed = true;
+            batch = new ArrayList<>(operations);
+        }
+
+        final Map<Renderer, Map<Pipeline<?>, StreamConfiguration<?>>> pipelines = new IdentityHashMap<>();
+        batch.forEach(operation -> operation.probe().ifPresent(probe -> probe.pipeline().ifPresent(pipeline ->
+            pipelines.computeIfAbsent(probe.renderer(), renderer -> new IdentityHashMap<>()).put(pipeline, probe.streamConfiguration()))));
+
+        final Map<Renderer, CompletableFuture<Map<Pipeline<?>, Long>>> counts = new IdentityHashMap<>();
+        pipelines.forEach((renderer, rendererPipelines) -> counts.put(renderer, count(renderer, rendererPipelines)));
+
+        batch.forEach(operation -> operation.execute(counts));
+
+        return CompletableFuture.allOf(batch.stream()
+            .map(operation -> operation.result)
+            .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Computes the counts of the provided {@code pipelines} of the provided
+     * {@code renderer} on the executor, using as few queries as possible.
+     * If no count can be computed, the pipelines are rendered individually.
+     */
+    private CompletableFuture<Map<Pipeline<?>, Long>> count(final Renderer renderer, final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+        if (pipelines.size() < 2) {
+            // A single count is not merged with any other
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> renderer.renderCounts(pipelines), executor)
+                // The pipelines are rendered individually, which reports the failure
+                .exceptionally(t -> Collections.emptyMap());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+    }
+
+    private void requireNotExecuted() {
+        if (executed) {
+            throw new IllegalStateException("The batch has already been executed");
+        }
+    }
+
+    private final class Operation<T, R> {
+
+        private final StreamConfiguration<T> streamConfiguration;
+        private final Function<? super Stream<T>, ? extends R> terminalOperation;
+        private final AsyncResult<R> result = new AsyncResult<>();
+
+        // Only accessed by the thread executing the batch
+        private BatchRenderer.Probe probe;
+
+        private Operation(final StreamConfiguration<T> streamConfiguration, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+            this.streamConfiguration = streamConfiguration;
+            this.terminalOperation = terminalOperation;
+        }
+
+        /**
+         * Applies the terminal operation to a stream that records its first pipeline
+         * without rendering it, returning the probe of the stream if it was rendered.
+         */
+        private Optional<BatchRenderer.Probe> probe() {
+            try (Stream<T> stream = streamFactory.stream(streamConfiguration, renderer -> probe = new BatchRenderer.Probe(renderer))) {
+                terminalOperation.apply(stream);
+            } catch (RuntimeException e) {
+                // The operation is aborted by the probe, or fails again when it is executed
+            }
+            return Optional.ofNullable(probe);
+        }
+
+        private void execute(final Map<Renderer, CompletableFuture<Map<Pipeline<?>, Long>>> counts) {
+            final Optional<Pipeline<?>> pipeline = probe == null ? Optional.empty() : probe.pipeline();
+            final CompletableFuture<Optional<Long>> count = pipeline.isPresent()
+                ? counts.get(probe.renderer()).thenApply(computed -> Optional.ofNullable(computed.get(pipeline.get())))
+                : CompletableFuture.completedFuture(Optional.empty());
+
+            count.thenAccept(c -> {
+                try {
+                    executor.execute(() -> result.run(
+                        () -> streamFactory.stream(streamConfiguration, renderer -> new BatchRenderer(renderer, c, result.cancellation())),
+                        terminalOperation
+                    ));
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+    }
+}
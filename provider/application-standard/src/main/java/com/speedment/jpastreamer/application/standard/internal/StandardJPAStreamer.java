@@ -18,31 +18,89 @@ import com.speedment.jpastreamer.analytics.AnalyticsReporter;
 import com.speedment.jpastreamer.analytics.AnalyticsReporterFactory;
 import com.speedment.jpastreamer.announcer.Announcer;
 import com.speedment.jpastreamer.appinfo.ApplicationInformation;
+import com.speedment.jpastreamer.application.Batch;
 import com.speedment.jpastreamer.application.JPAStreamer;
+import com.speedment.jpastreamer.application.ResultCacheInvalidator;
+import com.speedment.jpastreamer.application.StreamerCacheStatistics;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
+import com.speedment.jpastreamer.renderer.RendererFactory;
+import com.speedment.jpastreamer.renderer.ResultCache;
 import com.speedment.jpastreamer.rootfactory.RootFactory;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 final class StandardJPAStreamer implements JPAStreamer {
 
     private final Supplier<EntityManager> entityManagerSupplier;
     private final Runnable closeHandler;
-    private final Map<StreamConfiguration<?>, Streamer<?>> streamerCache;
+    private final StreamerCache streamerCache;
     private final AnalyticsReporter analyticsReporter;
     
     private final boolean closeEntityManagers; 
+
+    private final Map<Class<?>, ResultCache> resultCaches;
+    private final Consumer<Class<?>> writeListener;
+    private final boolean readOnly;
+    private final int fetchSize;
+    private final Duration queryTimeout;
+    private final Executor suppliedExecutor;
+    // Guarded by this
+    private ExecutorService defaultExecutor;
+    private final RendererConfiguration rendererConfiguration;
     
     StandardJPAStreamer(final Supplier<EntityManager> entityManagerSupplier, Runnable closeHandler, boolean demoMode, boolean closeEntityManagers) {
+        this(entityManagerSupplier, closeHandler, demoMode, closeEntityManagers, Collections.emptyMap(), false, 0, null, null,
+            StreamerCache.DEFAULT_MAXIMUM_SIZE, StreamerCache.DEFAULT_MAXIMUM_IDLE_TIME, RendererConfiguration.defaults());
+    }
+
+    StandardJPAStreamer(
+        final Supplier<EntityManager> entityManagerSupplier,
+        final Runnable closeHandler,
+        final boolean demoMode,
+        final boolean closeEntityManagers,
+        final Map<Class<?>, StandardJPAStreamerBuilder.ResultCacheSpec> resultCacheSpecs,
+        final boolean readOnly,
+        final int fetchSize,
+        final Duration queryTimeout,
+        final Executor executor,
+        final int streamerCacheSize,
+        final Duration streamerIdleTime,
+        final RendererConfiguration rendererConfiguration
+    ) {
         this.closeHandler = requireNonNull(closeHandler);
         this.entityManagerSupplier = requireNonNull(entityManagerSupplier);
         this.closeEntityManagers = closeEntityManagers; 
-        streamerCache = new ConcurrentHashMap<>();
+        // The EntityManagers of JPAStreamer.of(Supplier<EntityManager>) are managed by the application
+        this.rendererConfiguration = requireNonNull(rendererConfiguration).withOwnedEntityManagers(closeEntityManagers);
+        this.readOnly = readOnly;
+        this.fetchSize = fetchSize;
+        this.queryTimeout = queryTimeout;
+        this.suppliedExecutor = executor;
+        streamerCache = new StreamerCache(streamerCacheSize, streamerIdleTime);
+        resultCaches = new HashMap<>();
+        if (!resultCacheSpecs.isEmpty()) {
+            final RendererFactory rendererFactory = RootFactory.getOrThrow(RendererFactory.class, ServiceLoader::load);
+            resultCacheSpecs.forEach((entityClass, spec) ->
+                resultCaches.put(entityClass, rendererFactory.createResultCache(spec.maximumSize(), spec.timeToLive())));
+        }
+        writeListener = this::invalidateResultCaches;
+        if (!resultCaches.isEmpty()) {
+            ResultCacheInvalidator.subscribe(writeListener);
+        }
         final ApplicationInformation applicationInformation = RootFactory.getOrThrow(ApplicationInformation.class, ServiceLoader::load);
         final AnalyticsReporterFactory analyticsReporterFactory = RootFactory.getOrThrow(AnalyticsReporterFactory.class, ServiceLoader::load);
         analyticsReporter = analyticsReporterFactory.createAnalyticsReporter(applicationInformation.implementationVersion(), demoMode);
@@ -51,36 +109,125 @@ final class StandardJPAStreamer implements JPAStreamer {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public <T> Stream<T> stream(final StreamConfiguration<T> streamConfiguration) {
-        requireNonNull(streamConfiguration);
-        if (streamConfiguration.joins().isEmpty()) {
-            // Only cache simple configurations to limit the number of objects held
-            // See https://github.com/speedment/jpa-streamer/issues/56
-            return (Stream<T>) streamerCache
-                    .computeIfAbsent(streamConfiguration, ec -> new StandardStreamer<>(streamConfiguration, entityManagerSupplier))
-                    .stream();
+    public <T> Stream<T> stream(final StreamConfiguration<T> configuration) {
+        return stream(configuration, UnaryOperator.identity());
+    }
+
+    private <T> Stream<T> stream(final StreamConfiguration<T> configuration, final UnaryOperator<Renderer> rendererDecorator) {
+        requireNonNull(configuration);
+        final StreamConfiguration<T> streamConfiguration = withDefaults(configuration);
+        if (!streamConfiguration.seekAfter().isPresent()) {
+            // The cache is bounded, see https://github.com/speedment/jpa-streamer/issues/56
+            // Keyset configurations are unique per page and are never cached
+            return streamerCache.stream(streamConfiguration, this::createStreamer, rendererDecorator);
         } else {
-            final Streamer<T> streamer = new StandardStreamer<>(streamConfiguration, entityManagerSupplier);
+            final Streamer<T> streamer = createStreamer(streamConfiguration);
             return closeEntityManagers ? 
-                    streamer.stream().onClose(streamer::close) : 
-                    streamer.stream(); 
+                    streamer.stream(rendererDecorator).onClose(streamer::close) : 
+                    streamer.stream(rendererDecorator); 
+        }
+    }
+
+    @Override
+    public <T, R> CompletableFuture<R> async(final StreamConfiguration<T> streamConfiguration, final Function<? super Stream<T>, ? extends R> terminalOperation) {
+        return async(streamConfiguration, terminalOperation, executor());
+    }
+
+    @Override
+    public <T, R> CompletableFuture<R> async(
+        final StreamConfiguration<T> streamConfiguration,
+        final Function<? super Stream<T>, ? extends R> terminalOperation,
+        final Executor executor
+    ) {
+        requireNonNull(streamConfiguration);
+        requireNonNull(terminalOperation);
+        requireNonNull(executor);
+        final AsyncResult<R> result = new AsyncResult<>();
+        try {
+            executor.execute(() -> result.run(
+                () -> stream(streamConfiguration, renderer -> new CancellableRenderer(renderer, result.cancellation())),
+                terminalOperation
+            ));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
         }
+        return result;
+    }
+
+    @Override
+    public StreamerCacheStatistics streamerCacheStatistics() {
+        return streamerCache.statistics();
+    }
+
+    @Override
+    public Batch batch() {
+        return new StandardBatch(this::stream, executor());
+    }
+
+    private Executor executor() {
+        if (suppliedExecutor != null) {
+            return suppliedExecutor;
+        }
+        synchronized (this) {
+            // The default executor is only created by applications that use async() or batch()
+            if (defaultExecutor == null) {
+                defaultExecutor = AsyncExecutors.createDefault();
+            }
+            return defaultExecutor;
+        }
+    }
+
+    private <T> StreamConfiguration<T> withDefaults(final StreamConfiguration<T> configuration) {
+        StreamConfiguration<T> streamConfiguration = configuration;
+        if (readOnly && !streamConfiguration.readOnly().isPresent()) {
+            streamConfiguration = streamConfiguration.readOnly(true);
+        }
+        if (fetchSize > 0 && !streamConfiguration.fetchSize().isPresent()) {
+            streamConfiguration = streamConfiguration.fetchSize(fetchSize);
+        }
+        if (queryTimeout != null && !streamConfiguration.queryTimeout().isPresent()) {
+            streamConfiguration = streamConfiguration.queryTimeout(queryTimeout);
+        }
+        return streamConfiguration;
+    }
+
+    private <T> Streamer<T> createStreamer(final StreamConfiguration<T> streamConfiguration) {
+        final ResultCache resultCache = resultCaches.get(streamConfiguration.entityClass());
+        return new StandardStreamer<>(streamConfiguration, entityManagerSupplier, resultCache == null
+                ? rendererConfiguration
+                : rendererConfiguration.withResultCache(resultCache));
+    }
+
+    private void invalidateResultCaches(final Class<?> writtenClass) {
+        resultCaches.forEach((entityClass, resultCache) -> {
+            if (entityClass.isAssignableFrom(writtenClass)) {
+                resultCache.invalidate();
+            }
+        });
     }
 
     @Override
     public void resetStreamer(Class<?>... entityClasses) throws UnsupportedOperationException{
+        Arrays.stream(entityClasses)
+                .map(resultCaches::get)
+                .filter(Objects::nonNull)
+                .forEach(ResultCache::invalidate);
         if (!closeEntityManagers) {
             throw new UnsupportedOperationException("An instance of JPAStreamer.of(Supplier<EntityManager>) is not responsible for the lifecycle of the supplied Entity Managers, and thus cannot reset the Entity Managers."); 
         }
-        Arrays.stream(entityClasses)
-                .map(StreamConfiguration::of)
-                .forEach(streamerCache::remove); 
+        final Set<Class<?>> classes = new HashSet<>(Arrays.asList(entityClasses));
+        streamerCache.invalidate(streamConfiguration -> classes.contains(streamConfiguration.entityClass()));
     }
 
     @Override
     public void close() {
-        streamerCache.values().forEach(Streamer::close);
+        ResultCacheInvalidator.unsubscribe(writeListener);
+        streamerCache.close();
+        synchronized (this) {
+            if (defaultExecutor != null) {
+                defaultExecutor.shutdown();
+            }
+        }
         analyticsReporter.stop();
         closeHandler.run(); 
     }
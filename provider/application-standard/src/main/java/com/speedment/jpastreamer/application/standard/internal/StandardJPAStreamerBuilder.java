@@ -14,11 +14,16 @@ package com.speedment.jpastreamer.application.standard.internal;
 
 import com.speedment.jpastreamer.application.JPAStreamer;
 import com.speedment.jpastreamer.application.JPAStreamerBuilder;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
@@ -33,6 +38,22 @@ public final class StandardJPAStreamerBuilder implements JPAStreamerBuilder {
 
     private final boolean closeEntityManagers;
 
+    private final Map<Class<?>, ResultCacheSpec> resultCaches = new HashMap<>();
+
+    private boolean readOnly;
+
+    private int fetchSize;
+
+    private Duration queryTimeout;
+
+    private Executor executor;
+
+    private int streamerCacheSize = StreamerCache.DEFAULT_MAXIMUM_SIZE;
+
+    private Duration streamerIdleTime = StreamerCache.DEFAULT_MAXIMUM_IDLE_TIME;
+
+    private RendererConfiguration rendererConfiguration = RendererConfiguration.defaults();
+
     public StandardJPAStreamerBuilder(final String persistenceUnitName) {
         requireNonNull(persistenceUnitName);
         EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName);
@@ -57,9 +78,130 @@ public final class StandardJPAStreamerBuilder implements JPAStreamerBuilder {
         this.closeEntityManagers = false; 
     }
 
+    @Override
+    public JPAStreamerBuilder withResultCache(final Class<?> entityClass, final long maximumSize, final Duration timeToLive) {
+        requireNonNull(entityClass);
+        requireNonNull(timeToLive);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("The time to live must be positive: " + timeToLive);
+        }
+        resultCaches.put(entityClass, new ResultCacheSpec(maximumSize, timeToLive));
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withReadOnly(final boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withFetchSize(final int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("The fetch size must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withQueryTimeout(final Duration timeout) {
+        requireNonNull(timeout);
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("The query timeout must be positive: " + timeout);
+        }
+        this.queryTimeout = timeout;
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withEntityManagerPool(final int maximumSize, final Duration leaseTimeout) {
+        this.rendererConfiguration = rendererConfiguration.withPool(maximumSize, leaseTimeout);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withClearInterval(final int rows) {
+        this.rendererConfiguration = rendererConfiguration.withClearInterval(rows);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withPrefetch(final int rows) {
+        this.rendererConfiguration = rendererConfiguration.withPrefetch(rows);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withPartitions(final int partitions) {
+        this.rendererConfiguration = rendererConfiguration.withPartitions(partitions);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withCancelOnClose(final boolean cancelOnClose) {
+        this.rendererConfiguration = rendererConfiguration.withCancelOnClose(cancelOnClose);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withServerSideCursors(final boolean serverSideCursors) {
+        this.rendererConfiguration = rendererConfiguration.withServerSideCursors(serverSideCursors);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withInChunkSize(final int chunkSize) {
+        this.rendererConfiguration = rendererConfiguration.withInChunkSize(chunkSize);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withExecutor(final Executor executor) {
+        this.executor = requireNonNull(executor);
+        return this;
+    }
+
+    @Override
+    public JPAStreamerBuilder withStreamerCache(final int maximumSize, final Duration maximumIdleTime) {
+        requireNonNull(maximumIdleTime);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        if (maximumIdleTime.isNegative() || maximumIdleTime.isZero()) {
+            throw new IllegalArgumentException("The maximum idle time must be positive: " + maximumIdleTime);
+        }
+        this.streamerCacheSize = maximumSize;
+        this.streamerIdleTime = maximumIdleTime;
+        return this;
+    }
+
     @Override
     public JPAStreamer build() {
-        return new StandardJPAStreamer(entityManagerSupplier, closeHandler, demoMode, closeEntityManagers);
+        return new StandardJPAStreamer(entityManagerSupplier, closeHandler, demoMode, closeEntityManagers, resultCaches, readOnly, fetchSize, queryTimeout, executor,
+            streamerCacheSize, streamerIdleTime, rendererConfiguration);
+    }
+
+    static final class ResultCacheSpec {
+
+        private final long maximumSize;
+        private final Duration timeToLive;
+
+        private ResultCacheSpec(final long maximumSize, final Duration timeToLive) {
+            this.maximumSize = maximumSize;
+            this.timeToLive = timeToLive;
+        }
+
+        long maximumSize() {
+            return maximumSize;
+        }
+
+        Duration timeToLive() {
+            return timeToLive;
+        }
     }
 
 }
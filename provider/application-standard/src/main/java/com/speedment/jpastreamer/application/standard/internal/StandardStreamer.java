@@ -17,6 +17,7 @@ import static java.util.Objects.requireNonNull;
 import com.speedment.jpastreamer.autoclose.AutoCloseFactory;
 import com.speedment.jpastreamer.builder.BuilderFactory;
 import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 import com.speedment.jpastreamer.renderer.RendererFactory;
 import com.speedment.jpastreamer.rootfactory.RootFactory;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
@@ -25,6 +26,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.ServiceLoader;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 final class StandardStreamer<T> implements Streamer<T> {
@@ -47,6 +49,16 @@ final class StandardStreamer<T> implements Streamer<T> {
                 .createRenderer(entityManagerSupplier);
     }
 
+    StandardStreamer(final StreamConfiguration<T> streamConfiguration, final Supplier<EntityManager> entityManagerSupplier, final RendererConfiguration rendererConfiguration) {
+        this.streamConfiguration = requireNonNull(streamConfiguration);
+        requireNonNull(entityManagerSupplier);
+        requireNonNull(rendererConfiguration);
+        this.builderFactory = RootFactory.getOrThrow(BuilderFactory.class, ServiceLoader::load);
+        this.autoCloseFactory = RootFactory.getOrThrow(AutoCloseFactory.class, ServiceLoader::load);
+        this.renderer = RootFactory.getOrThrow(RendererFactory.class, ServiceLoader::load)
+                .createRenderer(entityManagerSupplier, rendererConfiguration);
+    }
+
     StandardStreamer(final StreamConfiguration<T> streamConfiguration, final EntityManager entityManager) {
         this.streamConfiguration = requireNonNull(streamConfiguration);
         requireNonNull(entityManager);
@@ -61,6 +73,12 @@ final class StandardStreamer<T> implements Streamer<T> {
         return autoCloseFactory.createAutoCloseStream(builderFactory.createBuilder(streamConfiguration, renderer));
     }
 
+    @Override
+    public Stream<T> stream(final UnaryOperator<Renderer> rendererDecorator) {
+        requireNonNull(rendererDecorator);
+        return autoCloseFactory.createAutoCloseStream(builderFactory.createBuilder(streamConfiguration, rendererDecorator.apply(renderer)));
+    }
+
     @Override
     public void close() {
         //System.out.println("Closing Streamer<" + entityClass.getSimpleName() + ">");
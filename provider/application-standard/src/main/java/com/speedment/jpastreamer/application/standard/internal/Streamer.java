@@ -12,11 +12,16 @@
  */
 package com.speedment.jpastreamer.application.standard.internal;
 
+import com.speedment.jpastreamer.renderer.Renderer;
+
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 interface Streamer<E> {
 
     Stream<E> stream();
 
+    Stream<E> stream(UnaryOperator<Renderer> rendererDecorator);
+
     void close();
 }
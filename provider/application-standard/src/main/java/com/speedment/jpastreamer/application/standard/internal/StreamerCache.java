@@ -0,0 +1,281 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.application.StreamerCacheStatistics;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A cache of the streamers of stream configurations that is bounded by size and
+ * by idle time. When the cache is full, the least recently used streamer is
+ * evicted.
+ * <p>
+ * A streamer is only closed once all streams it has created are closed, as a
+ * stream renders its query when its terminal operation is invoked. Closing an
+ * evicted streamer closes its {@code EntityManager}s.
+ */
+final class StreamerCache {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 64;
+    static final Duration DEFAULT_MAXIMUM_IDLE_TIME = Duration.ofMinutes(10);
+
+    private final int maximumSize;
+    private final long maximumIdleNanos;
+
+    // Guarded by this
+    private final LinkedHashMap<StreamConfiguration<?>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    StreamerCache(final int maximumSize, final Duration maximumIdleTime) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        if (maximumIdleTime.isNegative() || maximumIdleTime.isZero()) {
+            throw new IllegalArgumentException("The maximum idle time must be positive: " + maximumIdleTime);
+        }
+        this.maximumSize = maximumSize;
+        this.maximumIdleNanos = maximumIdleTime.toNanos();
+    }
+
+    /**
+     * Returns a new stream of the cached streamer of the provided
+     * {@code streamConfiguration}, creating the streamer if it is not cached.
+     * The streamer is created without holding the lock of the cache; if several
+     * threads create a streamer of the same configuration concurrently, the first
+     * one to finish is cached and the others are closed.
+     *
+     * @param streamConfiguration to stream
+     * @param streamerFactory     that creates the streamer of a configuration
+     * @param rendererDecorator   to decorate the renderer of the stream with
+     * @param <T>                 the element type
+     * @return a new stream of the cached streamer of the provided {@code streamConfiguration}
+     */
+    @SuppressWarnings("unchecked")
+    <T> Stream<T> stream(
+        final StreamConfiguration<T> streamConfiguration,
+        final Function<StreamConfiguration<T>, Streamer<T>> streamerFactory,
+        final UnaryOperator<Renderer> rendererDecorator
+    ) {
+        requireNonNull(streamConfiguration);
+        requireNonNull(streamerFactory);
+        requireNonNull(rendererDecorator);
+
+        final List<Entry> evicted = new ArrayList<>();
+        final long now = System.nanoTime();
+        Entry entry;
+        synchronized (this) {
+            expire(now, evicted);
+
+            entry = entries.get(streamConfiguration);
+            if (entry == null) {
+                misses++;
+            } else {
+                hits++;
+                entry.lastAccess = now;
+                entry.acquire();
+            }
+        }
+
+        if (entry == null) {
+            // The streamer is created without holding the lock, as creating it opens an EntityManager
+            final Streamer<T> created = streamerFactory.apply(streamConfiguration);
+            final boolean published;
+            synchronized (this) {
+                entry = entries.get(streamConfiguration);
+                published = entry == null;
+                if (published) {
+                    entry = new Entry(created);
+                    entries.put(streamConfiguration, entry);
+                    evictEldest(evicted);
+                }
+                entry.lastAccess = now;
+                entry.acquire();
+            }
+            if (!published) {
+                // Another thread cached a streamer of the configuration first
+                created.close();
+            }
+        }
+        evicted.forEach(Entry::evict);
+
+        final Stream<T> stream;
+        try {
+            stream = ((Streamer<T>) entry.streamer).stream(rendererDecorator);
+        } catch (RuntimeException e) {
+            entry.release();
+            throw e;
+        }
+        return stream.onClose(entry::release);
+    }
+
+    /**
+     * Removes the streamers of the stream configurations that match the provided
+     * {@code predicate}, closing them once their streams are closed.
+     *
+     * @param predicate to match the stream configurations with
+     */
+    void invalidate(final Predicate<? super StreamConfiguration<?>> predicate) {
+        requireNonNull(predicate);
+        final List<Entry> invalidated = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Map.Entry<StreamConfiguration<?>, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<StreamConfiguration<?>, Entry> entry = iterator.next();
+                if (predicate.test(entry.getKey())) {
+                    invalidated.add(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        invalidated.forEach(Entry::evict);
+    }
+
+    /**
+     * Removes and closes all streamers.
+     */
+    void close() {
+        final List<Entry> closed;
+        synchronized (this) {
+            closed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        closed.forEach(entry -> entry.streamer.close());
+    }
+
+    synchronized StreamerCacheStatistics statistics() {
+        return new Statistics(hits, misses, evictions, entries.size());
+    }
+
+    // Guarded by this
+    private void expire(final long now, final List<Entry> evicted) {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            // Entries are in access order, so the remaining entries are not idle
+            if (now - entry.lastAccess <= maximumIdleNanos) {
+                return;
+            }
+            evicted.add(entry);
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    // Guarded by this
+    private void evictEldest(final List<Entry> evicted) {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maximumSize) {
+            evicted.add(iterator.next());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Streamer<?> streamer;
+
+        // Guarded by the cache
+        private long lastAccess;
+
+        // Guarded by this
+        private int streams;
+        private boolean evicted;
+
+        private Entry(final Streamer<?> streamer) {
+            this.streamer = streamer;
+        }
+
+        private synchronized void acquire() {
+            streams++;
+        }
+
+        private void release() {
+            final boolean close;
+            synchronized (this) {
+                streams--;
+                close = evicted && streams == 0;
+            }
+            if (close) {
+                streamer.close();
+            }
+        }
+
+        private void evict() {
+            final boolean close;
+            synchronized (this) {
+                evicted = true;
+                close = streams == 0;
+            }
+            if (close) {
+                streamer.close();
+            }
+        }
+    }
+
+    private static final class Statistics implements StreamerCacheStatistics {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        private Statistics(final long hits, final long misses, final long evictions, final int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        @Override
+        public long hitCount() {
+            return hits;
+        }
+
+        @Override
+        public long missCount() {
+            return misses;
+        }
+
+        @Override
+        public long evictionCount() {
+            return evictions;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "StreamerCacheStatistics{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size + "}";
+        }
+    }
+}
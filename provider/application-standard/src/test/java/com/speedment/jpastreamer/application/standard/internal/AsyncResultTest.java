@@ -0,0 +1,77 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+final class AsyncResultTest {
+
+    @Test
+    void cancelCancelsStatements() throws InterruptedException {
+        final AsyncResult<Long> result = new AsyncResult<>();
+        final CountDownLatch rendered = new CountDownLatch(1);
+        final CountDownLatch statementCancelled = new CountDownLatch(1);
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+
+        final Thread worker = new Thread(() -> result.run(
+            () -> {
+                // A renderer registers the cancellation of the statement of the stream
+                final Runnable deregistration = result.cancellation().onCancel(statementCancelled::countDown);
+                rendered.countDown();
+                return Stream.generate(() -> {
+                    try {
+                        statementCancelled.await();
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    return 1;
+                }).limit(1).onClose(() -> {
+                    deregistration.run();
+                    closed.set(true);
+                });
+            },
+            Stream::count
+        ));
+        worker.start();
+
+        assertTrue(rendered.await(10, TimeUnit.SECONDS));
+        assertTrue(result.cancel(true));
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(0, statementCancelled.getCount());
+        assertTrue(result.cancellation().isCancelled());
+        assertTrue(closed.get());
+        assertFalse(interrupted.get());
+        assertFalse(worker.isAlive());
+    }
+
+    @Test
+    void completedResultIsNotCancelled() {
+        final AsyncResult<Long> result = new AsyncResult<>();
+        result.run(() -> Stream.of(1, 2, 3), Stream::count);
+
+        assertFalse(result.cancel(true));
+        assertFalse(result.cancellation().isCancelled());
+        assertEquals(3, result.join().longValue());
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.speedment.jpastreamer.builder.BuilderFactory;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.renderer.RenderResult;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.rootfactory.RootFactory;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+
+final class StandardBatchTest {
+
+    private static final List<String> FILMS = Arrays.asList("Alien", "Brazil", "Casablanca");
+
+    private final BuilderFactory builderFactory = RootFactory.getOrThrow(BuilderFactory.class, ServiceLoader::load);
+
+    @Test
+    void countsAreMerged() {
+        final RecordingRenderer renderer = new RecordingRenderer(pipelines -> {
+            final Map<Pipeline<?>, Long> counts = new IdentityHashMap<>();
+            pipelines.keySet().forEach(pipeline -> counts.put(pipeline, 10L + pipeline.intermediateOperations().size()));
+            return counts;
+        });
+        final StandardBatch batch = batch(renderer, Runnable::run);
+
+        final CompletableFuture<Long> all = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        final CompletableFuture<Long> filtered = batch.add(StreamConfiguration.of(String.class), s -> s.filter(title -> title.startsWith("A")).count());
+        final CompletableFuture<List<String>> titles = batch.add(StreamConfiguration.of(String.class), s -> s.collect(toList()));
+        batch.execute().join();
+
+        assertEquals(1, renderer.renderCounts.get());
+        assertEquals(Collections.singletonList(2), renderer.countedPipelines);
+        assertEquals(10, all.join().longValue());
+        assertEquals(11, filtered.join().longValue());
+        assertEquals(FILMS, titles.join());
+        // Only the operation that is not counted is rendered
+        assertEquals(1, renderer.renders.get());
+    }
+
+    @Test
+    void countsAreMergedOnSingleThreadedExecutor() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final RecordingRenderer renderer = new RecordingRenderer(pipelines -> {
+                final Map<Pipeline<?>, Long> counts = new IdentityHashMap<>();
+                pipelines.keySet().forEach(pipeline -> counts.put(pipeline, 42L));
+                return counts;
+            });
+            final StandardBatch batch = batch(renderer, executor);
+
+            final CompletableFuture<Long> first = batch.add(StreamConfiguration.of(String.class), Stream::count);
+            final CompletableFuture<Long> second = batch.add(StreamConfiguration.of(String.class), s -> s.skip(1).count());
+            batch.execute().join();
+
+            assertEquals(1, renderer.renderCounts.get());
+            assertEquals(42, first.join().longValue());
+            assertEquals(42, second.join().longValue());
+            assertEquals(0, renderer.renders.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void uncountedPipelinesAreRenderedIndividually() {
+        final RecordingRenderer renderer = new RecordingRenderer(pipelines -> Collections.emptyMap());
+        final StandardBatch batch = batch(renderer, Runnable::run);
+
+        final CompletableFuture<Long> first = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        final CompletableFuture<Long> second = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        batch.execute().join();
+
+        assertEquals(1, renderer.renderCounts.get());
+        assertEquals(FILMS.size(), first.join().longValue());
+        assertEquals(FILMS.size(), second.join().longValue());
+        assertEquals(2, renderer.renders.get());
+    }
+
+    @Test
+    void failedCountsAreRenderedIndividually() {
+        final RecordingRenderer renderer = new RecordingRenderer(pipelines -> {
+            throw new IllegalStateException();
+        });
+        final StandardBatch batch = batch(renderer, Runnable::run);
+
+        final CompletableFuture<Long> first = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        final CompletableFuture<Long> second = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        batch.execute().join();
+
+        assertEquals(FILMS.size(), first.join().longValue());
+        assertEquals(FILMS.size(), second.join().longValue());
+        assertEquals(2, renderer.renders.get());
+    }
+
+    @Test
+    void singleCountIsNotMerged() {
+        final RecordingRenderer renderer = new RecordingRenderer(pipelines -> {
+            throw new AssertionError();
+        });
+        final StandardBatch batch = batch(renderer, Runnable::run);
+
+        final CompletableFuture<Long> count = batch.add(StreamConfiguration.of(String.class), Stream::count);
+        batch.execute().join();
+
+        assertEquals(0, renderer.renderCounts.get());
+        assertEquals(FILMS.size(), count.join().longValue());
+    }
+
+    @Test
+    void failedOperationCompletesExceptionally() {
+        final RecordingRenderer renderer = new RecordingRenderer(pipelines -> Collections.emptyMap());
+        final StandardBatch batch = batch(renderer, Runnable::run);
+
+        final CompletableFuture<Long> failed = batch.add(StreamConfiguration.of(String.class), s -> {
+            throw new IllegalArgumentException();
+        });
+        final CompletableFuture<Long> count = batch.add(StreamConfiguration.of(String.class), Stream::count);
+
+        assertTrue(batch.execute().isCompletedExceptionally());
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(FILMS.size(), count.join().longValue());
+    }
+
+    private StandardBatch batch(final Renderer renderer, final Executor executor) {
+        return new StandardBatch(new StandardBatch.StreamFactory() {
+            @Override
+            public <T> Stream<T> stream(final StreamConfiguration<T> streamConfiguration, final UnaryOperator<Renderer> rendererDecorator) {
+                return builderFactory.createBuilder(streamConfiguration, rendererDecorator.apply(renderer));
+            }
+        }, executor);
+    }
+
+    private static final class RecordingRenderer implements Renderer {
+
+        private final Function<Map<Pipeline<?>, StreamConfiguration<?>>, Map<Pipeline<?>, Long>> counter;
+        private final AtomicInteger renders = new AtomicInteger();
+        private final AtomicInteger renderCounts = new AtomicInteger();
+        private final List<Integer> countedPipelines = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingRenderer(final Function<Map<Pipeline<?>, StreamConfiguration<?>>, Map<Pipeline<?>, Long>> counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+            renders.incrementAndGet();
+            return new RenderResult<E, T, S>() {
+                @Override
+                public Class<E> root() {
+                    return pipeline.root();
+                }
+
+                @Override
+                public S stream() {
+                    // Counts are computed by the database
+                    return pipeline.terminatingOperation().type() == TerminalOperationType.COUNT
+                        ? (S) Stream.of((long) FILMS.size())
+                        : (S) FILMS.stream();
+                }
+
+                @Override
+                public TerminalOperation<?, ?> terminalOperation() {
+                    return pipeline.terminatingOperation();
+                }
+            };
+        }
+
+        @Override
+        public Map<Pipeline<?>, Long> renderCounts(final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+            renderCounts.incrementAndGet();
+            countedPipelines.add(pipelines.size());
+            return counter.apply(pipelines);
+        }
+
+        @Override
+        public void close() {
+            // Do nothing
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.application.standard.internal;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.speedment.jpastreamer.application.StreamerCacheStatistics;
+import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+final class StreamerCacheTest {
+
+    private final StreamerCache cache = new StreamerCache(StreamerCache.DEFAULT_MAXIMUM_SIZE, StreamerCache.DEFAULT_MAXIMUM_IDLE_TIME);
+
+    @Test
+    void streamerIsCached() {
+        final TestStreamer streamer = new TestStreamer("first");
+
+        assertEquals(Collections.singletonList("first"), stream(configuration -> streamer));
+        assertEquals(Collections.singletonList("first"), stream(configuration -> new TestStreamer("second")));
+
+        final StreamerCacheStatistics statistics = cache.statistics();
+        assertEquals(1, statistics.hitCount());
+        assertEquals(1, statistics.missCount());
+    }
+
+    @Test
+    void streamerIsCreatedWithoutHoldingTheLock() throws Exception {
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch created = new CountDownLatch(1);
+        final TestStreamer slow = new TestStreamer("slow");
+        final TestStreamer fast = new TestStreamer("fast");
+
+        final CompletableFuture<List<String>> slowStream = CompletableFuture.supplyAsync(() -> stream(configuration -> {
+            creating.countDown();
+            await(created);
+            return slow;
+        }));
+        assertTrue(creating.await(10, TimeUnit.SECONDS));
+
+        // Another thread is not blocked while the slow streamer is created
+        assertEquals(Collections.singletonList("fast"), stream(configuration -> fast));
+        created.countDown();
+
+        // The streamer that was cached first is used and the other one is closed
+        assertEquals(Collections.singletonList("fast"), slowStream.get(10, TimeUnit.SECONDS));
+        assertTrue(slow.closed);
+        assertFalse(fast.closed);
+        assertEquals(1, cache.statistics().size());
+    }
+
+    private List<String> stream(final Function<StreamConfiguration<String>, Streamer<String>> streamerFactory) {
+        try (Stream<String> stream = cache.stream(StreamConfiguration.of(String.class), streamerFactory, UnaryOperator.identity())) {
+            return stream.collect(toList());
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class TestStreamer implements Streamer<String> {
+
+        private final String name;
+        private volatile boolean closed;
+
+        private TestStreamer(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Stream<String> stream() {
+            return Stream.of(name);
+        }
+
+        @Override
+        public Stream<String> stream(final UnaryOperator<Renderer> rendererDecorator) {
+            return stream();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -15,11 +15,14 @@ package com.speedment.jpastreamer.builder.standard.internal;
 import com.speedment.jpastreamer.pipeline.Pipeline;
 import com.speedment.jpastreamer.renderer.RenderResult;
 import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 import com.speedment.jpastreamer.renderer.RendererFactory;
+import com.speedment.jpastreamer.renderer.ResultCache;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.BaseStream;
@@ -47,6 +50,16 @@ public final class MockRendererFactory implements RendererFactory {
         return new MockRenderer(); 
     }
 
+    @Override
+    public Renderer createRenderer(Supplier<EntityManager> entityManagerSupplier, RendererConfiguration configuration) {
+        return new MockRenderer();
+    }
+
+    @Override
+    public ResultCache createResultCache(long maximumSize, Duration timeToLive) {
+        return new MockResultCache();
+    }
+
     private final class MockRenderer implements Renderer {
 
         @Override
@@ -62,4 +75,17 @@ public final class MockRendererFactory implements RendererFactory {
         }
     }
 
+    private static final class MockResultCache implements ResultCache {
+
+        @Override
+        public void invalidate() {
+            // Do nothing
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+    }
+
 }
@@ -12,17 +12,15 @@
  */
 package com.speedment.jpastreamer.builder.standard.internal;
 
-import com.speedment.jpastreamer.field.Field;
 import com.speedment.jpastreamer.pipeline.Pipeline;
 import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
 import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
-import com.speedment.jpastreamer.projection.Projection;
 import com.speedment.jpastreamer.renderer.RenderResult;
 import com.speedment.jpastreamer.renderer.Renderer;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
-import javax.persistence.criteria.JoinType;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiPredicate;
@@ -33,7 +31,9 @@ import java.util.stream.*;
 
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 abstract class BaseStreamBuilderTest<T, S extends BaseStream<T, S>> {
 
@@ -49,7 +49,7 @@ abstract class BaseStreamBuilderTest<T, S extends BaseStream<T, S>> {
     @BeforeEach
     void beforeEach() {
         renderer = new MockRenderer();
-        streamConfiguration = new MockStreamConfiguration<>(String.class);
+        streamConfiguration = StreamConfiguration.of(String.class);
         baseState = new BaseBuilderState<>(InjectedFactories.INSTANCE, streamConfiguration, renderer);
         builder = new StreamBuilder<>(baseState);
         closeCounter = new AtomicInteger();
@@ -104,6 +104,14 @@ abstract class BaseStreamBuilderTest<T, S extends BaseStream<T, S>> {
         assertThrows(IllegalStateException.class, () -> count(actualStream));
     }
 
+    @Test
+    void parallelAndSequential() {
+        final S s = unboxed(builder);
+        assertFalse(s.isParallel());
+        assertTrue(s.parallel().isParallel());
+        assertFalse(s.sequential().isParallel());
+    }
+
     boolean equalsSummaryStatistics(final IntSummaryStatistics a, final IntSummaryStatistics b) {
         return Stream.<Function<IntSummaryStatistics, Number>>of(
                 IntSummaryStatistics::getCount,
@@ -196,40 +204,4 @@ abstract class BaseStreamBuilderTest<T, S extends BaseStream<T, S>> {
         }
     }
 
-    private static final class MockStreamConfiguration<T> implements StreamConfiguration<T> {
-
-        private final Class<T> entityClass;
-        private final Projection<T> projection;
-
-        private MockStreamConfiguration(Class<T> entityClass) {
-            this.entityClass = entityClass;
-            this.projection = null;
-        }
-
-        @Override
-        public Class<T> entityClass() {
-            return entityClass;
-        }
-
-        @Override
-        public Set<JoinConfiguration<T>> joins() {
-            return new HashSet<>();
-        }
-
-        @Override
-        public StreamConfiguration<T> joining(Field<T> field, JoinType joinType) {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public Optional<Projection<T>> selections() {
-            return Optional.ofNullable(projection);
-        }
-
-        @Override
-        public StreamConfiguration<T> selecting(Projection<T> projection) {
-            throw new UnsupportedOperationException();
-        }
-    }
-
 }
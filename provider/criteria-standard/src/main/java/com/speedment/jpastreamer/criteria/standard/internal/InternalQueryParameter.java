@@ -12,18 +12,34 @@
  */
 package com.speedment.jpastreamer.criteria.standard.internal;
 
+import static java.util.Objects.requireNonNull;
+
 import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
 
 import javax.persistence.criteria.ParameterExpression;
+import java.util.Optional;
+import java.util.function.Function;
 
 public class InternalQueryParameter<T> implements QueryParameter<T> {
 
     private final ParameterExpression<T> parameterExpression;
     private final T value;
+    private final FieldPredicate<?> source;
+    private final Function<FieldPredicate<?>, T> valueExtractor;
 
     public InternalQueryParameter(ParameterExpression<T> parameterExpression, T value) {
         this.parameterExpression = parameterExpression;
         this.value = value;
+        this.source = null;
+        this.valueExtractor = null;
+    }
+
+    public InternalQueryParameter(ParameterExpression<T> parameterExpression, FieldPredicate<?> source, Function<FieldPredicate<?>, T> valueExtractor) {
+        this.parameterExpression = parameterExpression;
+        this.source = requireNonNull(source);
+        this.valueExtractor = requireNonNull(valueExtractor);
+        this.value = valueExtractor.apply(source);
     }
     
     @Override
@@ -35,4 +51,17 @@ public class InternalQueryParameter<T> implements QueryParameter<T> {
     public T getValue() {
         return value;
     }
+
+    @Override
+    public Optional<FieldPredicate<?>> getSource() {
+        return Optional.ofNullable(source);
+    }
+
+    @Override
+    public T getValue(FieldPredicate<?> predicate) {
+        if (valueExtractor == null) {
+            return QueryParameter.super.getValue(predicate);
+        }
+        return valueExtractor.apply(requireNonNull(predicate));
+    }
 }
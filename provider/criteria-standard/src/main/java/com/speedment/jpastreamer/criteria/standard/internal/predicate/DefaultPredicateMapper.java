@@ -32,10 +32,17 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 
 public final class DefaultPredicateMapper implements PredicateMapper {
+
+    /**
+     * The maximum number of parameters of a single {@code IN} list.
+     */
+    static final int MAX_IN_LIST_SIZE = 512;
     
     @Override
     public <ENTITY> PredicateMapping mapPredicate(
@@ -283,6 +290,18 @@ public final class DefaultPredicateMapper implements PredicateMapper {
         );
     }
 
+    /**
+     * Maps an {@code IN} predicate to a parameterized {@code IN} list.
+     * <p>
+     * The number of parameters is padded to the next power of two by repeating
+     * the last value, which does not change the result. This way a small number
+     * of distinct statements covers all set sizes so that the query plan cache
+     * of the JPA provider and the statement cache of the database can be reused.
+     * <p>
+     * Sets larger than {@link #MAX_IN_LIST_SIZE} are split into several
+     * {@code IN} lists combined using {@code OR}, as some databases limit the
+     * number of elements of a single list (e.g. 1000 for Oracle).
+     */
     private <ENTITY> PredicateMapping in(
         final Criteria<ENTITY, ?> criteria,
         final FieldPredicate<ENTITY> fieldPredicate
@@ -298,16 +317,63 @@ public final class DefaultPredicateMapper implements PredicateMapper {
 
         final Set<?> set = (Set<?>) value;
 
-        return new PredicateMapping(criteria.getRoot().get(column).in(set));
+        if (set.isEmpty()) {
+            return new PredicateMapping(criteria.getBuilder().disjunction());
+        }
+
+        final Path<?> path = criteria.getRoot().get(column);
+        @SuppressWarnings("unchecked")
+        final Class<Object> javaType = (Class<Object>) path.getJavaType();
+        final Object[] values = set.toArray();
+        final InValues inValues = new InValues(fieldPredicate, values);
+
+        final List<Predicate> lists = new ArrayList<>();
+        final List<QueryParameter<?>> queryParameters = new ArrayList<>();
+
+        for (int from = 0; from < values.length; from += MAX_IN_LIST_SIZE) {
+            final int to = Math.min(from + MAX_IN_LIST_SIZE, values.length);
+            final ParameterExpression<?>[] parameters = new ParameterExpression<?>[bucketSize(to - from)];
+
+            for (int i = 0; i < parameters.length; i++) {
+                final ParameterExpression<Object> parameter = criteria.getBuilder().parameter(javaType);
+
+                final int index = Math.min(from + i, to - 1);
+
+                parameters[i] = parameter;
+                queryParameters.add(new InternalQueryParameter<>(parameter, fieldPredicate, predicate -> inValues.get(predicate)[index]));
+            }
+
+            lists.add(path.in(parameters));
+        }
+
+        final Predicate predicate = lists.size() == 1
+            ? lists.get(0)
+            : criteria.getBuilder().or(lists.toArray(new Predicate[0]));
+
+        return new PredicateMapping(predicate, queryParameters.toArray(new QueryParameter<?>[0]));
     }
 
     private <ENTITY> PredicateMapping notIn(
         final Criteria<ENTITY, ?> criteria,
         final FieldPredicate<ENTITY> fieldPredicate
     ) {
-        final Predicate predicate = in(criteria, fieldPredicate).getPredicate().not();
+        final PredicateMapping inMapping = in(criteria, fieldPredicate);
 
-        return new PredicateMapping(predicate);
+        final Predicate predicate = inMapping.getPredicate().not();
+
+        return new PredicateMapping(predicate, inMapping.getQueryParameters().toArray(new QueryParameter<?>[0]));
+    }
+
+    /**
+     * Returns the number of parameters used to render an {@code IN} list
+     * of the provided {@code size}, which is the smallest power of two that
+     * is greater than or equal to the provided {@code size}.
+     *
+     * @param size of the {@code IN} list
+     * @return the number of parameters used to render an {@code IN} list
+     */
+    static int bucketSize(final int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
     }
 
     @SuppressWarnings("unchecked")
@@ -598,10 +664,9 @@ public final class DefaultPredicateMapper implements PredicateMapper {
         final Object value = Cast.castOrFail(fieldPredicate, HasArg0.class).get0();
 
         if (clazz.isInstance(value)) {
-            final S val = parameterizedPredicate.getValueMapper().apply((S) value);
-
             final ParameterExpression<S> parameter = criteria.getBuilder().parameter(clazz);
-            final QueryParameter<S> queryParameter = new InternalQueryParameter<>(parameter, val);
+            final QueryParameter<S> queryParameter = new InternalQueryParameter<>(parameter, fieldPredicate,
+                predicate -> parameterizedPredicate.getValueMapper().apply((S) arg0(predicate)));
 
             return new PredicateMapping(parameterizedPredicate.getParameterMapper()
                 .apply(column, parameter), queryParameter);
@@ -621,30 +686,27 @@ public final class DefaultPredicateMapper implements PredicateMapper {
         final Object value = Cast.castOrFail(fieldPredicate, HasArg0.class).get0();
 
         if (value instanceof Number) {
-            final Number val = parameterizedNumberPredicate.getValueMapper().apply((Number) value);
-
             final ParameterExpression<Number> numberParameter = criteria.getBuilder().parameter(Number.class);
-            final QueryParameter<Number> queryParameter = new InternalQueryParameter<>(numberParameter, val);
+            final QueryParameter<Number> queryParameter = new InternalQueryParameter<>(numberParameter, fieldPredicate,
+                predicate -> parameterizedNumberPredicate.getValueMapper().apply((Number) arg0(predicate)));
 
             return new PredicateMapping(parameterizedNumberPredicate.getParameterMapper()
                 .apply(column, numberParameter), queryParameter);
         }
 
         if (value instanceof Character) {
-            final Number val = parameterizedNumberPredicate.getValueMapper().apply((int) (char) value);
-
             final ParameterExpression<Number> numberParameter = criteria.getBuilder().parameter(Number.class);
-            final QueryParameter<Number> queryParameter = new InternalQueryParameter<>(numberParameter, val);
+            final QueryParameter<Number> queryParameter = new InternalQueryParameter<>(numberParameter, fieldPredicate,
+                predicate -> parameterizedNumberPredicate.getValueMapper().apply((int) (char) arg0(predicate)));
 
             return new PredicateMapping(parameterizedNumberPredicate.getParameterMapper()
                 .apply(column, numberParameter), queryParameter);
         }
 
         if (value instanceof Comparable) {
-            final Comparable val = parameterizedComparablePredicate.getValueMapper().apply((Comparable) value);
-
             final ParameterExpression<Comparable> comparableParameter = criteria.getBuilder().parameter(Comparable.class);
-            final QueryParameter<Comparable> queryParameter = new InternalQueryParameter<>(comparableParameter, val);
+            final QueryParameter<Comparable> queryParameter = new InternalQueryParameter<>(comparableParameter, fieldPredicate,
+                predicate -> parameterizedComparablePredicate.getValueMapper().apply((Comparable) arg0(predicate)));
 
             return new PredicateMapping(parameterizedComparablePredicate.getParameterMapper()
                 .apply(column, comparableParameter), queryParameter);
@@ -671,8 +733,10 @@ public final class DefaultPredicateMapper implements PredicateMapper {
             final ParameterExpression<Comparable> lowerBoundParameter = criteria.getBuilder().parameter(Comparable.class);
             final ParameterExpression<Comparable> upperBoundParameter = criteria.getBuilder().parameter(Comparable.class);
 
-            final QueryParameter<Comparable> lowerBoundQueryParameter = new InternalQueryParameter<>(lowerBoundParameter, (Comparable) arg0);
-            final QueryParameter<Comparable> upperBoundQueryParameter = new InternalQueryParameter<>(upperBoundParameter, (Comparable) arg1);
+            final QueryParameter<Comparable> lowerBoundQueryParameter = new InternalQueryParameter<>(lowerBoundParameter, fieldPredicate,
+                predicate -> (Comparable) arg0(predicate));
+            final QueryParameter<Comparable> upperBoundQueryParameter = new InternalQueryParameter<>(upperBoundParameter, fieldPredicate,
+                predicate -> (Comparable) Cast.castOrFail(predicate, HasArg1.class).get1());
 
             return new PredicateMapping(callback.apply(column, new Pair<>(lowerBoundParameter, upperBoundParameter), inclusion), lowerBoundQueryParameter, upperBoundQueryParameter);
         }
@@ -680,6 +744,10 @@ public final class DefaultPredicateMapper implements PredicateMapper {
         throw new JPAStreamerException("Illegal comparison values [" + arg0 + "," + arg1 + "]");
     }
 
+    private static Object arg0(final FieldPredicate<?> fieldPredicate) {
+        return Cast.castOrFail(fieldPredicate, HasArg0.class).get0();
+    }
+
     /*
      * Mapping Helpers - End
      */
@@ -757,6 +825,41 @@ public final class DefaultPredicateMapper implements PredicateMapper {
         }
     }
 
+    /**
+     * The values of the set of an {@code IN} predicate as an array, retaining the
+     * array of the most recently used predicate so that the parameters of an
+     * {@code IN} list do not each have to copy the set.
+     */
+    private static final class InValues {
+
+        private volatile Values last;
+
+        private InValues(final FieldPredicate<?> fieldPredicate, final Object[] array) {
+            this.last = new Values(fieldPredicate, array);
+        }
+
+        private Object[] get(final FieldPredicate<?> fieldPredicate) {
+            final Values values = last;
+            if (values != null && values.predicate == fieldPredicate) {
+                return values.array;
+            }
+
+            final Values created = new Values(fieldPredicate, ((Set<?>) arg0(fieldPredicate)).toArray());
+            last = created;
+            return created.array;
+        }
+
+        private static final class Values {
+            private final FieldPredicate<?> predicate;
+            private final Object[] array;
+
+            private Values(final FieldPredicate<?> predicate, final Object[] array) {
+                this.predicate = predicate;
+                this.array = array;
+            }
+        }
+    }
+
     private static final class Pair<S, T> {
         private final S first;
         private final T second;
@@ -0,0 +1,34 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.criteria.standard.internal.predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+final class DefaultPredicateMapperTest {
+
+    @Test
+    void bucketSize() {
+        assertEquals(1, DefaultPredicateMapper.bucketSize(0));
+        assertEquals(1, DefaultPredicateMapper.bucketSize(1));
+        assertEquals(2, DefaultPredicateMapper.bucketSize(2));
+        assertEquals(4, DefaultPredicateMapper.bucketSize(3));
+        assertEquals(4, DefaultPredicateMapper.bucketSize(4));
+        assertEquals(8, DefaultPredicateMapper.bucketSize(5));
+        assertEquals(1024, DefaultPredicateMapper.bucketSize(1000));
+        assertEquals(1024, DefaultPredicateMapper.bucketSize(1024));
+        assertEquals(2048, DefaultPredicateMapper.bucketSize(1025));
+        assertEquals(DefaultPredicateMapper.MAX_IN_LIST_SIZE, DefaultPredicateMapper.bucketSize(DefaultPredicateMapper.MAX_IN_LIST_SIZE));
+    }
+}
@@ -14,6 +14,7 @@ package com.speedment.jpastreamer.merger.standard.internal.criteria;
 
 import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.DISTINCT;
 import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.FILTER;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.PEEK;
 import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
 import static java.util.Objects.requireNonNull;
 
@@ -35,12 +36,25 @@ import java.util.*;
 
 public final class InternalCriteriaMerger implements CriteriaMerger {
 
+    /**
+     * Operations that do not change the size of the stream in a way that affects
+     * the operations following them, other than what is described by {@link #commutations}.
+     * Any other operation that remains in the pipeline ends the merge cycle.
+     */
+    private static final Set<IntermediateOperationType> TRANSPARENT_OPERATIONS = EnumSet.of(FILTER, SORTED, PEEK);
+
     private final Map<IntermediateOperationType, CriteriaModifier> mergingStrategies = new EnumMap<>(IntermediateOperationType.class);
 
+    /**
+     * For each mergeable operation type, the types of remaining operations that the
+     * operation may be moved in front of without changing the result of the stream.
+     */
+    private final Map<IntermediateOperationType, Set<IntermediateOperationType>> commutations = new EnumMap<>(IntermediateOperationType.class);
+
     public InternalCriteriaMerger() {
-        registerMergingStrategy(FILTER, FilterCriteriaModifier.INSTANCE);
-        registerMergingStrategy(DISTINCT, DistinctCriteriaModifier.INSTANCE);
-        registerMergingStrategy(SORTED, SortedCriteriaModifier.INSTANCE);
+        registerMergingStrategy(FILTER, FilterCriteriaModifier.INSTANCE, EnumSet.of(FILTER, SORTED, PEEK));
+        registerMergingStrategy(DISTINCT, DistinctCriteriaModifier.INSTANCE, EnumSet.of(FILTER, SORTED));
+        registerMergingStrategy(SORTED, SortedCriteriaModifier.INSTANCE, EnumSet.of(FILTER));
     }
 
     @Override
@@ -55,26 +69,37 @@ public final class InternalCriteriaMerger implements CriteriaMerger {
 
         final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
 
+        // Types of the operations that remain in the pipeline in front of the current one
+        final Set<IntermediateOperationType> remaining = EnumSet.noneOf(IntermediateOperationType.class);
+
         for (int i = 0; i < intermediateOperations.size(); i++) {
             final IntermediateOperation<?, ?> operation = intermediateOperations.get(i);
             final IntermediateOperationType operationType = operation.type();
 
-            if (mergingTracker.mergedOperations().contains(operationType)) {
-                continue;
-            }
-
             final CriteriaModifier criteriaModifier = mergingStrategies.get(operationType);
 
-            if (criteriaModifier == null) {
-                continue;
-            }
+            if (criteriaModifier != null
+                && !mergingTracker.mergedOperations().contains(operationType)
+                && commutations.get(operationType).containsAll(remaining)) {
 
-            final IntermediateOperationReference operationReference =
-                    IntermediateOperationReference.createReference(operation, i, intermediateOperations);
+                final IntermediateOperationReference operationReference =
+                        IntermediateOperationReference.createReference(operation, i, intermediateOperations);
 
-            criteriaModifier.modifyCriteria(operationReference, criteria, mergingTracker);
+                criteriaModifier.modifyCriteria(operationReference, criteria, mergingTracker);
+            }
+
+            if (!mergingTracker.forRemoval().contains(i)) {
+                // Operations that remain in the pipeline are applied to the query results,
+                // so later operations may only be merged if they can be moved in front of them
+                if (!TRANSPARENT_OPERATIONS.contains(operationType)) {
+                    break;
+                }
+                remaining.add(operationType);
+            }
         }
 
+        mergingTracker.forReplacement().forEach(intermediateOperations::set);
+
         mergingTracker.forRemoval()
             .stream()
             .sorted(Comparator.reverseOrder())
@@ -83,7 +108,12 @@ public final class InternalCriteriaMerger implements CriteriaMerger {
         return new InternalCriteriaMergeResult<>(pipeline, criteria);
     }
 
-    private void registerMergingStrategy(final IntermediateOperationType operationType, final CriteriaModifier criteriaModifier) {
+    private void registerMergingStrategy(
+        final IntermediateOperationType operationType,
+        final CriteriaModifier criteriaModifier,
+        final Set<IntermediateOperationType> commutativeOperations
+    ) {
         mergingStrategies.put(operationType, criteriaModifier);
+        commutations.put(operationType, commutativeOperations);
     }
 }
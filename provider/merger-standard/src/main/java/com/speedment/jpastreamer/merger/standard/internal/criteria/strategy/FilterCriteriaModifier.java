@@ -17,25 +17,40 @@ import static java.util.Objects.requireNonNull;
 
 import com.speedment.jpastreamer.criteria.Criteria;
 import com.speedment.jpastreamer.criteria.PredicateFactory;
+import com.speedment.jpastreamer.field.predicate.CombinedPredicate;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
 import com.speedment.jpastreamer.field.predicate.SpeedmentPredicate;
 import com.speedment.jpastreamer.merger.standard.internal.reference.IntermediateOperationReference;
 import com.speedment.jpastreamer.merger.standard.internal.tracker.MergingTracker;
 import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
 import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
 import com.speedment.jpastreamer.rootfactory.RootFactory;
 
-import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.ServiceLoader;
-
+import java.util.function.Predicate;
+
+/**
+ * Merges filters into the {@code WHERE} clause of the criteria.
+ * <p>
+ * The predicates of all merged filters are combined using {@code AND}.
+ * If the predicate of a filter is an {@code AND} combination of pushable and
+ * non-pushable predicates, the pushable conjuncts are merged and the filter is
+ * replaced by a filter that only evaluates the residual conjuncts in memory.
+ */
 public enum FilterCriteriaModifier implements CriteriaModifier {
 
     INSTANCE;
 
     private final PredicateFactory predicateFactory;
+    private final IntermediateOperationFactory intermediateOperationFactory;
 
     FilterCriteriaModifier() {
         this.predicateFactory = RootFactory.getOrThrow(PredicateFactory.class, ServiceLoader::load);
+        this.intermediateOperationFactory = RootFactory.getOrThrow(IntermediateOperationFactory.class, ServiceLoader::load);
     }
 
     @Override
@@ -56,16 +71,81 @@ public enum FilterCriteriaModifier implements CriteriaModifier {
             return;
         }
 
-        this.<ENTITY>getPredicate(operation).ifPresent(speedmentPredicate -> {
-            final Predicate predicate = predicateFactory.createPredicate(criteria, speedmentPredicate);
-            criteria.getQuery().where(predicate);
+        this.<ENTITY>getPredicate(operation).ifPresent(filterPredicate -> {
+            final List<Predicate<ENTITY>> pushable = new ArrayList<>();
+            final List<Predicate<ENTITY>> residual = new ArrayList<>();
+
+            split(filterPredicate, pushable, residual);
+
+            if (pushable.isEmpty()) {
+                return;
+            }
+
+            final javax.persistence.criteria.Predicate predicate = predicateFactory.createPredicate(criteria, and(pushable));
+            final javax.persistence.criteria.Predicate restriction = criteria.getQuery().getRestriction();
+
+            // Filters are not marked as merged as every pushable filter is merged, the
+            // predicates of all of them are combined into a single restriction
+            criteria.getQuery().where(restriction == null ? predicate : criteria.getBuilder().and(restriction, predicate));
 
-            mergingTracker.markAsMerged(operationType);
-            mergingTracker.markForRemoval(operationReference.index());
+            if (residual.isEmpty()) {
+                mergingTracker.markForRemoval(operationReference.index());
+            } else {
+                final Predicate<ENTITY> residualPredicate = residual.size() == 1
+                    ? residual.get(0)
+                    : CombinedPredicate.and(new ArrayList<>(residual));
+
+                mergingTracker.markForReplacement(
+                    operationReference.index(),
+                    intermediateOperationFactory.createFilter(residualPredicate)
+                );
+            }
         });
     }
+
+    /**
+     * Splits the provided {@code predicate} into conjuncts that can be pushed to the
+     * database and conjuncts that have to be evaluated in memory, preserving their order.
+     */
+    @SuppressWarnings("unchecked")
+    private <ENTITY> void split(
+        final Predicate<ENTITY> predicate,
+        final List<Predicate<ENTITY>> pushable,
+        final List<Predicate<ENTITY>> residual
+    ) {
+        if (isPushable(predicate)) {
+            pushable.add(predicate);
+        } else if (predicate instanceof CombinedPredicate && ((CombinedPredicate<ENTITY>) predicate).getType() == CombinedPredicate.Type.AND) {
+            ((CombinedPredicate<ENTITY>) predicate).stream()
+                .forEachOrdered(conjunct -> split((Predicate<ENTITY>) conjunct, pushable, residual));
+        } else {
+            residual.add(predicate);
+        }
+    }
+
+    private boolean isPushable(final Predicate<?> predicate) {
+        if (predicate instanceof FieldPredicate) {
+            return true;
+        }
+
+        if (predicate instanceof CombinedPredicate) {
+            return ((CombinedPredicate<?>) predicate).stream().allMatch(this::isPushable);
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <ENTITY> SpeedmentPredicate<ENTITY> and(final List<Predicate<ENTITY>> predicates) {
+        if (predicates.size() == 1) {
+            return (SpeedmentPredicate<ENTITY>) predicates.get(0);
+        }
+
+        return CombinedPredicate.and(new ArrayList<>(predicates));
+    }
+
     @SuppressWarnings("unchecked")
-    private <T> Optional<SpeedmentPredicate<T>> getPredicate(final IntermediateOperation<?, ?> operation) {
+    private <T> Optional<Predicate<T>> getPredicate(final IntermediateOperation<?, ?> operation) {
         final Object[] arguments = operation.arguments();
 
         if (arguments.length != 1) {
@@ -73,7 +153,7 @@ public enum FilterCriteriaModifier implements CriteriaModifier {
         }
 
         if (arguments[0] instanceof SpeedmentPredicate) {
-            return Optional.of((SpeedmentPredicate<T>) arguments[0]);
+            return Optional.of((Predicate<T>) arguments[0]);
         }
 
         return Optional.empty();
@@ -31,6 +31,7 @@ import java.util.Map;
 
 import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.LIMIT;
 import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SKIP;
+import static com.speedment.jpastreamer.pipeline.intermediate.Statement.PRESERVES_SIZE;
 import static java.util.Objects.requireNonNull;
 
 public final class InternalQueryMerger implements QueryMerger {
@@ -55,20 +56,30 @@ public final class InternalQueryMerger implements QueryMerger {
             final IntermediateOperation<?, ?> operation = intermediateOperations.get(i);
             final IntermediateOperationType operationType = operation.type();
 
-            if (mergingTracker.mergedOperations().contains(operationType)) {
+            if (mergingTracker.forRemoval().contains(i)) {
                 continue;
             }
 
             final QueryModifier queryModifier = mergingStrategies.get(operationType);
 
-            if (queryModifier == null) {
-                continue;
+            if (queryModifier == null || mergingTracker.mergedOperations().contains(operationType)) {
+                // Operations that are replayed in-memory may only be skipped over if they
+                // cannot change the number of elements, otherwise a later skip/limit would
+                // be applied to the wrong set of rows
+                if (operationType.statements().contains(PRESERVES_SIZE)) {
+                    continue;
+                }
+                break;
             }
 
             final IntermediateOperationReference operationReference =
                     IntermediateOperationReference.createReference(operation, i, intermediateOperations);
 
             queryModifier.modifyQuery(operationReference, query, mergingTracker);
+
+            if (!mergingTracker.forRemoval().contains(i)) {
+                break;
+            }
         }
 
         mergingTracker.forRemoval()
@@ -0,0 +1,198 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.merger.standard.internal.criteria;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.field.predicate.CombinedPredicate;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.PipelineFactory;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationFactory;
+import com.speedment.jpastreamer.rootfactory.RootFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.Predicate;
+
+final class InternalCriteriaMergerTest {
+
+    private final PipelineFactory pipelineFactory = RootFactory.getOrThrow(PipelineFactory.class, ServiceLoader::load);
+    private final IntermediateOperationFactory intermediateOperationFactory = RootFactory.getOrThrow(IntermediateOperationFactory.class, ServiceLoader::load);
+    private final TerminalOperationFactory terminalOperationFactory = RootFactory.getOrThrow(TerminalOperationFactory.class, ServiceLoader::load);
+
+    private final InternalCriteriaMerger merger = new InternalCriteriaMerger();
+
+    private CriteriaQuery<Film> query;
+    private Criteria<Film, Film> criteria;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        final Root<Film> root = mock(Root.class);
+        when(root.get("title")).thenReturn(mock(Path.class));
+        when(root.get("length")).thenReturn(mock(Path.class));
+        query = mock(CriteriaQuery.class);
+        criteria = mock(Criteria.class);
+        when(criteria.getBuilder()).thenReturn(mock(CriteriaBuilder.class));
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(root);
+    }
+
+    @Test
+    void pushableFilter() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien").and(Film$.length.greaterThan(100)))
+        );
+
+        assertSame(pipeline, merger.merge(pipeline, criteria).getPipeline());
+
+        verify(query).where(any(javax.persistence.criteria.Predicate.class));
+        assertTrue(pipeline.intermediateOperations().isEmpty());
+    }
+
+    @Test
+    void residualFilter() {
+        final Predicate<Film> residual = film -> film.getTitle().startsWith("A");
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien").and(residual))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        // The pushable conjunct is merged and the filter is replaced by one applying the residual conjunct
+        verify(query).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(1, pipeline.intermediateOperations().size());
+        assertEquals(IntermediateOperationType.FILTER, pipeline.intermediateOperations().getFirst().type());
+        assertSame(residual, pipeline.intermediateOperations().getFirst().arguments()[0]);
+    }
+
+    @Test
+    void residualFiltersKeepTheirOrder() {
+        final Predicate<Film> first = film -> film.getTitle().startsWith("A");
+        final Predicate<Film> second = film -> film.getLength() % 2 == 0;
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(CombinedPredicate.and(Arrays.asList(first, Film$.title.equal("Alien"), second)))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(1, pipeline.intermediateOperations().size());
+        final Object residual = pipeline.intermediateOperations().getFirst().arguments()[0];
+        assertTrue(residual instanceof CombinedPredicate);
+        assertEquals(CombinedPredicate.Type.AND, ((CombinedPredicate<?>) residual).getType());
+        assertEquals(Arrays.asList(first, second), ((CombinedPredicate<?>) residual).stream().collect(toList()));
+    }
+
+    @Test
+    void disjunctionWithLambdaIsNotMerged() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien").or(film -> film.getLength() > 100))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query, never()).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(1, pipeline.intermediateOperations().size());
+    }
+
+    @Test
+    void filtersAreMergedAcrossPeekAndSorted() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien")),
+            intermediateOperationFactory.createPeek(film -> {}),
+            intermediateOperationFactory.createSorted(Comparator.comparing(Film::getTitle)),
+            intermediateOperationFactory.createFilter(Film$.length.greaterThan(100))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query, times(2)).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(Arrays.asList(IntermediateOperationType.PEEK, IntermediateOperationType.SORTED), types(pipeline));
+    }
+
+    @Test
+    void filtersAreMergedAfterResidualFilter() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien").and(film -> film.getLength() % 2 == 0)),
+            intermediateOperationFactory.createFilter(Film$.length.greaterThan(100))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query, times(2)).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(Arrays.asList(IntermediateOperationType.FILTER), types(pipeline));
+    }
+
+    @Test
+    void filtersAreNotMergedAcrossMap() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createFilter(Film$.title.equal("Alien")),
+            intermediateOperationFactory.createMap(film -> film),
+            intermediateOperationFactory.createFilter(Film$.length.greaterThan(100))
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query).where(any(javax.persistence.criteria.Predicate.class));
+        assertEquals(Arrays.asList(IntermediateOperationType.MAP, IntermediateOperationType.FILTER), types(pipeline));
+    }
+
+    @Test
+    void distinctIsNotMergedAcrossPeek() {
+        final Pipeline<Film> pipeline = pipeline(
+            intermediateOperationFactory.createPeek(film -> {}),
+            intermediateOperationFactory.acquireDistinct()
+        );
+
+        merger.merge(pipeline, criteria);
+
+        verify(query, never()).distinct(true);
+        assertEquals(Arrays.asList(IntermediateOperationType.PEEK, IntermediateOperationType.DISTINCT), types(pipeline));
+    }
+
+    @SafeVarargs
+    private final Pipeline<Film> pipeline(final IntermediateOperation<?, ?>... operations) {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().addAll(Arrays.asList(operations));
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+        return pipeline;
+    }
+
+    private static List<IntermediateOperationType> types(final Pipeline<?> pipeline) {
+        return pipeline.intermediateOperations().stream()
+            .map(IntermediateOperation::type)
+            .collect(toList());
+    }
+}
@@ -49,13 +49,13 @@ public class InternalLongTerminalOperationFactory implements LongTerminalOperati
             LongStream::max);
 
     private static final TerminalOperation<LongStream, OptionalDouble> AVERAGE = new ApplyTerminalOperation<>(
-            TerminalOperationType.MAX,
+            TerminalOperationType.AVERAGE,
             LongStream.class,
             OptionalDouble.class,
             LongStream::average);
 
     private static final TerminalOperation<LongStream, LongSummaryStatistics> SUMMARY_STATISTICS = new ApplyTerminalOperation<>(
-            TerminalOperationType.MAX,
+            TerminalOperationType.SUMMARY_STATISTICS,
             LongStream.class,
             LongSummaryStatistics.class,
             LongStream::summaryStatistics);
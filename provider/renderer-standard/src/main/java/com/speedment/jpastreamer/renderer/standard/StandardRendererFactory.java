@@ -13,11 +13,14 @@
 package com.speedment.jpastreamer.renderer.standard;
 
 import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 import com.speedment.jpastreamer.renderer.RendererFactory;
+import com.speedment.jpastreamer.renderer.ResultCache;
 import com.speedment.jpastreamer.renderer.standard.internal.InternalRendererFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.function.Supplier;
 
 public final class StandardRendererFactory implements RendererFactory {
@@ -37,4 +40,14 @@ public final class StandardRendererFactory implements RendererFactory {
     public Renderer createRenderer(final EntityManager entityManager) {
         return delegate.createRenderer(entityManager);
     }
+
+    @Override
+    public Renderer createRenderer(final Supplier<EntityManager> entityManagerSupplier, final RendererConfiguration configuration) {
+        return delegate.createRenderer(entityManagerSupplier, configuration);
+    }
+
+    @Override
+    public ResultCache createResultCache(final long maximumSize, final Duration timeToLive) {
+        return delegate.createResultCache(maximumSize, timeToLive);
+    }
 }
@@ -0,0 +1,420 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.MAP_TO;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.AVERAGE;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.COLLECT;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.MAX;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.MIN;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.SUMMARY_STATISTICS;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.SUM_DOUBLE;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.SUM_INT;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.SUM_LONG;
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.field.collector.AggregateCollector;
+import com.speedment.jpastreamer.field.collector.AggregateCollector.Aggregate;
+import com.speedment.jpastreamer.field.collector.FieldCollector;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumSet;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Renders primitive reductions ({@code sum}, {@code average}, {@code min}, {@code max}
+ * and {@code summaryStatistics}) of a single {@link Field} as one aggregate query
+ * instead of streaming every entity.
+ * <p>
+ * An aggregate can only be rendered if all other intermediate operations have been
+ * merged into the query, leaving a single {@code mapToX} operation whose mapper is a
+ * {@link Field}.
+ * <p>
+ * Likewise, collecting entities using a {@link FieldCollector} grouping collector
+ * with an {@link AggregateCollector} downstream is rendered as a {@code GROUP BY}
+ * query, building the resulting map from the (key, aggregate) rows.
+ * <p>
+ * SQL aggregates skip NULL values, whereas the stream would fail with a
+ * {@link NullPointerException} when unboxing such a value. The number of rows and
+ * the number of non-NULL values are therefore selected alongside the aggregate and
+ * the aggregate is left to the stream if they differ.
+ */
+final class AggregateRenderer {
+
+    /**
+     * The terminal operations that may be rendered as aggregate queries.
+     */
+    static final Set<TerminalOperationType> AGGREGATES = EnumSet.of(SUM_INT, SUM_LONG, SUM_DOUBLE, AVERAGE, MIN, MAX, SUMMARY_STATISTICS);
+
+    // The summary statistics constructors that accept pre-computed values were added in Java 10
+    private static final Constructor<IntSummaryStatistics> INT_SUMMARY_STATISTICS =
+        summaryStatisticsConstructor(IntSummaryStatistics.class, int.class, long.class);
+    private static final Constructor<LongSummaryStatistics> LONG_SUMMARY_STATISTICS =
+        summaryStatisticsConstructor(LongSummaryStatistics.class, long.class, long.class);
+    private static final Constructor<DoubleSummaryStatistics> DOUBLE_SUMMARY_STATISTICS =
+        summaryStatisticsConstructor(DoubleSummaryStatistics.class, double.class, double.class);
+
+    private final CriteriaFactory criteriaFactory;
+
+    AggregateRenderer(final CriteriaFactory criteriaFactory) {
+        this.criteriaFactory = requireNonNull(criteriaFactory);
+    }
+
+    /**
+     * Renders the aggregate described by the provided {@code pipeline}, if possible.
+     *
+     * @param entityManager       used to execute the aggregate query
+     * @param pipeline            with the criteria merged operations removed
+     * @param criteria            that the pipeline has been merged into
+     * @param streamConfiguration of the stream
+     * @param <E>                 the entity type
+     * @return a terminal operation that yields the pre-computed aggregate,
+     *         or {@code Optional.empty()} if the aggregate can not be rendered
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    <E> Optional<TerminalOperation<?, ?>> render(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final Criteria<E, E> criteria,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        final TerminalOperation<?, ?> terminalOperation = pipeline.terminatingOperation();
+        final TerminalOperationType terminalOperationType = terminalOperation.type();
+
+        if (!streamConfiguration.joins().isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (terminalOperationType == COLLECT) {
+            return renderGroupBy(entityManager, pipeline, criteria, streamConfiguration);
+        }
+
+        if (!AGGREGATES.contains(terminalOperationType)) {
+            return Optional.empty();
+        }
+
+        final Optional<Field<E>> optionalField = getMappedField(pipeline);
+
+        if (!optionalField.isPresent()) {
+            return Optional.empty();
+        }
+
+        final Class<?> streamType = terminalOperation.streamType();
+
+        if (streamType != IntStream.class && streamType != LongStream.class && streamType != DoubleStream.class) {
+            return Optional.empty();
+        }
+
+        if (terminalOperationType == SUMMARY_STATISTICS && summaryStatisticsConstructor(streamType) == null) {
+            return Optional.empty();
+        }
+
+        final Criteria<E, Object> aggregateCriteria = createAggregateCriteria(entityManager, pipeline, criteria);
+        final CriteriaBuilder builder = aggregateCriteria.getBuilder();
+        final Root<E> root = aggregateCriteria.getRoot();
+        final Expression<Number> path = root.get(optionalField.get().columnName());
+
+        final List<Selection<?>> selections = new ArrayList<>();
+        selections.add(builder.count(root));
+        selections.add(builder.count(path));
+        selections.addAll(selections(terminalOperationType, builder, path));
+
+        aggregateCriteria.getQuery().multiselect(selections);
+
+        final Object[] row = (Object[]) createQuery(entityManager, aggregateCriteria, streamConfiguration).getSingleResult();
+
+        if (containsNull(row[0], row[1])) {
+            return Optional.empty();
+        }
+
+        final long count = ((Number) row[0]).longValue();
+        final Object result = result(terminalOperationType, streamType, count, Arrays.copyOfRange(row, 2, row.length));
+
+        return Optional.of(new AggregateTerminalOperation<>((TerminalOperation) terminalOperation, result));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <E> Optional<TerminalOperation<?, ?>> renderGroupBy(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final Criteria<E, E> criteria,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        final TerminalOperation<?, ?> terminalOperation = pipeline.terminatingOperation();
+        final Object[] arguments = terminalOperation.arguments();
+
+        if (!pipeline.intermediateOperations().isEmpty() || arguments.length != 1 || !(arguments[0] instanceof FieldCollector)) {
+            return Optional.empty();
+        }
+
+        final FieldCollector<E, ?, ?> fieldCollector = (FieldCollector<E, ?, ?>) arguments[0];
+        final Optional<Collector<? super E, ?, ?>> optionalDownstream = fieldCollector.getDownstream();
+
+        if (!optionalDownstream.isPresent() || !(optionalDownstream.get() instanceof AggregateCollector)) {
+            return Optional.empty();
+        }
+
+        final AggregateCollector<E, ?, ?> downstream = (AggregateCollector<E, ?, ?>) optionalDownstream.get();
+
+        final Criteria<E, Object> aggregateCriteria = createAggregateCriteria(entityManager, pipeline, criteria);
+        final CriteriaBuilder builder = aggregateCriteria.getBuilder();
+        final Root<E> root = aggregateCriteria.getRoot();
+
+        final Path<?> key = root.get(fieldCollector.getField().columnName());
+        final Optional<Field<E>> aggregatedField = downstream.getField();
+        final Expression<?> aggregatedPath = aggregatedField.isPresent()
+            ? root.get(aggregatedField.get().columnName())
+            : root;
+
+        final CriteriaQuery<Object> query = aggregateCriteria.getQuery();
+        query.multiselect(key, aggregate(downstream.aggregate(), builder, aggregatedPath), builder.count(root), builder.count(aggregatedPath));
+        query.groupBy(key);
+
+        final List<Object> rows = createQuery(entityManager, aggregateCriteria, streamConfiguration).getResultList();
+
+        // The supplier of a grouping collector creates the (empty) result map
+        final Map<Object, Object> result = (Map<Object, Object>) fieldCollector.supplier().get();
+
+        for (final Object row : rows) {
+            final Object[] columns = (Object[]) row;
+
+            if (containsNull(columns[2], columns[3])) {
+                return Optional.empty();
+            }
+
+            final Object groupKey = requireNonNull(columns[0], "element cannot be mapped to a null key");
+            result.put(groupKey, downstream.fromAggregate(columns[1]));
+        }
+
+        return Optional.of(new AggregateTerminalOperation<>((TerminalOperation) terminalOperation, result));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Expression<?> aggregate(final Aggregate aggregate, final CriteriaBuilder builder, final Expression path) {
+        switch (aggregate) {
+            case COUNT:
+                return builder.count(path);
+            case SUM:
+                return builder.sum(path);
+            case AVERAGE:
+                return builder.avg(path);
+            case MIN:
+                return builder.least(path);
+            case MAX:
+                return builder.greatest(path);
+            default:
+                throw new IllegalArgumentException("Unsupported aggregate " + aggregate);
+        }
+    }
+
+    private <E> Criteria<E, Object> createAggregateCriteria(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final Criteria<E, E> criteria
+    ) {
+        final Criteria<E, Object> aggregateCriteria = criteriaFactory.createCriteria(entityManager, pipeline.root(), Object.class);
+        aggregateCriteria.getRoot().alias(criteria.getRoot().getAlias());
+        QueryConfigurer.addParameters(criteria, aggregateCriteria);
+
+        if (criteria.getQuery().getRestriction() != null) {
+            aggregateCriteria.getQuery().where(criteria.getQuery().getRestriction());
+        }
+
+        return aggregateCriteria;
+    }
+
+    private <E> TypedQuery<Object> createQuery(
+        final EntityManager entityManager,
+        final Criteria<E, Object> aggregateCriteria,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        final TypedQuery<Object> typedQuery = QueryConfigurer.configureHints(entityManager.createQuery(aggregateCriteria.getQuery()), streamConfiguration);
+
+        QueryConfigurer.setParameters(typedQuery, aggregateCriteria);
+
+        return typedQuery;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> Optional<Field<E>> getMappedField(final Pipeline<E> pipeline) {
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        if (intermediateOperations.size() != 1) {
+            return Optional.empty();
+        }
+
+        final IntermediateOperation<?, ?> operation = intermediateOperations.get(0);
+        final Object[] arguments = operation.arguments();
+
+        if (operation.type() != MAP_TO || arguments.length != 1 || !(arguments[0] instanceof Field)) {
+            return Optional.empty();
+        }
+
+        return Optional.of((Field<E>) arguments[0]);
+    }
+
+    private List<Selection<?>> selections(
+        final TerminalOperationType terminalOperationType,
+        final CriteriaBuilder builder,
+        final Expression<Number> path
+    ) {
+        switch (terminalOperationType) {
+            case SUM_INT:
+            case SUM_LONG:
+            case SUM_DOUBLE:
+                return Collections.singletonList(builder.sum(path));
+            case AVERAGE:
+                return Collections.singletonList(builder.avg(path));
+            case MIN:
+                return Collections.singletonList(builder.min(path));
+            case MAX:
+                return Collections.singletonList(builder.max(path));
+            case SUMMARY_STATISTICS:
+                return Arrays.asList(builder.sum(path), builder.min(path), builder.max(path));
+            default:
+                throw new IllegalArgumentException("Unsupported aggregate " + terminalOperationType);
+        }
+    }
+
+    private static boolean containsNull(final Object rowCount, final Object valueCount) {
+        return ((Number) rowCount).longValue() != ((Number) valueCount).longValue();
+    }
+
+    private Object result(
+        final TerminalOperationType terminalOperationType,
+        final Class<?> streamType,
+        final long count,
+        final Object[] row
+    ) {
+        final Number value = (Number) row[0];
+
+        switch (terminalOperationType) {
+            case SUM_INT:
+                return value == null ? 0 : value.intValue();
+            case SUM_LONG:
+                return value == null ? 0L : value.longValue();
+            case SUM_DOUBLE:
+                return value == null ? 0d : value.doubleValue();
+            case AVERAGE:
+                return value == null ? OptionalDouble.empty() : OptionalDouble.of(value.doubleValue());
+            case MIN:
+            case MAX:
+                return optional(streamType, value);
+            case SUMMARY_STATISTICS:
+                return summaryStatistics(streamType, count, row);
+            default:
+                throw new IllegalArgumentException("Unsupported aggregate " + terminalOperationType);
+        }
+    }
+
+    private Object optional(final Class<?> streamType, final Number value) {
+        if (streamType == IntStream.class) {
+            return value == null ? OptionalInt.empty() : OptionalInt.of(value.intValue());
+        }
+
+        if (streamType == LongStream.class) {
+            return value == null ? OptionalLong.empty() : OptionalLong.of(value.longValue());
+        }
+
+        return value == null ? OptionalDouble.empty() : OptionalDouble.of(value.doubleValue());
+    }
+
+    private Object summaryStatistics(final Class<?> streamType, final long count, final Object[] row) {
+        if (count == 0) {
+            if (streamType == IntStream.class) {
+                return new IntSummaryStatistics();
+            }
+
+            if (streamType == LongStream.class) {
+                return new LongSummaryStatistics();
+            }
+
+            return new DoubleSummaryStatistics();
+        }
+
+        final Number sum = (Number) row[0];
+        final Number min = (Number) row[1];
+        final Number max = (Number) row[2];
+
+        try {
+            if (streamType == IntStream.class) {
+                return INT_SUMMARY_STATISTICS.newInstance(count, min.intValue(), max.intValue(), sum.longValue());
+            }
+
+            if (streamType == LongStream.class) {
+                return LONG_SUMMARY_STATISTICS.newInstance(count, min.longValue(), max.longValue(), sum.longValue());
+            }
+
+            return DOUBLE_SUMMARY_STATISTICS.newInstance(count, min.doubleValue(), max.doubleValue(), sum.doubleValue());
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create summary statistics", e);
+        }
+    }
+
+    private static Constructor<?> summaryStatisticsConstructor(final Class<?> streamType) {
+        if (streamType == IntStream.class) {
+            return INT_SUMMARY_STATISTICS;
+        }
+
+        if (streamType == LongStream.class) {
+            return LONG_SUMMARY_STATISTICS;
+        }
+
+        return DOUBLE_SUMMARY_STATISTICS;
+    }
+
+    private static <T> Constructor<T> summaryStatisticsConstructor(
+        final Class<T> statisticsClass,
+        final Class<?> valueType,
+        final Class<?> sumType
+    ) {
+        try {
+            return statisticsClass.getConstructor(long.class, valueType, valueType, sumType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
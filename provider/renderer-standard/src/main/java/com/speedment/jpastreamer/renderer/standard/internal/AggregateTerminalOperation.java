@@ -0,0 +1,99 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.BaseStream;
+
+/**
+ * A {@link TerminalOperation} that returns a result that has already been
+ * computed by the database, ignoring the stream it is applied to.
+ *
+ * @param <S> the type of the stream
+ * @param <R> the type of the result
+ */
+final class AggregateTerminalOperation<S extends BaseStream<?, S>, R> implements TerminalOperation<S, R> {
+
+    private final TerminalOperation<S, R> terminalOperation;
+    private final R result;
+
+    AggregateTerminalOperation(final TerminalOperation<S, R> terminalOperation, final R result) {
+        this.terminalOperation = requireNonNull(terminalOperation);
+        this.result = requireNonNull(result);
+    }
+
+    @Override
+    public TerminalOperationType type() {
+        return terminalOperation.type();
+    }
+
+    @Override
+    public Class<? super S> streamType() {
+        return terminalOperation.streamType();
+    }
+
+    @Override
+    public Class<? super R> returnType() {
+        return terminalOperation.returnType();
+    }
+
+    @Override
+    public Object[] arguments() {
+        return terminalOperation.arguments();
+    }
+
+    @Override
+    public Function<S, R> function() {
+        return stream -> result;
+    }
+
+    @Override
+    public ToLongFunction<S> toLongFunction() {
+        return stream -> ((Number) result).longValue();
+    }
+
+    @Override
+    public ToIntFunction<S> toIntFunction() {
+        return stream -> ((Number) result).intValue();
+    }
+
+    @Override
+    public ToDoubleFunction<S> toDoubleFunction() {
+        return stream -> ((Number) result).doubleValue();
+    }
+
+    @Override
+    public Predicate<S> predicate() {
+        return terminalOperation.predicate();
+    }
+
+    @Override
+    public Consumer<S> consumer() {
+        return terminalOperation.consumer();
+    }
+
+    @Override
+    public String toString() {
+        return terminalOperation.toString();
+    }
+}
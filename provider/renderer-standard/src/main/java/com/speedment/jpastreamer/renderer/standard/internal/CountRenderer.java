@@ -0,0 +1,255 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.LIMIT;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SKIP;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
+import static com.speedment.jpastreamer.pipeline.intermediate.Statement.PRESERVES_SIZE;
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Selection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Plans the {@code count} terminal operation so that it can be computed using a
+ * single {@code COUNT} query, even if the pipeline contains operations that were
+ * not merged into the criteria.
+ * <p>
+ * Operations that preserve the size of the stream (e.g. {@code map}, {@code peek}
+ * and {@code sorted}) do not affect the count and are ignored. The effect of
+ * {@code skip} and {@code limit} is computed arithmetically from the total count,
+ * and a leading {@code map(Field).distinct()} is counted using {@code COUNT(DISTINCT)}
+ * plus one if any of the values is NULL.
+ * Any other operation requires the elements to be streamed.
+ */
+final class CountRenderer {
+
+    private final CriteriaFactory criteriaFactory;
+
+    CountRenderer(final CriteriaFactory criteriaFactory) {
+        this.criteriaFactory = requireNonNull(criteriaFactory);
+    }
+
+    /**
+     * Computes the count described by the provided {@code pipeline}, if possible.
+     *
+     * @param entityManager used to execute the count query
+     * @param pipeline      with the criteria merged operations removed
+     * @param criteria      that the pipeline has been merged into
+     * @param distinctField       the field of a leading {@code map(Field).distinct()}, if any
+     * @param streamConfiguration of the stream
+     * @param <E>                 the entity type
+     * @return the count, or {@code Optional.empty()} if the count can not be planned
+     */
+    <E> Optional<Long> render(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final Criteria<E, E> criteria,
+        final Optional<Field<E>> distinctField,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        return plan(pipeline, distinctField)
+            .map(plan -> plan.applyAsLong(count(entityManager, criteria, distinctField, streamConfiguration)));
+    }
+
+    /**
+     * Returns a function that computes the count described by the provided
+     * {@code pipeline} from the number of rows selected by the criteria, or
+     * {@code Optional.empty()} if the count can not be planned.
+     *
+     * @param pipeline      with the criteria merged operations removed
+     * @param distinctField the field of a leading {@code map(Field).distinct()}, if any
+     * @param <E>           the entity type
+     * @return a function that computes the count from the number of rows
+     * selected by the criteria, or {@code Optional.empty()} if the count can
+     * not be planned
+     */
+    <E> Optional<LongUnaryOperator> plan(
+        final Pipeline<E> pipeline,
+        final Optional<Field<E>> distinctField
+    ) {
+        if (pipeline.terminatingOperation().type() != TerminalOperationType.COUNT) {
+            return Optional.empty();
+        }
+
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        LongUnaryOperator plan = LongUnaryOperator.identity();
+
+        for (int i = distinctField.isPresent() ? 2 : 0; i < intermediateOperations.size(); i++) {
+            final IntermediateOperation<?, ?> operation = intermediateOperations.get(i);
+            final IntermediateOperationType operationType = operation.type();
+
+            if (operationType == SKIP) {
+                final long n = getArgument(operation);
+                plan = plan.andThen(count -> Math.max(count - n, 0));
+            } else if (operationType == LIMIT) {
+                final long maxSize = getArgument(operation);
+                plan = plan.andThen(count -> Math.min(count, maxSize));
+            } else if (operationType != SORTED && !operationType.statements().contains(PRESERVES_SIZE)) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(plan);
+    }
+
+    /**
+     * Returns the number of rows selected by the provided {@code criteria}.
+     *
+     * @param entityManager       used to execute the count query
+     * @param criteria            to count the rows of
+     * @param distinctField       the field to count distinct values of, if any
+     * @param streamConfiguration of the stream
+     * @param <E>                 the entity type
+     * @return the number of rows selected by the provided {@code criteria}
+     */
+    <E> long count(
+        final EntityManager entityManager,
+        final Criteria<E, E> criteria,
+        final Optional<Field<E>> distinctField,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        final Criteria<E, Long> countCriteria = createCountCriteria(entityManager, criteria, distinctField);
+
+        final TypedQuery<Long> typedQuery = QueryConfigurer.configureHints(entityManager.createQuery(countCriteria.getQuery()), streamConfiguration);
+
+        QueryConfigurer.setParameters(typedQuery, countCriteria);
+
+        return typedQuery.getSingleResult();
+    }
+
+    /**
+     * Returns the number of rows selected by each of the provided {@code criteria}
+     * of the same entity, using a single query with a conditional aggregate
+     * ({@code SUM(CASE WHEN ... THEN 1 ELSE 0 END)}) per criteria.
+     * <p>
+     * The roots of the provided {@code criteria} must have the same alias, and
+     * the criteria must neither be distinct nor contain joins.
+     *
+     * @param entityManager        used to execute the count query
+     * @param entityClass          of the rows to count
+     * @param criteria             to count the rows of
+     * @param streamConfigurations of the streams of the provided {@code criteria}
+     * @param <E>                  the entity type
+     * @return the number of rows selected by each of the provided {@code criteria}
+     */
+    <E> long[] count(
+        final EntityManager entityManager,
+        final Class<E> entityClass,
+        final List<Criteria<E, E>> criteria,
+        final List<StreamConfiguration<E>> streamConfigurations
+    ) {
+        final Criteria<E, Tuple> countCriteria = criteriaFactory.createCriteria(entityManager, entityClass, Tuple.class);
+        final CriteriaBuilder builder = countCriteria.getBuilder();
+
+        countCriteria.getRoot().alias(criteria.get(0).getRoot().getAlias());
+
+        final Selection<?>[] selections = new Selection<?>[criteria.size()];
+        for (int i = 0; i < selections.length; i++) {
+            final Predicate restriction = criteria.get(i).getQuery().getRestriction();
+            selections[i] = restriction == null
+                ? builder.count(countCriteria.getRoot())
+                : builder.sum(builder.<Long>selectCase().when(restriction, 1L).otherwise(0L));
+            QueryConfigurer.addParameters(criteria.get(i), countCriteria);
+        }
+
+        countCriteria.getQuery().select(builder.tuple(selections));
+
+        final TypedQuery<Tuple> typedQuery = QueryConfigurer.configureHints(entityManager.createQuery(countCriteria.getQuery()), streamConfigurations);
+
+        QueryConfigurer.setParameters(typedQuery, countCriteria);
+
+        final Tuple tuple = typedQuery.getSingleResult();
+
+        final long[] counts = new long[selections.length];
+        for (int i = 0; i < counts.length; i++) {
+            // The sum of no rows is null
+            final Number count = (Number) tuple.get(i);
+            counts[i] = count == null ? 0 : count.longValue();
+        }
+        return counts;
+    }
+
+    private <T> Criteria<T, Long> createCountCriteria(
+        final EntityManager entityManager,
+        final Criteria<T, T> criteria,
+        final Optional<Field<T>> distinctField
+    ) {
+        final CriteriaQuery<T> criteriaQuery = criteria.getQuery();
+
+        final Criteria<T, Long> countCriteria = criteriaFactory.createCriteria(
+            entityManager,
+            criteriaQuery.getResultType(),
+            Long.class
+        );
+
+        QueryConfigurer.addParameters(criteria, countCriteria);
+
+        countCriteria.getRoot().alias(criteria.getRoot().getAlias());
+
+        final CriteriaQuery<Long> countQuery = countCriteria.getQuery();
+
+        if (distinctField.isPresent()) {
+            final CriteriaBuilder builder = countCriteria.getBuilder();
+            final Expression<?> column = countCriteria.getRoot().get(distinctField.get().columnName());
+
+            // COUNT(DISTINCT) ignores NULL whereas distinct() keeps null as a value of its own
+            final Expression<Long> containsNull = builder.coalesce(
+                builder.max(builder.<Long>selectCase().when(builder.isNull(column), 1L).otherwise(0L)),
+                0L
+            );
+
+            countQuery.select(builder.sum(builder.countDistinct(column), containsNull));
+        } else {
+            countQuery.select(countCriteria.getBuilder().count(countCriteria.getRoot()));
+        }
+
+        if (criteriaQuery.getRestriction() != null) {
+            countQuery.where(criteriaQuery.getRestriction());
+        }
+
+        countQuery.distinct(criteriaQuery.isDistinct());
+
+        return countCriteria;
+    }
+
+    private long getArgument(final IntermediateOperation<?, ?> operation) {
+        final Object[] arguments = operation.arguments();
+
+        if (arguments.length == 1 && arguments[0] instanceof Long) {
+            return (long) arguments[0];
+        }
+
+        throw new IllegalArgumentException("Unable to determine the argument of " + operation);
+    }
+}
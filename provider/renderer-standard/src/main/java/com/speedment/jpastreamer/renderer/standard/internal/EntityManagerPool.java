@@ -0,0 +1,220 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A pool of {@code EntityManager}s from which an {@code EntityManager} is leased
+ * for each rendered stream, so that concurrent streams never share a (non
+ * thread-safe) {@code EntityManager}.
+ * <p>
+ * At most the pool size {@code EntityManager}s are leased at the same time. A
+ * lease waits for an {@code EntityManager} to be released while they are, and
+ * fails if none is released within the lease timeout. If there is no idle
+ * {@code EntityManager} a new one is obtained from the supplier. Released
+ * {@code EntityManager}s are cleared and kept for reuse, up to the pool size or
+ * the number of available processors, whichever is smaller. Surplus
+ * {@code EntityManager}s are closed.
+ * <p>
+ * {@code EntityManager}s that the pool does not own are never pooled or
+ * cleared: a pool of {@linkplain #shared(EntityManager) a shared}
+ * {@code EntityManager} always leases it, and a pool of
+ * {@linkplain #supplied(Supplier) supplied} {@code EntityManager}s obtains one
+ * from the supplier for each lease and never closes them.
+ */
+final class EntityManagerPool {
+
+    private final Supplier<EntityManager> entityManagerSupplier;
+    private final EntityManager shared;
+    private final boolean owned;
+    private final int poolSize;
+    private final int maximumIdle;
+    private final Semaphore leases;
+    private final long leaseTimeoutNanos;
+
+    // Guarded by this
+    private final Deque<EntityManager> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    EntityManagerPool(final Supplier<EntityManager> entityManagerSupplier, final int poolSize, final Duration leaseTimeout) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The pool size must be positive: " + poolSize);
+        }
+        this.entityManagerSupplier = requireNonNull(entityManagerSupplier);
+        this.shared = null;
+        this.owned = true;
+        this.poolSize = poolSize;
+        this.maximumIdle = Math.min(poolSize, Runtime.getRuntime().availableProcessors());
+        this.leases = new Semaphore(poolSize, true);
+        this.leaseTimeoutNanos = requireNonNull(leaseTimeout).toNanos();
+    }
+
+    private EntityManagerPool(final Supplier<EntityManager> entityManagerSupplier, final EntityManager shared) {
+        this.entityManagerSupplier = requireNonNull(entityManagerSupplier);
+        this.shared = shared;
+        this.owned = false;
+        this.poolSize = 0;
+        this.maximumIdle = 0;
+        this.leases = null;
+        this.leaseTimeoutNanos = 0;
+    }
+
+    /**
+     * Creates a pool that always leases the provided {@code entityManager}, which
+     * is closed when the pool is closed. The owner of the {@code EntityManager}
+     * is responsible for not using it from several threads at once.
+     *
+     * @param entityManager to lease
+     * @return a pool that always leases the provided {@code entityManager}
+     */
+    static EntityManagerPool shared(final EntityManager entityManager) {
+        requireNonNull(entityManager);
+        return new EntityManagerPool(() -> entityManager, entityManager);
+    }
+
+    /**
+     * Creates a pool that leases an {@code EntityManager} obtained from the provided
+     * {@code entityManagerSupplier} for each stream. The lifecycle of the supplied
+     * {@code EntityManager}s is managed by the owner of the supplier.
+     *
+     * @param entityManagerSupplier to obtain the leased {@code EntityManager}s from
+     * @return a pool that leases the {@code EntityManager}s of the provided supplier
+     */
+    static EntityManagerPool supplied(final Supplier<EntityManager> entityManagerSupplier) {
+        return new EntityManagerPool(entityManagerSupplier, null);
+    }
+
+    /**
+     * Returns whether this pool owns the {@code EntityManager}s it leases. The
+     * {@code EntityManager}s of a pool that does not own them may be used by their
+     * owner, and must hence not be used by several threads or be cleared.
+     *
+     * @return whether this pool owns the {@code EntityManager}s it leases
+     */
+    boolean isOwned() {
+        return owned;
+    }
+
+    /**
+     * Leases an {@code EntityManager}, which must be {@link #release(EntityManager) released}
+     * once the stream it is used for is closed.
+     *
+     * @return a leased {@code EntityManager}
+     * @throws IllegalStateException if this pool is closed, or if no {@code EntityManager}
+     *                               is released within the lease timeout
+     */
+    EntityManager lease() {
+        if (!owned) {
+            return entityManagerSupplier.get();
+        }
+
+        acquire();
+        try {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("The EntityManager pool is closed");
+                }
+                final EntityManager entityManager = idle.pollFirst();
+                if (entityManager != null) {
+                    return entityManager;
+                }
+            }
+            return entityManagerSupplier.get();
+        } catch (RuntimeException | Error e) {
+            leases.release();
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        final boolean acquired;
+        try {
+            acquired = leases.tryAcquire(leaseTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an EntityManager", e);
+        }
+        if (!acquired) {
+            throw new IllegalStateException("All " + poolSize + " EntityManagers of the pool are leased by open streams"
+                + " and none was released within " + Duration.ofNanos(leaseTimeoutNanos));
+        }
+    }
+
+    /**
+     * Returns the provided leased {@code entityManager} to this pool.
+     *
+     * @param entityManager to release
+     */
+    void release(final EntityManager entityManager) {
+        if (!owned) {
+            return;
+        }
+
+        try {
+            if (!entityManager.isOpen()) {
+                return;
+            }
+
+            // An EntityManager joined to a transaction shares its persistence context with the application
+            if (!entityManager.isJoinedToTransaction()) {
+                entityManager.clear();
+            }
+
+            synchronized (this) {
+                if (!closed && idle.size() < maximumIdle) {
+                    idle.addFirst(entityManager);
+                    return;
+                }
+            }
+            entityManager.close();
+        } finally {
+            leases.release();
+        }
+    }
+
+    /**
+     * Closes this pool and all its idle {@code EntityManager}s. {@code EntityManager}s
+     * that are leased when the pool is closed are closed when they are released.
+     * A pool of supplied {@code EntityManager}s closes none of them.
+     */
+    void close() {
+        if (!owned) {
+            if (shared != null) {
+                shared.close();
+            }
+            return;
+        }
+
+        synchronized (this) {
+            closed = true;
+        }
+        // No more EntityManagers are added once the pool is closed
+        EntityManager entityManager;
+        while ((entityManager = pollIdle()) != null) {
+            entityManager.close();
+        }
+    }
+
+    private synchronized EntityManager pollIdle() {
+        return idle.pollFirst();
+    }
+}
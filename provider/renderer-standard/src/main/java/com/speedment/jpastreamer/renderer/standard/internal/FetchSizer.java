@@ -0,0 +1,174 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Sets the JDBC fetch size of the queries of streams.
+ * <p>
+ * A fetch size configured for a stream is used as is. Otherwise the fetch size
+ * is chosen adaptively: it is bounded by the number of rows that are rendered
+ * to the database (e.g. by a pushed {@code limit}), by the number of selected
+ * columns so that each round trip transfers a similar amount of data, and by the
+ * number of rows that streams of the same shape (the entity and the terminal
+ * operation) have been observed to consume, so that short streams do not fetch
+ * rows they never use. Streams whose number of rows is bounded by the query are
+ * not observed, as their fetch size is bounded regardless, so that a lookup
+ * (e.g. {@code findFirst}) does not shrink the fetch size of a full scan.
+ * <p>
+ * Some drivers buffer the whole result unless a server-side cursor is requested.
+ * If server-side cursors are enabled by
+ * {@code RendererConfiguration.withServerSideCursors(boolean)}, the fetch size that makes the driver of the database of the
+ * persistence unit stream rows (e.g. {@code Integer.MIN_VALUE} on MySQL) is used
+ * instead. PostgreSQL uses a cursor for any positive fetch size, provided that
+ * the query runs in a transaction (i.e. without auto-commit).
+ */
+final class FetchSizer {
+
+    static final int MIN_FETCH_SIZE = 16;
+    static final int MAX_FETCH_SIZE = 4096;
+    static final int DEFAULT_FETCH_SIZE = 256;
+
+    /**
+     * The number of columns to transfer in each round trip.
+     */
+    private static final int COLUMNS_PER_FETCH = 1 << 16;
+
+    /**
+     * The weight of the latest observation in the average number of consumed rows.
+     */
+    private static final double OBSERVATION_WEIGHT = 0.25;
+
+    private static final Map<String, Integer> STREAMING_FETCH_SIZES = new HashMap<>();
+
+    static {
+        STREAMING_FETCH_SIZES.put("mysql", Integer.MIN_VALUE);
+    }
+
+    /**
+     * Query hints that set the JDBC fetch size.
+     */
+    private static final String[] FETCH_SIZE_HINTS = {"org.hibernate.fetchSize", "eclipselink.jdbc.fetch-size"};
+
+    private final Integer streamingFetchSize;
+    private final Map<List<Object>, Double> consumedRows = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a {@code FetchSizer} for the persistence unit with the provided
+     * {@code properties}.
+     *
+     * @param properties        of the persistence unit
+     * @param serverSideCursors whether to use the fetch size that makes the driver stream rows
+     */
+    FetchSizer(final Map<String, Object> properties, final boolean serverSideCursors) {
+        requireNonNull(properties);
+        this.streamingFetchSize = serverSideCursors
+            ? InListChunker.resolveByDatabase(properties, STREAMING_FETCH_SIZES).orElse(null)
+            : null;
+    }
+
+    /**
+     * Returns the shape of the provided {@code pipeline} under which the number of
+     * rows consumed by its stream is observed.
+     *
+     * @param pipeline of the stream
+     * @return the shape of the provided {@code pipeline}
+     */
+    static List<Object> shape(final Pipeline<?> pipeline) {
+        return Arrays.asList(pipeline.root(), pipeline.terminatingOperation().type());
+    }
+
+    /**
+     * Sets the fetch size of the provided {@code typedQuery}.
+     *
+     * @param typedQuery  to set the fetch size of
+     * @param shape       of the stream
+     * @param columns     the number of selected columns
+     * @param maxResults  the maximum number of rows returned by the query
+     * @param fetchSize   configured for the stream, if any
+     */
+    void apply(
+        final TypedQuery<?> typedQuery,
+        final List<Object> shape,
+        final int columns,
+        final int maxResults,
+        final OptionalInt fetchSize
+    ) {
+        final Object hint;
+        if (fetchSize.isPresent()) {
+            hint = fetchSize.getAsInt();
+        } else if (streamingFetchSize != null) {
+            hint = streamingFetchSize;
+        } else {
+            hint = adaptiveFetchSize(shape, columns, maxResults);
+        }
+
+        for (final String fetchSizeHint : FETCH_SIZE_HINTS) {
+            typedQuery.setHint(fetchSizeHint, hint);
+        }
+    }
+
+    int adaptiveFetchSize(final List<Object> shape, final int columns, final int maxResults) {
+        final int widthBound = clamp(COLUMNS_PER_FETCH / Math.max(columns, 1));
+
+        final Double consumed = consumedRows.get(shape);
+        final int fetchSize = consumed == null
+            ? Math.min(DEFAULT_FETCH_SIZE, widthBound)
+            : Math.min(clamp((int) Math.ceil(consumed)), widthBound);
+
+        return maxResults > 0 ? Math.min(fetchSize, maxResults) : fetchSize;
+    }
+
+    /**
+     * Returns a stream of the provided {@code rows} that records the number of rows
+     * consumed from it when it is closed, unless the query returns at most
+     * {@code maxResults} rows.
+     *
+     * @param shape      of the stream
+     * @param maxResults the maximum number of rows returned by the query
+     * @param rows       to observe
+     * @param <E>        the row type
+     * @return a stream of the provided {@code rows}
+     */
+    <E> Stream<E> observe(final List<Object> shape, final int maxResults, final Stream<E> rows) {
+        if (maxResults > 0 && maxResults < Integer.MAX_VALUE) {
+            return rows;
+        }
+
+        final long[] consumed = new long[1];
+        return rows
+            .peek(row -> consumed[0]++)
+            .onClose(() -> record(shape, consumed[0]));
+    }
+
+    void record(final List<Object> shape, final long rows) {
+        consumedRows.merge(shape, (double) rows, (average, latest) ->
+            average + OBSERVATION_WEIGHT * (latest - average));
+    }
+
+    private static int clamp(final int fetchSize) {
+        return Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, fetchSize));
+    }
+}
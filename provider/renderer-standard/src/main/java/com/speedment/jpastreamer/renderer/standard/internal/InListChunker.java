@@ -0,0 +1,267 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.FILTER;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.PEEK;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+import com.speedment.jpastreamer.field.predicate.PredicateType;
+import com.speedment.jpastreamer.field.trait.HasArg0;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.rootfactory.RootFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Splits a leading {@code filter} operation with an oversized {@code IN}
+ * predicate into several filters, each with a chunk of the values, so that
+ * the stream can be rendered as one query per chunk.
+ * <p>
+ * The maximum number of values of a chunk is set by
+ * {@code RendererConfiguration.withInChunkSize(int)}, or else resolved from the
+ * database that the dialect or JDBC URL of the persistence unit refers to.
+ */
+final class InListChunker {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final Map<String, Integer> DATABASE_CHUNK_SIZES = new LinkedHashMap<>();
+
+    static {
+        DATABASE_CHUNK_SIZES.put("oracle", 1000);
+        DATABASE_CHUNK_SIZES.put("sqlserver", 1500);
+        DATABASE_CHUNK_SIZES.put("sybase", 1500);
+        DATABASE_CHUNK_SIZES.put("postgres", 16384);
+        DATABASE_CHUNK_SIZES.put("mysql", 16384);
+        DATABASE_CHUNK_SIZES.put("mariadb", 16384);
+    }
+
+    private static final List<String> DATABASE_PROPERTIES = Collections.unmodifiableList(Arrays.asList(
+        "hibernate.dialect",
+        "eclipselink.target-database",
+        "javax.persistence.jdbc.url",
+        "hibernate.connection.url"
+    ));
+
+    private static final Set<IntermediateOperationType> LEADING_OPERATIONS = EnumSet.of(FILTER, SORTED, PEEK);
+
+    private final IntermediateOperationFactory intermediateOperationFactory;
+    private final int chunkSize;
+
+    InListChunker(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive: " + chunkSize);
+        }
+        this.intermediateOperationFactory = RootFactory.getOrThrow(IntermediateOperationFactory.class, ServiceLoader::load);
+        this.chunkSize = chunkSize;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the chunks of the first leading {@code filter} operation of the
+     * provided {@code pipeline} whose predicate is an {@code IN} predicate with
+     * more values than the chunk size, or {@code Optional.empty()} if there is
+     * no such operation.
+     *
+     * @param pipeline to chunk
+     * @param <E>      the entity type
+     * @return the chunks of the first leading oversized {@code IN} filter, or
+     * {@code Optional.empty()} if there is no such operation
+     */
+    <E> Optional<Chunks> chunk(final Pipeline<E> pipeline) {
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        for (int i = 0; i < intermediateOperations.size(); i++) {
+            final IntermediateOperation<?, ?> operation = intermediateOperations.get(i);
+
+            if (!LEADING_OPERATIONS.contains(operation.type())) {
+                break;
+            }
+
+            final Optional<FieldPredicate<?>> inPredicate = getInPredicate(operation);
+
+            if (inPredicate.isPresent()) {
+                final Set<?> values = (Set<?>) ((HasArg0<?>) inPredicate.get()).get0();
+
+                if (values.size() > chunkSize) {
+                    return Optional.of(new Chunks(i, createFilters(inPredicate.get(), values)));
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private <E> List<IntermediateOperation<?, ?>> createFilters(final FieldPredicate<E> inPredicate, final Set<?> values) {
+        final List<IntermediateOperation<?, ?>> filters = new ArrayList<>();
+
+        Set<Object> chunk = new LinkedHashSet<>();
+        for (final Object value : values) {
+            chunk.add(value);
+
+            if (chunk.size() == chunkSize) {
+                filters.add(intermediateOperationFactory.createFilter(new ChunkPredicate<>(inPredicate.getField(), PredicateType.IN, chunk)));
+                chunk = new LinkedHashSet<>();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            filters.add(intermediateOperationFactory.createFilter(new ChunkPredicate<>(inPredicate.getField(), PredicateType.IN, chunk)));
+        }
+
+        return filters;
+    }
+
+    private Optional<FieldPredicate<?>> getInPredicate(final IntermediateOperation<?, ?> operation) {
+        if (operation.type() != FILTER) {
+            return Optional.empty();
+        }
+
+        final Object[] arguments = operation.arguments();
+
+        if (arguments.length == 1 && arguments[0] instanceof FieldPredicate && arguments[0] instanceof HasArg0) {
+            final FieldPredicate<?> fieldPredicate = (FieldPredicate<?>) arguments[0];
+
+            if (fieldPredicate.getPredicateType() == PredicateType.IN && ((HasArg0<?>) fieldPredicate).get0() instanceof Set) {
+                return Optional.of(fieldPredicate);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the maximum number of values of a chunk for the database of the
+     * persistence unit with the provided {@code properties}.
+     *
+     * @param properties of the persistence unit
+     * @return the maximum number of values of a chunk
+     */
+    static int resolveChunkSize(final Map<String, Object> properties) {
+        return resolveByDatabase(properties, DATABASE_CHUNK_SIZES).orElse(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the value of the first of the provided {@code databases} whose name
+     * appears in the dialect or JDBC URL of the persistence unit, if any.
+     *
+     * @param properties of the persistence unit
+     * @param databases  values by lower case database name
+     * @param <V>        the value type
+     * @return the value of the database of the persistence unit, if any
+     */
+    static <V> Optional<V> resolveByDatabase(final Map<String, Object> properties, final Map<String, V> databases) {
+        return DATABASE_PROPERTIES.stream()
+            .map(properties::get)
+            .filter(Objects::nonNull)
+            .map(value -> value instanceof Class ? ((Class<?>) value).getName() : value.toString())
+            .map(value -> value.toLowerCase(Locale.ROOT))
+            .flatMap(value -> databases.entrySet().stream()
+                .filter(entry -> value.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .limit(1))
+            .findFirst();
+    }
+
+    /**
+     * The chunked filters of an {@code IN} filter operation.
+     */
+    static final class Chunks {
+
+        private final int index;
+        private final List<IntermediateOperation<?, ?>> filters;
+
+        private Chunks(final int index, final List<IntermediateOperation<?, ?>> filters) {
+            this.index = index;
+            this.filters = Collections.unmodifiableList(filters);
+        }
+
+        /**
+         * Returns the index of the chunked operation in the pipeline.
+         *
+         * @return the index of the chunked operation in the pipeline
+         */
+        int index() {
+            return index;
+        }
+
+        /**
+         * Returns the filters that replace the chunked operation, one per chunk.
+         *
+         * @return the filters that replace the chunked operation, one per chunk
+         */
+        List<IntermediateOperation<?, ?>> filters() {
+            return filters;
+        }
+    }
+
+    private static final class ChunkPredicate<E> implements FieldPredicate<E>, HasArg0<Set<?>> {
+
+        private final Field<E> field;
+        private final PredicateType predicateType;
+        private final Set<?> values;
+
+        private ChunkPredicate(final Field<E> field, final PredicateType predicateType, final Set<?> values) {
+            this.field = requireNonNull(field);
+            this.predicateType = requireNonNull(predicateType);
+            this.values = Collections.unmodifiableSet(values);
+        }
+
+        @Override
+        public boolean applyAsBoolean(final E entity) {
+            return values.contains(field.getter().apply(entity)) == (predicateType == PredicateType.IN);
+        }
+
+        @Override
+        public Field<E> getField() {
+            return field;
+        }
+
+        @Override
+        public PredicateType getPredicateType() {
+            return predicateType;
+        }
+
+        @Override
+        public Set<?> get0() {
+            return values;
+        }
+
+        @Override
+        public FieldPredicate<E> negate() {
+            return new ChunkPredicate<>(field, predicateType == PredicateType.IN ? PredicateType.NOT_IN : PredicateType.IN, values);
+        }
+    }
+}
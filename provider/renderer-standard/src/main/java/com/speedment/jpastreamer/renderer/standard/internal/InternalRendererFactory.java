@@ -13,10 +13,13 @@
 package com.speedment.jpastreamer.renderer.standard.internal;
 
 import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 import com.speedment.jpastreamer.renderer.RendererFactory;
+import com.speedment.jpastreamer.renderer.ResultCache;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.function.Supplier;
 
 public final class InternalRendererFactory implements RendererFactory {
@@ -34,4 +37,19 @@ public final class InternalRendererFactory implements RendererFactory {
     public Renderer createRenderer(EntityManager entityManager) {
         return new StandardRenderer(entityManager);
     }
+
+    @Override
+    public Renderer createRenderer(final Supplier<EntityManager> entityManagerSupplier, final RendererConfiguration configuration) {
+        configuration.resultCache()
+            .filter(resultCache -> !(resultCache instanceof StandardResultCache))
+            .ifPresent(resultCache -> {
+                throw new IllegalArgumentException("The result cache " + resultCache + " was not created by this factory");
+            });
+        return new StandardRenderer(entityManagerSupplier, configuration);
+    }
+
+    @Override
+    public ResultCache createResultCache(final long maximumSize, final Duration timeToLive) {
+        return new StandardResultCache(maximumSize, timeToLive);
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders the element configured by {@link StreamConfiguration#seekAfter()}
+ * as a restriction on the sort keys of the criteria (keyset pagination).
+ * <p>
+ * The sort order of the criteria is completed with the id of the entity so that
+ * it is total, after which {@code (k1, k2, ..., id) > (v1, v2, ..., idValue)} is
+ * rendered as {@code k1 > v1 OR (k1 = v1 AND (k2 > v2 OR (k2 = v2 AND ...)))},
+ * using {@code <} for descending keys. Contrary to {@code OFFSET}, the database
+ * can use an index on the sort keys to seek directly to the first element.
+ * <p>
+ * Nullable sort keys are rejected, as {@code k > v} and {@code k = v} are never
+ * true for a row with a {@code null} key, and the position of {@code null}s in
+ * the sort order depends on the database.
+ */
+final class KeysetRenderer {
+
+    /**
+     * Restricts the provided {@code criteria} to the elements that follow the element
+     * configured by the provided {@code streamConfiguration}, if any.
+     *
+     * @param criteria            that the sorted operations have been merged into
+     * @param streamConfiguration of the stream
+     * @param <E>                 the entity type
+     */
+    <E> void render(final Criteria<E, E> criteria, final StreamConfiguration<E> streamConfiguration) {
+        requireNonNull(criteria);
+
+        final Optional<E> seekAfter = requireNonNull(streamConfiguration).seekAfter();
+
+        if (!seekAfter.isPresent()) {
+            return;
+        }
+
+        final CriteriaBuilder builder = criteria.getBuilder();
+        final CriteriaQuery<E> query = criteria.getQuery();
+        final Root<E> root = criteria.getRoot();
+
+        final SingularAttribute<? super E, ?> idAttribute = root.getModel().getSingularAttributes().stream()
+            .filter(SingularAttribute::isId)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Unable to seek in " + root.getJavaType().getSimpleName() + " as it has no single id attribute"));
+
+        final List<Order> orders = new ArrayList<>(query.getOrderList());
+
+        final boolean orderedById = orders.stream()
+            .map(Order::getExpression)
+            .anyMatch(expression -> expression instanceof Path && idAttribute.equals(((Path<?>) expression).getModel()));
+
+        if (!orderedById) {
+            orders.add(builder.asc(root.get(idAttribute.getName())));
+            query.orderBy(orders);
+        }
+
+        Predicate seek = null;
+
+        for (int i = orders.size() - 1; i >= 0; i--) {
+            final Order order = orders.get(i);
+            seek = seek(criteria, order, seekAfter.get(), seek);
+        }
+
+        final Predicate restriction = query.getRestriction();
+        query.where(restriction == null ? seek : builder.and(restriction, seek));
+    }
+
+    private <E, C extends Comparable<? super C>> Predicate seek(
+        final Criteria<E, E> criteria,
+        final Order order,
+        final E element,
+        final Predicate following
+    ) {
+        final CriteriaBuilder builder = criteria.getBuilder();
+        final Path<C> sortKey = sortKey(order);
+        final ParameterExpression<C> parameter = parameter(criteria, sortKey, element);
+
+        final Predicate after = order.isAscending()
+            ? builder.greaterThan(sortKey, parameter)
+            : builder.lessThan(sortKey, parameter);
+
+        return following == null
+            ? after
+            : builder.or(after, builder.and(builder.equal(sortKey, parameter), following));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C extends Comparable<? super C>> Path<C> sortKey(final Order order) {
+        final Expression<?> expression = order.getExpression();
+
+        if (expression instanceof Path && ((Path<?>) expression).getModel() instanceof Attribute) {
+            final Attribute<?, ?> attribute = (Attribute<?, ?>) ((Path<?>) expression).getModel();
+            if (attribute instanceof SingularAttribute && ((SingularAttribute<?, ?>) attribute).isOptional()) {
+                throw new IllegalStateException("Unable to seek on the nullable sort key " + attribute.getName() + " as rows where it is null would be skipped");
+            }
+            return (Path<C>) expression;
+        }
+
+        throw new IllegalStateException("Unable to seek on the sort key " + expression);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E, C extends Comparable<? super C>> ParameterExpression<C> parameter(
+        final Criteria<E, E> criteria,
+        final Path<C> sortKey,
+        final E element
+    ) {
+        final Attribute<?, ?> attribute = (Attribute<?, ?>) sortKey.getModel();
+        final Object value = valueOf(attribute, element);
+
+        if (!(value instanceof Comparable)) {
+            throw new IllegalArgumentException("Unable to seek after " + element + " as the value of the sort key " + attribute.getName() + " is " + value);
+        }
+
+        // The value is of the type of the attribute, which the sort key is declared as
+        final ParameterExpression<C> parameter = criteria.getBuilder().parameter((Class<C>) (Class<?>) Comparable.class);
+        criteria.addQueryParameter(new KeysetParameter<>(parameter, (C) value));
+
+        return parameter;
+    }
+
+    private Object valueOf(final Attribute<?, ?> attribute, final Object element) {
+        final Member member = attribute.getJavaMember();
+
+        try {
+            if (member instanceof Field) {
+                final Field field = (Field) member;
+                field.setAccessible(true);
+                return field.get(element);
+            }
+
+            if (member instanceof Method) {
+                final Method method = (Method) member;
+                method.setAccessible(true);
+                return method.invoke(element);
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to read the sort key " + attribute.getName() + " of " + element, e);
+        }
+
+        throw new IllegalStateException("Unable to read the sort key " + attribute.getName() + " of " + element);
+    }
+
+    private static final class KeysetParameter<T> implements QueryParameter<T> {
+
+        private final ParameterExpression<T> parameterExpression;
+        private final T value;
+
+        private KeysetParameter(final ParameterExpression<T> parameterExpression, final T value) {
+            this.parameterExpression = requireNonNull(parameterExpression);
+            this.value = value;
+        }
+
+        @Override
+        public ParameterExpression<T> getParameterExpression() {
+            return parameterExpression;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator that merges streams that are each sorted according to the
+ * same comparator into a single sorted sequence.
+ * <p>
+ * The streams are not opened until the first element is requested.
+ *
+ * @param <E> the element type
+ */
+final class MergeSortedIterator<E> implements Iterator<E>, AutoCloseable {
+
+    private final List<Supplier<Stream<E>>> sources;
+    private final Comparator<? super E> comparator;
+    private final List<Stream<E>> opened;
+    private final PriorityQueue<Head<E>> heads;
+
+    private boolean initialized;
+
+    MergeSortedIterator(final List<Supplier<Stream<E>>> sources, final Comparator<? super E> comparator) {
+        this.sources = new ArrayList<>(requireNonNull(sources));
+        this.comparator = requireNonNull(comparator);
+        this.opened = new ArrayList<>();
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.element, b.element));
+    }
+
+    /**
+     * Returns a sequential stream of the merged elements that closes
+     * the merged streams when closed.
+     *
+     * @param sources    of the sorted streams to merge
+     * @param comparator that each stream is sorted by
+     * @param <E>        the element type
+     * @return a sequential stream of the merged elements
+     */
+    static <E> Stream<E> stream(final List<Supplier<Stream<E>>> sources, final Comparator<? super E> comparator) {
+        final MergeSortedIterator<E> iterator = new MergeSortedIterator<>(sources, comparator);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(iterator::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        initialize();
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final Head<E> head = heads.poll();
+        final E element = head.element;
+
+        if (head.iterator.hasNext()) {
+            head.element = head.iterator.next();
+            heads.add(head);
+        }
+
+        return element;
+    }
+
+    @Override
+    public void close() {
+        opened.forEach(Stream::close);
+        opened.clear();
+        heads.clear();
+    }
+
+    private void initialize() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+
+        for (final Supplier<Stream<E>> source : sources) {
+            final Stream<E> stream = source.get();
+            opened.add(stream);
+
+            final Iterator<E> iterator = stream.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+    }
+
+    private static final class Head<E> {
+
+        private E element;
+        private final Iterator<E> iterator;
+
+        private Head(final E element, final Iterator<E> iterator) {
+            this.element = element;
+            this.iterator = iterator;
+        }
+    }
+}
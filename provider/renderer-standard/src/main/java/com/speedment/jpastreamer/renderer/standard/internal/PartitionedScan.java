@@ -0,0 +1,329 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Renders a parallel pipeline as a scan over ranges of the (numeric) primary
+ * key of the entity. Each range is read by its own query with its own
+ * {@code EntityManager}, and the ranges are exposed as a splitting
+ * {@code Spliterator} so that the workers of a parallel stream read them
+ * concurrently. The restriction of the pipeline is rendered in the query of
+ * every range.
+ * <p>
+ * The number of ranges is set by {@code RendererConfiguration.withPartitions(int)}
+ * and defaults to the parallelism of the common fork-join pool. Only
+ * {@code EntityManager}s owned by the pool are used from several threads.
+ */
+final class PartitionedScan {
+
+    /**
+     * The minimum number of ids in a range.
+     */
+    static final long MIN_PARTITION_SIZE = 1024;
+
+    private static final Map<Class<?>, LongFunction<Object>> ID_TYPES = new HashMap<>();
+
+    static {
+        ID_TYPES.put(Long.class, Long::valueOf);
+        ID_TYPES.put(long.class, Long::valueOf);
+        ID_TYPES.put(Integer.class, value -> (int) value);
+        ID_TYPES.put(int.class, value -> (int) value);
+        ID_TYPES.put(Short.class, value -> (short) value);
+        ID_TYPES.put(short.class, value -> (short) value);
+    }
+
+    private final int partitions;
+
+    PartitionedScan(final int partitions) {
+        if (partitions < 0) {
+            throw new IllegalArgumentException("The number of partitions must not be negative: " + partitions);
+        }
+        this.partitions = partitions;
+    }
+
+    /**
+     * Returns a parallel stream of the results of the provided {@code criteria}
+     * read by one query per range of ids, or {@code Optional.empty()}, leaving
+     * the criteria unchanged, if the pipeline can not be partitioned.
+     * <p>
+     * A pipeline can not be partitioned if its query is ordered or distinct, if
+     * it has {@code skip} or {@code limit} operations, if the entity does not have
+     * a single numeric id or if it has too few ids.
+     *
+     * @param entityManagerPool   to lease the {@code EntityManager}s of the ranges from
+     * @param entityManager       to read the range of ids with, which is not used by the
+     *                            returned stream
+     * @param pipeline            to partition
+     * @param criteria            of the pipeline
+     * @param streamConfiguration of the stream
+     * @param rangeQuery          that opens a stream over the rows of a query created with the
+     *                            provided {@code EntityManager}, after binding the range with the
+     *                            provided binder
+     * @param <E>                 the entity type
+     * @param <R>                 the row type
+     * @return a parallel stream of the results of the provided {@code criteria}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    <E, R> Optional<Stream<R>> scan(
+        final EntityManagerPool entityManagerPool,
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final Criteria<E, ?> criteria,
+        final StreamConfiguration<E> streamConfiguration,
+        final BiFunction<EntityManager, Consumer<TypedQuery<?>>, Stream<R>> rangeQuery
+    ) {
+        if (partitions < 2 || !entityManagerPool.isOwned() || !isPartitionable(pipeline, criteria.getQuery())) {
+            return Optional.empty();
+        }
+
+        final Optional<SingularAttribute<? super E, ?>> idAttribute = idAttribute(entityManager, pipeline.root());
+        if (!idAttribute.isPresent()) {
+            return Optional.empty();
+        }
+
+        final LongFunction<Object> idType = ID_TYPES.get(idAttribute.get().getJavaType());
+
+        final CriteriaBuilder builder = criteria.getBuilder();
+        final CriteriaQuery<?> query = criteria.getQuery();
+
+        // The ids are bounded by the restriction of the pipeline, so that the ranges select similar numbers of rows
+        final CriteriaQuery<Tuple> rangeCriteria = builder.createTupleQuery();
+        final Root<E> rangeRoot = rangeCriteria.from(pipeline.root());
+        rangeRoot.alias(criteria.getRoot().getAlias());
+        final Expression<Number> rangeId = rangeRoot.get((SingularAttribute) idAttribute.get());
+        rangeCriteria.select(builder.tuple(builder.min(rangeId), builder.max(rangeId)));
+        if (query.getRestriction() != null) {
+            rangeCriteria.where(query.getRestriction());
+        }
+
+        final TypedQuery<Tuple> rangeTypedQuery = QueryConfigurer.configureHints(entityManager.createQuery(rangeCriteria), streamConfiguration);
+        QueryConfigurer.setParameters(rangeTypedQuery, criteria);
+
+        final Tuple range = rangeTypedQuery.getSingleResult();
+        if (range.get(0) == null || range.get(1) == null) {
+            return Optional.empty();
+        }
+
+        final long min = ((Number) range.get(0)).longValue();
+        final long max = ((Number) range.get(1)).longValue();
+        final double ids = (double) max - min + 1;
+
+        final int count = (int) Math.min(partitions, Math.floor(ids / MIN_PARTITION_SIZE));
+        if (count < 2) {
+            return Optional.empty();
+        }
+
+        final List<long[]> ranges = new ArrayList<>(count);
+        long lower = min;
+        for (int i = 1; i <= count; i++) {
+            final long upper = i == count ? max : min + (long) Math.floor(ids * i / count) - 1;
+            ranges.add(new long[]{lower, upper});
+            lower = upper + 1;
+        }
+
+        final Class<Comparable> idClass = (Class<Comparable>) idAttribute.get().getJavaType();
+        final ParameterExpression<Comparable> from = builder.parameter(idClass);
+        final ParameterExpression<Comparable> to = builder.parameter(idClass);
+        final Path<Comparable> id = criteria.getRoot().get((SingularAttribute) idAttribute.get());
+        final Predicate between = builder.between(id, from, to);
+
+        query.where(query.getRestriction() == null ? between : builder.and(query.getRestriction(), between));
+
+        final Scan<R> scan = new Scan<>(entityManagerPool, (entityManagerOfRange, bounds) ->
+            rangeQuery.apply(entityManagerOfRange, typedQuery -> typedQuery
+                .setParameter(from, (Comparable) idType.apply(bounds[0]))
+                .setParameter(to, (Comparable) idType.apply(bounds[1]))));
+
+        return Optional.of(StreamSupport.stream(new RangeSpliterator<>(scan, ranges, 0, ranges.size()), true)
+            .onClose(scan::close));
+    }
+
+    private boolean isPartitionable(final Pipeline<?> pipeline, final CriteriaQuery<?> query) {
+        if (!query.getOrderList().isEmpty() || query.isDistinct()) {
+            return false;
+        }
+
+        for (final IntermediateOperation<?, ?> operation : pipeline.intermediateOperations()) {
+            if (operation.type() == IntermediateOperationType.SKIP || operation.type() == IntermediateOperationType.LIMIT) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private <E> Optional<SingularAttribute<? super E, ?>> idAttribute(final EntityManager entityManager, final Class<E> entityClass) {
+        final EntityType<E> entityType;
+        try {
+            entityType = entityManager.getMetamodel().entity(entityClass);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        if (!entityType.hasSingleIdAttribute() || !ID_TYPES.containsKey(entityType.getIdType().getJavaType())) {
+            return Optional.empty();
+        }
+
+        return Optional.of(entityType.getId(entityType.getIdType().getJavaType()));
+    }
+
+    /**
+     * The state shared by the spliterators of a scan, tracking the ranges that
+     * are being read so that they can be closed if the stream is closed early.
+     */
+    private static final class Scan<R> {
+
+        private final EntityManagerPool entityManagerPool;
+        private final BiFunction<EntityManager, long[], Stream<R>> rangeQuery;
+        private final Set<Range<R>> open = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        private Scan(final EntityManagerPool entityManagerPool, final BiFunction<EntityManager, long[], Stream<R>> rangeQuery) {
+            this.entityManagerPool = entityManagerPool;
+            this.rangeQuery = rangeQuery;
+        }
+
+        private Range<R> open(final long[] bounds) {
+            final EntityManager entityManager = entityManagerPool.lease();
+            try {
+                final Range<R> range = new Range<>(this, entityManager, rangeQuery.apply(entityManager, bounds));
+                open.add(range);
+                return range;
+            } catch (RuntimeException e) {
+                entityManagerPool.release(entityManager);
+                throw e;
+            }
+        }
+
+        private void close() {
+            new ArrayList<>(open).forEach(Range::close);
+        }
+    }
+
+    private static final class Range<R> {
+
+        private final Scan<R> scan;
+        private final EntityManager entityManager;
+        private final Stream<R> rows;
+        private final Iterator<R> iterator;
+
+        private Range(final Scan<R> scan, final EntityManager entityManager, final Stream<R> rows) {
+            this.scan = scan;
+            this.entityManager = entityManager;
+            this.rows = rows;
+            this.iterator = rows.iterator();
+        }
+
+        private void close() {
+            if (scan.open.remove(this)) {
+                try {
+                    rows.close();
+                } finally {
+                    scan.entityManagerPool.release(entityManager);
+                }
+            }
+        }
+    }
+
+    private static final class RangeSpliterator<R> implements Spliterator<R> {
+
+        private final Scan<R> scan;
+        private final List<long[]> ranges;
+        private int index;
+        private int end;
+
+        private Range<R> current;
+
+        private RangeSpliterator(final Scan<R> scan, final List<long[]> ranges, final int index, final int end) {
+            this.scan = scan;
+            this.ranges = ranges;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super R> action) {
+            while (true) {
+                if (current == null) {
+                    if (index >= end) {
+                        return false;
+                    }
+                    current = scan.open(ranges.get(index++));
+                }
+
+                if (current.iterator.hasNext()) {
+                    action.accept(current.iterator.next());
+                    return true;
+                }
+
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            final int remaining = end - index;
+            if (remaining < 2) {
+                return null;
+            }
+            final int middle = index + remaining / 2;
+            final Spliterator<R> prefix = new RangeSpliterator<>(scan, ranges, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return 0;
+        }
+    }
+}
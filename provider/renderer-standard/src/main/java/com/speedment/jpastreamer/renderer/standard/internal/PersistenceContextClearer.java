@@ -0,0 +1,123 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Bounds the persistence context of a leased {@code EntityManager} while its
+ * results are streamed, by clearing the context after every N rows. The rows
+ * are cleared when the next row is requested, so each row is detached once
+ * the stream has moved past it.
+ * <p>
+ * The interval is set by {@code RendererConfiguration.withClearInterval(int)}.
+ * Clearing is disabled by default, as detached entities can not load lazy
+ * associations, and it is never applied to an {@code EntityManager} that is
+ * joined to a transaction.
+ */
+final class PersistenceContextClearer {
+
+    private final int interval;
+
+    PersistenceContextClearer(final int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("The clear interval must not be negative: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Returns a stream of the provided {@code rows} that clears the persistence
+     * context of the provided {@code entityManager} after every N rows.
+     *
+     * @param entityManager that produces the rows
+     * @param rows          to stream
+     * @param <E>           the row type
+     * @return a stream of the provided {@code rows}
+     */
+    <E> Stream<E> apply(final EntityManager entityManager, final Stream<E> rows) {
+        final int interval = interval(entityManager);
+        if (interval == 0) {
+            return rows;
+        }
+
+        return StreamSupport.stream(new ClearingSpliterator<>(rows.spliterator(), entityManager, interval), false)
+            .onClose(rows::close);
+    }
+
+    /**
+     * Returns the number of rows after which the persistence context of the
+     * provided {@code entityManager} is cleared, or {@code 0} if it is never
+     * cleared.
+     *
+     * @param entityManager that produces the rows
+     * @return the number of rows after which the persistence context is cleared
+     */
+    int interval(final EntityManager entityManager) {
+        return interval == 0 || entityManager.isJoinedToTransaction() ? 0 : interval;
+    }
+
+    private static final class ClearingSpliterator<E> implements Spliterator<E> {
+
+        private final Spliterator<E> delegate;
+        private final EntityManager entityManager;
+        private final int interval;
+
+        private int rows;
+
+        private ClearingSpliterator(final Spliterator<E> delegate, final EntityManager entityManager, final int interval) {
+            this.delegate = delegate;
+            this.entityManager = entityManager;
+            this.interval = interval;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super E> action) {
+            if (rows == interval) {
+                entityManager.clear();
+                rows = 0;
+            }
+
+            if (delegate.tryAdvance(action)) {
+                rows++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics() & ~(SIZED | SUBSIZED);
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the results of streams ahead of their consumers, so that fetching rows
+ * from the database overlaps with processing the rows that are already fetched.
+ * <p>
+ * A producer thread reads batches of rows into a bounded queue, waiting while
+ * the queue is full, until the results are exhausted or the stream is closed.
+ * Closing the stream stops the producer before the results are closed, so the
+ * results are only ever closed by one thread. A statement that is still being
+ * read should hence be cancelled before the stream is closed, so that the
+ * producer stops waiting for the database.
+ * <p>
+ * If the persistence context is cleared while streaming, the producer stops
+ * after every N rows until the consumer has consumed the rows read so far and
+ * has cleared the persistence context, so that rows are never detached before
+ * they are consumed.
+ * <p>
+ * The number of rows to read ahead is set by {@code RendererConfiguration.withPrefetch(int)}.
+ * Prefetching is disabled by default, as lazy
+ * associations of the streamed entities must not be loaded while the producer
+ * reads from the same {@code EntityManager}, and it is never applied to an
+ * {@code EntityManager} that is joined to a transaction.
+ */
+final class Prefetcher {
+
+    /**
+     * The number of batches the rows read ahead are divided into.
+     */
+    static final int BATCHES = 4;
+
+    /**
+     * The interval in which a waiting producer checks whether the stream is closed.
+     */
+    private static final long CLOSE_CHECK_MILLIS = 10;
+
+    private static final Object END = new Object();
+
+    private static final Object CLEAR = new Object();
+
+    private final int rows;
+    private final ExecutorService producers;
+
+    Prefetcher(final int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("The number of rows to prefetch must not be negative: " + rows);
+        }
+        this.rows = rows;
+        this.producers = rows == 0 ? null : Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "jpastreamer-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a stream of the provided {@code rows} that are read ahead of its
+     * consumer by a producer thread, whose persistence context is cleared by
+     * the provided {@code persistenceContextClearer}.
+     *
+     * @param entityManager             that produces the rows
+     * @param rows                      to stream
+     * @param persistenceContextClearer that sets how often the persistence context is cleared
+     * @param <E>                       the row type
+     * @return a stream of the provided {@code rows}
+     */
+    <E> Stream<E> apply(final EntityManager entityManager, final Stream<E> rows, final PersistenceContextClearer persistenceContextClearer) {
+        if (this.rows == 0 || entityManager.isJoinedToTransaction()) {
+            return persistenceContextClearer.apply(entityManager, rows);
+        }
+
+        final PrefetchingSpliterator<E> spliterator = new PrefetchingSpliterator<>(
+            rows,
+            Math.max(1, this.rows / BATCHES),
+            entityManager,
+            persistenceContextClearer.interval(entityManager)
+        );
+        return StreamSupport.stream(spliterator, false)
+            .onClose(spliterator::close);
+    }
+
+    void close() {
+        if (producers != null) {
+            producers.shutdown();
+        }
+    }
+
+    private final class PrefetchingSpliterator<E> implements Spliterator<E> {
+
+        private final Stream<E> rows;
+        private final int batchSize;
+        private final EntityManager entityManager;
+        private final int clearInterval;
+        private final BlockingQueue<Object> batches = new ArrayBlockingQueue<>(BATCHES);
+        private final Semaphore cleared = new Semaphore(0);
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        private volatile boolean closed;
+        private boolean started;
+        private Iterator<Object> batch = Collections.emptyIterator();
+        private boolean exhausted;
+
+        private PrefetchingSpliterator(final Stream<E> rows, final int batchSize, final EntityManager entityManager, final int clearInterval) {
+            this.rows = rows;
+            this.batchSize = batchSize;
+            this.entityManager = entityManager;
+            this.clearInterval = clearInterval;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(final Consumer<? super E> action) {
+            if (!started) {
+                started = true;
+                producers.execute(this::produce);
+            }
+
+            while (!batch.hasNext()) {
+                if (exhausted) {
+                    return false;
+                }
+                final Object next = take();
+                if (next == END) {
+                    exhausted = true;
+                    return false;
+                }
+                if (next == CLEAR) {
+                    // All rows read before the marker are consumed, and the producer waits until they are cleared
+                    try {
+                        entityManager.clear();
+                    } finally {
+                        cleared.release();
+                    }
+                    continue;
+                }
+                if (next instanceof Failure) {
+                    exhausted = true;
+                    throw ((Failure) next).rethrow();
+                }
+                batch = ((List<Object>) next).iterator();
+            }
+
+            action.accept((E) batch.next());
+            return true;
+        }
+
+        private Object take() {
+            try {
+                return batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("The stream was interrupted");
+            }
+        }
+
+        private void produce() {
+            try {
+                final Iterator<E> iterator = rows.iterator();
+                List<Object> next = new ArrayList<>(batchSize);
+                int uncleared = 0;
+                while (!closed) {
+                    if (clearInterval > 0 && uncleared == clearInterval) {
+                        if ((!next.isEmpty() && !put(next)) || !put(CLEAR) || !awaitCleared()) {
+                            return;
+                        }
+                        next = new ArrayList<>(batchSize);
+                        uncleared = 0;
+                    }
+                    // Reading the next row may load entities into the persistence context
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    next.add(iterator.next());
+                    uncleared++;
+                    if (next.size() == batchSize) {
+                        if (!put(next)) {
+                            return;
+                        }
+                        next = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!next.isEmpty() && !put(next)) {
+                    return;
+                }
+                put(END);
+            } catch (Throwable t) {
+                put(new Failure(t));
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * Puts the provided {@code batch} in the queue, waiting while it is full,
+         * and returns {@code false} if the stream is closed before it is put.
+         */
+        private boolean put(final Object batch) {
+            try {
+                while (!closed) {
+                    if (batches.offer(batch, CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /**
+         * Waits until the consumer has cleared the persistence context, and returns
+         * {@code false} if the stream is closed before it is cleared.
+         */
+        private boolean awaitCleared() {
+            try {
+                while (!closed) {
+                    if (cleared.tryAcquire(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        private void close() {
+            closed = true;
+            if (started) {
+                // The results may only be closed once the producer no longer reads them. A producer that
+                // waits for the database stops once the statement is cancelled, which precedes closing
+                boolean interrupted = false;
+                while (stopped.getCount() > 0) {
+                    try {
+                        stopped.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            rows.close();
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(final Throwable cause) {
+            this.cause = cause;
+        }
+
+        private RuntimeException rethrow() {
+            if (cause instanceof RuntimeException) {
+                return (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return new IllegalStateException(cause);
+        }
+    }
+}
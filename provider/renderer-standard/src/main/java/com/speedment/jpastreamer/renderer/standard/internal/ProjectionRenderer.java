@@ -0,0 +1,189 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.projection.Projection;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders a leading {@code map} operation whose mapper is a {@link Field} or a
+ * {@link Projection} as a selection of the column(s), so that the entities do not
+ * have to be loaded. A subsequent {@code distinct} operation is rendered as
+ * {@code SELECT DISTINCT} if the criteria is not sorted on other columns.
+ */
+final class ProjectionRenderer {
+
+    private final CriteriaFactory criteriaFactory;
+
+    ProjectionRenderer(final CriteriaFactory criteriaFactory) {
+        this.criteriaFactory = requireNonNull(criteriaFactory);
+    }
+
+    /**
+     * Creates a criteria selecting only the column(s) of a leading {@code map}
+     * operation whose mapper is a {@link Field} or a {@link Projection}, removing
+     * the operation from the pipeline. As operations merged into the criteria are
+     * removed from the pipeline, a leading {@code map} operation is only preceded
+     * by merged operations.
+     *
+     * @param entityManager       used to create the criteria
+     * @param pipeline            with the criteria merged operations removed
+     * @param criteria            that the pipeline has been merged into
+     * @param streamConfiguration of the stream
+     * @param <T>                 the entity type
+     * @return the projected criteria, or {@code Optional.empty()} if the
+     *         pipeline does not start with a projection
+     */
+    @SuppressWarnings("unchecked")
+    <T> Optional<Criteria<T, ?>> render(
+        final EntityManager entityManager,
+        final Pipeline<T> pipeline,
+        final Criteria<T, T> criteria,
+        final StreamConfiguration<T> streamConfiguration
+    ) {
+        final CriteriaQuery<T> criteriaQuery = criteria.getQuery();
+
+        // A distinct entity selection can not be replaced by a (possibly non-distinct) column selection
+        if (streamConfiguration.selections().isPresent() || !streamConfiguration.joins().isEmpty() || criteriaQuery.isDistinct()) {
+            return Optional.empty();
+        }
+
+        // Counting does not depend on the selected columns
+        if (pipeline.terminatingOperation().type() == TerminalOperationType.COUNT) {
+            return Optional.empty();
+        }
+
+        final LinkedList<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        if (intermediateOperations.isEmpty() || intermediateOperations.getFirst().type() != IntermediateOperationType.MAP) {
+            return Optional.empty();
+        }
+
+        final Object[] arguments = intermediateOperations.getFirst().arguments();
+
+        if (arguments.length != 1) {
+            return Optional.empty();
+        }
+
+        final Criteria<T, ?> projectedCriteria;
+
+        if (arguments[0] instanceof Projection && ((Projection<?>) arguments[0]).entityClass().equals(pipeline.root())) {
+            final Projection<T> projection = (Projection<T>) arguments[0];
+            final Criteria<T, Tuple> tupleCriteria = criteriaFactory.createCriteria(entityManager, pipeline.root(), Tuple.class);
+
+            final Selection<?>[] selections = projection.fields().stream()
+                .map(field -> tupleCriteria.getRoot().get(field.columnName()).alias(field.columnName()))
+                .toArray(Selection[]::new);
+
+            tupleCriteria.getQuery().select(tupleCriteria.getBuilder().tuple(selections));
+            projectedCriteria = tupleCriteria;
+        } else if (arguments[0] instanceof Field && ((Field<?>) arguments[0]).table().equals(pipeline.root())) {
+            final Field<T> field = (Field<T>) arguments[0];
+            final Criteria<T, Object> columnCriteria = criteriaFactory.createCriteria(entityManager, pipeline.root(), Object.class);
+
+            columnCriteria.getQuery().select(columnCriteria.getRoot().get(field.columnName()));
+            projectedCriteria = columnCriteria;
+
+            // A stream sorted on another column yields the distinct values in an order that SELECT DISTINCT can not express
+            if (distinctField(pipeline, criteria, streamConfiguration).isPresent() && isOrderedBy(criteriaQuery.getOrderList(), field)) {
+                columnCriteria.getQuery().distinct(true);
+                intermediateOperations.remove(1);
+            }
+        } else {
+            return Optional.empty();
+        }
+
+        QueryConfigurer.addParameters(criteria, projectedCriteria);
+
+        projectedCriteria.getRoot().alias(criteria.getRoot().getAlias());
+
+        if (criteriaQuery.getRestriction() != null) {
+            projectedCriteria.getQuery().where(criteriaQuery.getRestriction());
+        }
+
+        projectedCriteria.getQuery().orderBy(criteriaQuery.getOrderList());
+
+        intermediateOperations.removeFirst();
+
+        return Optional.of(projectedCriteria);
+    }
+
+    /**
+     * Returns the field of a leading {@code map(Field).distinct()} sequence that
+     * can be rendered as a {@code SELECT DISTINCT} of the column, if any.
+     *
+     * @param pipeline            with the criteria merged operations removed
+     * @param criteria            that the pipeline has been merged into
+     * @param streamConfiguration of the stream
+     * @param <T>                 the entity type
+     * @return the field of a leading {@code map(Field).distinct()}, if any
+     */
+    @SuppressWarnings("unchecked")
+    <T> Optional<Field<T>> distinctField(
+        final Pipeline<T> pipeline,
+        final Criteria<T, T> criteria,
+        final StreamConfiguration<T> streamConfiguration
+    ) {
+        if (streamConfiguration.selections().isPresent() || !streamConfiguration.joins().isEmpty() || criteria.getQuery().isDistinct()) {
+            return Optional.empty();
+        }
+
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        if (intermediateOperations.size() < 2
+            || intermediateOperations.get(0).type() != IntermediateOperationType.MAP
+            || intermediateOperations.get(1).type() != IntermediateOperationType.DISTINCT) {
+            return Optional.empty();
+        }
+
+        final Object[] arguments = intermediateOperations.get(0).arguments();
+
+        if (arguments.length != 1 || !(arguments[0] instanceof Field) || !((Field<?>) arguments[0]).table().equals(pipeline.root())) {
+            return Optional.empty();
+        }
+
+        return Optional.of((Field<T>) arguments[0]);
+    }
+
+    /**
+     * Returns whether the provided {@code orders} only sort on the column of the
+     * provided {@code field}, which includes not sorting at all.
+     */
+    private static boolean isOrderedBy(final List<Order> orders, final Field<?> field) {
+        return orders.stream()
+            .map(Order::getExpression)
+            .allMatch(expression -> expression instanceof Path
+                && ((Path<?>) expression).getModel() instanceof Attribute
+                && ((Attribute<?, ?>) ((Path<?>) expression).getModel()).getName().equals(field.columnName()));
+    }
+}
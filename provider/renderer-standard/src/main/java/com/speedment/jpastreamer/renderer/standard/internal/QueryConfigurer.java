@@ -0,0 +1,237 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Selection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates the queries of streams and configures them according to their
+ * stream configuration: the fetch size is set by a {@link FetchSizer}, and
+ * read-only streams and query timeouts are rendered as query hints.
+ */
+final class QueryConfigurer {
+
+    /**
+     * Query hints that make the persistence provider load entities in read-only mode.
+     */
+    static final Map<String, Object> READ_ONLY_HINTS;
+
+    static {
+        final Map<String, Object> readOnlyHints = new HashMap<>();
+        readOnlyHints.put("org.hibernate.readOnly", true);
+        readOnlyHints.put("eclipselink.read-only", "true");
+        READ_ONLY_HINTS = Collections.unmodifiableMap(readOnlyHints);
+    }
+
+    /**
+     * Query hint that sets the timeout of a query in milliseconds.
+     */
+    static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final FetchSizer fetchSizer;
+
+    QueryConfigurer(final FetchSizer fetchSizer) {
+        this.fetchSizer = requireNonNull(fetchSizer);
+    }
+
+    /**
+     * Creates a query of the provided {@code criteria}, binding its parameters.
+     *
+     * @param entityManager to create the query with
+     * @param criteria      to create the query of
+     * @return a query of the provided {@code criteria}
+     */
+    TypedQuery<?> createQuery(final EntityManager entityManager, final Criteria<?, ?> criteria) {
+        final TypedQuery<?> typedQuery = entityManager.createQuery(criteria.getQuery());
+
+        setParameters(typedQuery, criteria);
+
+        return typedQuery;
+    }
+
+    /**
+     * Binds the parameters of the provided {@code criteria} to the provided {@code typedQuery}.
+     *
+     * @param typedQuery to bind the parameters to
+     * @param criteria   that the query was created of
+     */
+    static void setParameters(final TypedQuery<?> typedQuery, final Criteria<?, ?> criteria) {
+        for (final QueryParameter<?> queryParameter : criteria.getQueryParameters()) {
+            setParameter(typedQuery, queryParameter);
+        }
+    }
+
+    /**
+     * Adds the parameters of the provided {@code criteria} to the provided
+     * {@code target} criteria that reuses its restriction.
+     *
+     * @param criteria whose parameters are added
+     * @param target   to add the parameters to
+     */
+    static void addParameters(final Criteria<?, ?> criteria, final Criteria<?, ?> target) {
+        for (final QueryParameter<?> queryParameter : criteria.getQueryParameters()) {
+            target.addQueryParameter(queryParameter);
+        }
+    }
+
+    private static <T> void setParameter(final TypedQuery<?> typedQuery, final QueryParameter<T> queryParameter) {
+        typedQuery.setParameter(queryParameter.getParameterExpression(), queryParameter.getValue());
+    }
+
+    /**
+     * Sets the fetch size of the provided {@code typedQuery} of the provided
+     * {@code criteriaQuery}, makes it load its entities in read-only mode and
+     * not flush pending changes before it is executed if the stream is read-only,
+     * and sets its timeout if the stream has one.
+     *
+     * @param typedQuery          to configure
+     * @param criteriaQuery       of the query
+     * @param entityManager       of the query
+     * @param pipeline            of the stream
+     * @param streamConfiguration of the stream
+     * @return the provided {@code typedQuery}
+     */
+    TypedQuery<?> configure(
+        final TypedQuery<?> typedQuery,
+        final CriteriaQuery<?> criteriaQuery,
+        final EntityManager entityManager,
+        final Pipeline<?> pipeline,
+        final StreamConfiguration<?> streamConfiguration
+    ) {
+        fetchSizer.apply(
+            typedQuery,
+            FetchSizer.shape(pipeline),
+            columns(criteriaQuery, entityManager),
+            maxResults(pipeline.intermediateOperations()),
+            streamConfiguration.fetchSize()
+        );
+
+        return configureHints(typedQuery, streamConfiguration);
+    }
+
+    /**
+     * Makes the provided {@code typedQuery} load its entities in read-only mode and
+     * not flush pending changes before it is executed if the stream is read-only,
+     * and sets its timeout if the stream has one. Unlike {@code configure}, this
+     * applies to any query of a stream, including the {@code COUNT} and aggregate
+     * queries whose results are not streamed.
+     *
+     * @param typedQuery          to configure
+     * @param streamConfiguration of the stream
+     * @param <Q>                 the query type
+     * @return the provided {@code typedQuery}
+     */
+    static <Q extends TypedQuery<?>> Q configureHints(final Q typedQuery, final StreamConfiguration<?> streamConfiguration) {
+        return configureHints(typedQuery, Collections.singletonList(streamConfiguration));
+    }
+
+    /**
+     * Configures the provided {@code typedQuery} that computes the results of
+     * several streams at once. The query is read-only if all of the streams are,
+     * and times out after the shortest timeout of the streams.
+     *
+     * @param typedQuery           to configure
+     * @param streamConfigurations of the streams
+     * @param <Q>                  the query type
+     * @return the provided {@code typedQuery}
+     */
+    static <Q extends TypedQuery<?>> Q configureHints(final Q typedQuery, final List<? extends StreamConfiguration<?>> streamConfigurations) {
+        if (streamConfigurations.stream().allMatch(streamConfiguration -> streamConfiguration.readOnly().orElse(false))) {
+            READ_ONLY_HINTS.forEach(typedQuery::setHint);
+            typedQuery.setFlushMode(FlushModeType.COMMIT);
+        }
+
+        streamConfigurations.stream()
+            .map(StreamConfiguration::queryTimeout)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .min(Comparator.naturalOrder())
+            .ifPresent(timeout -> typedQuery.setHint(QUERY_TIMEOUT_HINT, (int) Math.min(Integer.MAX_VALUE, timeout.toMillis())));
+        return typedQuery;
+    }
+
+    /**
+     * Returns the maximum number of rows that the leading {@code skip} and
+     * {@code limit} operations of the provided {@code intermediateOperations}
+     * consume, or {@code Integer.MAX_VALUE} if they are not limited.
+     *
+     * @param intermediateOperations of the stream
+     * @return the maximum number of rows consumed by the stream
+     */
+    static int maxResults(final List<IntermediateOperation<?, ?>> intermediateOperations) {
+        long maxResults = 0;
+
+        for (final IntermediateOperation<?, ?> operation : intermediateOperations) {
+            final Object[] arguments = operation.arguments();
+
+            if (arguments.length != 1 || !(arguments[0] instanceof Long)) {
+                break;
+            }
+
+            if (operation.type() == IntermediateOperationType.SKIP) {
+                maxResults = Math.min(maxResults + (long) arguments[0], Integer.MAX_VALUE);
+            } else if (operation.type() == IntermediateOperationType.LIMIT) {
+                return (int) Math.min(maxResults + Math.min((long) arguments[0], Integer.MAX_VALUE), Integer.MAX_VALUE);
+            } else {
+                break;
+            }
+        }
+
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of columns selected by the provided {@code criteriaQuery}.
+     */
+    private static int columns(final CriteriaQuery<?> criteriaQuery, final EntityManager entityManager) {
+        final Selection<?> selection = criteriaQuery.getSelection();
+
+        if (selection == null) {
+            return 1;
+        }
+
+        if (selection.isCompoundSelection()) {
+            return selection.getCompoundSelectionItems().size();
+        }
+
+        if (selection instanceof From) {
+            try {
+                return entityManager.getMetamodel().managedType(selection.getJavaType()).getAttributes().size();
+            } catch (IllegalArgumentException e) {
+                return 1;
+            }
+        }
+
+        return 1;
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.field.collector.FieldCollector;
+import com.speedment.jpastreamer.field.comparator.CombinedComparator;
+import com.speedment.jpastreamer.field.comparator.FieldComparator;
+import com.speedment.jpastreamer.field.predicate.CombinedPredicate;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+import com.speedment.jpastreamer.field.predicate.trait.HasInclusion;
+import com.speedment.jpastreamer.field.trait.HasArg0;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.projection.Projection;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of rendered queries keyed by the shape of the pipeline they were
+ * rendered from.
+ * <p>
+ * The shape of a pipeline consists of the entity, the stream configuration, the
+ * types of the operations and the structure of their arguments: the types and
+ * fields of the predicates, the fields and directions of the comparators and
+ * the fields of the projections, but not the values the predicates compare
+ * with. Pipelines with the same shape are merged into identical criteria that
+ * only differ in the values of their parameters, so a pipeline with a cached
+ * shape is rendered by removing the merged operations and binding its values
+ * to the parameters of the cached query, without using the Criteria API.
+ */
+final class RenderPlanCache {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private static final Object OPAQUE = new Object() {
+        @Override
+        public String toString() {
+            return "opaque";
+        }
+    };
+
+    private final Map<List<Object>, RenderPlan> plans;
+
+    RenderPlanCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RenderPlanCache(final int capacity) {
+        this.plans = Collections.synchronizedMap(new LinkedHashMap<List<Object>, RenderPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<List<Object>, RenderPlan> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Returns the shape of the provided (optimized) {@code pipeline}, or
+     * {@code Optional.empty()} if pipelines with its shape can not be cached.
+     *
+     * @param pipeline            to compute the shape of
+     * @param streamConfiguration of the stream
+     * @param <E>                 the entity type
+     * @return the shape of the provided {@code pipeline}, or {@code Optional.empty()}
+     * if pipelines with its shape can not be cached
+     */
+    <E> Optional<List<Object>> shape(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+        if (streamConfiguration.seekAfter().isPresent()) {
+            return Optional.empty();
+        }
+
+        final List<Object> shape = new ArrayList<>();
+        shape.add(pipeline.root());
+        shape.add(streamConfiguration.joins());
+        shape.add(streamConfiguration.selections().map(RenderPlanCache::projectionShape).orElse(null));
+
+        for (final IntermediateOperation<?, ?> operation : pipeline.intermediateOperations()) {
+            shape.add(operation.type());
+            for (final Object argument : operation.arguments()) {
+                final Optional<Object> argumentShape = argumentShape(argument);
+                if (!argumentShape.isPresent()) {
+                    return Optional.empty();
+                }
+                shape.add(argumentShape.get());
+            }
+        }
+
+        // Aggregates may be rendered as aggregate queries, unless the mapped values contain nulls
+        if (AggregateRenderer.AGGREGATES.contains(pipeline.terminatingOperation().type())) {
+            return Optional.empty();
+        }
+
+        shape.add(pipeline.terminatingOperation().type());
+        for (final Object argument : pipeline.terminatingOperation().arguments()) {
+            // Collectors of fields may be rendered as aggregate queries
+            if (argument instanceof FieldCollector) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(Collections.unmodifiableList(shape));
+    }
+
+    Optional<RenderPlan> get(final List<Object> shape) {
+        return Optional.ofNullable(plans.get(requireNonNull(shape)));
+    }
+
+    void put(final List<Object> shape, final RenderPlan plan) {
+        plans.put(requireNonNull(shape), requireNonNull(plan));
+    }
+
+    int size() {
+        return plans.size();
+    }
+
+    private static Optional<Object> argumentShape(final Object argument) {
+        if (argument == null || argument instanceof Long) {
+            return Optional.of(OPAQUE);
+        }
+
+        if (argument instanceof FieldPredicate) {
+            return Optional.of(predicateShape((FieldPredicate<?>) argument));
+        }
+
+        if (argument instanceof CombinedPredicate) {
+            final CombinedPredicate<?> combinedPredicate = (CombinedPredicate<?>) argument;
+            final List<Object> shape = new ArrayList<>();
+            shape.add(combinedPredicate.getType());
+
+            for (final Object member : combinedPredicate.stream().collect(Collectors.toList())) {
+                final Optional<Object> memberShape = argumentShape(member);
+                if (!memberShape.isPresent()) {
+                    return Optional.empty();
+                }
+                shape.add(memberShape.get());
+            }
+
+            return Optional.of(shape);
+        }
+
+        if (argument instanceof FieldComparator) {
+            return Optional.of(comparatorShape((FieldComparator<?>) argument));
+        }
+
+        if (argument instanceof CombinedComparator) {
+            return Optional.of(((CombinedComparator<?>) argument).stream()
+                .map(RenderPlanCache::comparatorShape)
+                .collect(Collectors.toList()));
+        }
+
+        if (argument instanceof Field) {
+            return Optional.of(argument);
+        }
+
+        if (argument instanceof Projection) {
+            return Optional.of(projectionShape((Projection<?>) argument));
+        }
+
+        if (argument instanceof FieldCollector) {
+            return Optional.empty();
+        }
+
+        // Other arguments (e.g. lambdas) are never merged and remain in the pipeline
+        return Optional.of(OPAQUE);
+    }
+
+    private static Object predicateShape(final FieldPredicate<?> fieldPredicate) {
+        final Object arg0 = fieldPredicate instanceof HasArg0 ? ((HasArg0<?>) fieldPredicate).get0() : null;
+
+        return Arrays.asList(
+            fieldPredicate.getPredicateType(),
+            fieldPredicate.getField(),
+            fieldPredicate instanceof HasInclusion ? ((HasInclusion) fieldPredicate).getInclusion() : null,
+            arg0 instanceof Set ? (Object) ((Set<?>) arg0).size() : (arg0 == null ? null : arg0.getClass())
+        );
+    }
+
+    private static Object comparatorShape(final FieldComparator<?> fieldComparator) {
+        return Arrays.asList(fieldComparator.getField(), fieldComparator.isReversed(), fieldComparator.getNullOrder());
+    }
+
+    private static Object projectionShape(final Projection<?> projection) {
+        return Arrays.asList(projection.entityClass(), projection.fields());
+    }
+
+    /**
+     * Returns the field predicates of the provided operations in a deterministic
+     * order, which is the same for all operations of the same shape.
+     */
+    private static List<FieldPredicate<?>> predicates(final List<IntermediateOperation<?, ?>> intermediateOperations) {
+        final List<FieldPredicate<?>> predicates = new ArrayList<>();
+
+        for (final IntermediateOperation<?, ?> operation : intermediateOperations) {
+            for (final Object argument : operation.arguments()) {
+                addPredicates(argument, predicates);
+            }
+        }
+
+        return predicates;
+    }
+
+    private static void addPredicates(final Object argument, final List<FieldPredicate<?>> predicates) {
+        if (argument instanceof FieldPredicate) {
+            predicates.add((FieldPredicate<?>) argument);
+        } else if (argument instanceof CombinedPredicate) {
+            ((CombinedPredicate<?>) argument).stream().forEachOrdered(member -> addPredicates(member, predicates));
+        }
+    }
+
+    private static int indexOf(final List<FieldPredicate<?>> predicates, final FieldPredicate<?> predicate) {
+        for (int i = 0; i < predicates.size(); i++) {
+            if (predicates.get(i) == predicate) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A query rendered from a pipeline, along with the operations that were merged
+     * into it and the predicates that the values of its parameters are taken from.
+     */
+    static final class RenderPlan {
+
+        private final CriteriaQuery<?> query;
+        private final List<QueryParameter<?>> parameters;
+        private final int[] sources;
+        private final int[] merged;
+
+        private RenderPlan(
+            final CriteriaQuery<?> query,
+            final List<QueryParameter<?>> parameters,
+            final int[] sources,
+            final int[] merged
+        ) {
+            this.query = query;
+            this.parameters = parameters;
+            this.sources = sources;
+            this.merged = merged;
+        }
+
+        /**
+         * Creates a plan for the provided {@code criteria}, or returns
+         * {@code Optional.empty()} if the rendering can not be repeated
+         * for other pipelines of the same shape.
+         *
+         * @param intermediateOperations the operations of the pipeline before merging
+         * @param remaining              the operations of the pipeline after merging
+         * @param criteria               that the pipeline was merged into
+         * @return a plan for the provided {@code criteria}, or {@code Optional.empty()}
+         * if the rendering can not be repeated
+         */
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        static Optional<RenderPlan> create(
+            final List<IntermediateOperation<?, ?>> intermediateOperations,
+            final List<IntermediateOperation<?, ?>> remaining,
+            final Criteria<?, ?> criteria
+        ) {
+            final Optional<int[]> merged = mergedIndices(intermediateOperations, remaining);
+
+            if (!merged.isPresent()) {
+                return Optional.empty();
+            }
+
+            final List<FieldPredicate<?>> predicates = predicates(intermediateOperations);
+            final List<QueryParameter<?>> parameters = new ArrayList<>((List) criteria.getQueryParameters());
+            final int[] sources = new int[parameters.size()];
+
+            for (int i = 0; i < parameters.size(); i++) {
+                final Optional<FieldPredicate<?>> source = parameters.get(i).getSource();
+                if (!source.isPresent()) {
+                    return Optional.empty();
+                }
+
+                sources[i] = indexOf(predicates, source.get());
+                if (sources[i] < 0) {
+                    return Optional.empty();
+                }
+            }
+
+            return Optional.of(new RenderPlan(
+                criteria.getQuery(),
+                parameters,
+                sources,
+                merged.get()
+            ));
+        }
+
+        /**
+         * Returns the query of this plan.
+         *
+         * @return the query of this plan
+         */
+        CriteriaQuery<?> query() {
+            return query;
+        }
+
+        /**
+         * Returns the values of the parameters of this plan for the provided
+         * operations, which must have the shape of the operations this plan was
+         * created from.
+         *
+         * @param intermediateOperations to take the values from
+         * @return the values of the parameters of this plan
+         */
+        List<Object> values(final List<IntermediateOperation<?, ?>> intermediateOperations) {
+            final List<FieldPredicate<?>> predicates = predicates(intermediateOperations);
+            final List<Object> values = new ArrayList<>(parameters.size());
+
+            for (int i = 0; i < parameters.size(); i++) {
+                values.add(parameters.get(i).getValue(predicates.get(sources[i])));
+            }
+
+            return values;
+        }
+
+        /**
+         * Removes the operations that were merged into the query of this plan
+         * from the provided operations.
+         *
+         * @param intermediateOperations to remove the merged operations from
+         */
+        void removeMerged(final List<IntermediateOperation<?, ?>> intermediateOperations) {
+            removeIndices(intermediateOperations, merged);
+        }
+
+        /**
+         * Creates the query of this plan bound to the provided {@code values}.
+         *
+         * @param entityManager to create the query with
+         * @param values        of the parameters of this plan
+         * @return the query of this plan bound to the provided {@code values}
+         */
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        TypedQuery<?> createQuery(final EntityManager entityManager, final List<Object> values) {
+            final TypedQuery<?> typedQuery = entityManager.createQuery(query);
+
+            for (int i = 0; i < parameters.size(); i++) {
+                typedQuery.setParameter((Parameter) parameters.get(i).getParameterExpression(), values.get(i));
+            }
+
+            return typedQuery;
+        }
+    }
+
+    /**
+     * Returns the indices of the provided {@code intermediateOperations} that are not
+     * among the provided {@code remaining} operations, or {@code Optional.empty()} if
+     * the remaining operations were not all taken from the intermediate operations.
+     *
+     * @param intermediateOperations before merging
+     * @param remaining              after merging
+     * @return the indices of the operations that were merged
+     */
+    static Optional<int[]> mergedIndices(
+        final List<IntermediateOperation<?, ?>> intermediateOperations,
+        final List<IntermediateOperation<?, ?>> remaining
+    ) {
+        final List<Integer> merged = new ArrayList<>();
+
+        int j = 0;
+        for (int i = 0; i < intermediateOperations.size(); i++) {
+            if (j < remaining.size() && remaining.get(j) == intermediateOperations.get(i)) {
+                j++;
+            } else {
+                merged.add(i);
+            }
+        }
+
+        if (j != remaining.size()) {
+            // The remaining operations were not all taken from the pipeline (e.g. a partially merged filter)
+            return Optional.empty();
+        }
+
+        return Optional.of(merged.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Removes the operations at the provided ascending {@code indices}.
+     *
+     * @param intermediateOperations to remove operations from
+     * @param indices                of the operations to remove
+     */
+    static void removeIndices(final List<IntermediateOperation<?, ?>> intermediateOperations, final int[] indices) {
+        for (int i = indices.length - 1; i >= 0; i--) {
+            intermediateOperations.remove(indices[i]);
+        }
+    }
+}
@@ -16,147 +16,714 @@ import static java.util.Objects.requireNonNull;
 
 import com.speedment.jpastreamer.criteria.Criteria;
 import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.field.Field;
 import com.speedment.jpastreamer.interopoptimizer.IntermediateOperationOptimizerFactory;
 import com.speedment.jpastreamer.merger.CriteriaMerger;
 import com.speedment.jpastreamer.merger.MergerFactory;
 import com.speedment.jpastreamer.merger.QueryMerger;
 import com.speedment.jpastreamer.pipeline.Pipeline;
 import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
 import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
 import com.speedment.jpastreamer.projection.Projection;
+import com.speedment.jpastreamer.renderer.Cancellation;
 import com.speedment.jpastreamer.renderer.RenderResult;
 import com.speedment.jpastreamer.renderer.Renderer;
+import com.speedment.jpastreamer.renderer.RendererConfiguration;
 import com.speedment.jpastreamer.rootfactory.RootFactory;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import com.speedment.jpastreamer.termopoptimizer.TerminalOperationOptimizerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CompoundSelection;
-import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 final class StandardRenderer implements Renderer {
 
-    private final EntityManager entityManager;
+    private final EntityManagerPool entityManagerPool;
     private final CriteriaFactory criteriaFactory;
 
     private final IntermediateOperationOptimizerFactory intermediateOperationOptimizerFactory;
 
+    private final TerminalOperationOptimizerFactory terminalOperationOptimizerFactory;
+
     private final MergerFactory mergerFactory;
 
+    private final AggregateRenderer aggregateRenderer;
+
+    private final CountRenderer countRenderer;
+
+    private final KeysetRenderer keysetRenderer;
+
+    private final ProjectionRenderer projectionRenderer;
+
+    private final InListChunker inListChunker;
+
+    private final RenderPlanCache renderPlanCache;
+
+    private final PersistenceContextClearer persistenceContextClearer;
+
+    private final FetchSizer fetchSizer;
+
+    private final QueryConfigurer queryConfigurer;
+
+    private final PartitionedScan partitionedScan;
+
+    private final Prefetcher prefetcher;
+
+    private final StatementCanceller statementCanceller;
+
+    private final StandardResultCache resultCache;
+
     StandardRenderer(final EntityManagerFactory entityManagerFactory) {
         this(entityManagerFactory::createEntityManager); 
     }
 
     StandardRenderer(final Supplier<EntityManager> entityManagerSupplier) {
-        this.entityManager = requireNonNull(entityManagerSupplier).get();
-        this.criteriaFactory = RootFactory.getOrThrow(CriteriaFactory.class, ServiceLoader::load);
-        this.intermediateOperationOptimizerFactory = RootFactory.getOrThrow(IntermediateOperationOptimizerFactory.class, ServiceLoader::load);
-        this.mergerFactory = RootFactory.getOrThrow(MergerFactory.class, ServiceLoader::load);
+        this(entityManagerSupplier, RendererConfiguration.defaults());
+    }
+
+    StandardRenderer(final Supplier<EntityManager> entityManagerSupplier, final RendererConfiguration configuration) {
+        this(configuration.ownedEntityManagers()
+                ? new EntityManagerPool(entityManagerSupplier, configuration.poolSize(), configuration.leaseTimeout())
+                : EntityManagerPool.supplied(entityManagerSupplier),
+            configuration);
     }
     
     StandardRenderer(final EntityManager entityManager) {
-        this.entityManager = entityManager; 
+        this(EntityManagerPool.shared(entityManager), RendererConfiguration.defaults());
+    }
+
+    private StandardRenderer(final EntityManagerPool entityManagerPool, final RendererConfiguration configuration) {
+        this.entityManagerPool = entityManagerPool;
         this.criteriaFactory = RootFactory.getOrThrow(CriteriaFactory.class, ServiceLoader::load);
         this.intermediateOperationOptimizerFactory = RootFactory.getOrThrow(IntermediateOperationOptimizerFactory.class, ServiceLoader::load);
+        this.terminalOperationOptimizerFactory = RootFactory.getOrThrow(TerminalOperationOptimizerFactory.class, ServiceLoader::load);
         this.mergerFactory = RootFactory.getOrThrow(MergerFactory.class, ServiceLoader::load);
+        this.aggregateRenderer = new AggregateRenderer(criteriaFactory);
+        this.countRenderer = new CountRenderer(criteriaFactory);
+        this.keysetRenderer = new KeysetRenderer();
+        this.projectionRenderer = new ProjectionRenderer(criteriaFactory);
+        // EntityManagers that are not owned may be used by their owner while a stream is open, so their
+        // persistence context is never cleared, they are never used from another thread and their last
+        // statement may belong to their owner
+        final boolean owned = entityManagerPool.isOwned();
+        final EntityManager entityManager = entityManagerPool.lease();
+        try {
+            final Map<String, Object> properties = entityManager.getEntityManagerFactory().getProperties();
+            this.inListChunker = new InListChunker(configuration.inChunkSize().orElseGet(() -> InListChunker.resolveChunkSize(properties)));
+            this.fetchSizer = new FetchSizer(properties, configuration.serverSideCursors());
+            this.queryConfigurer = new QueryConfigurer(fetchSizer);
+            this.statementCanceller = new StatementCanceller(entityManager, owned && configuration.cancelOnClose());
+        } finally {
+            entityManagerPool.release(entityManager);
+        }
+        this.persistenceContextClearer = new PersistenceContextClearer(owned ? configuration.clearInterval() : 0);
+        this.prefetcher = new Prefetcher(owned ? configuration.prefetch() : 0);
+        this.partitionedScan = new PartitionedScan(owned ? configuration.partitions().orElseGet(ForkJoinPool::getCommonPoolParallelism) : 0);
+        this.renderPlanCache = new RenderPlanCache();
+        this.resultCache = (StandardResultCache) configuration.resultCache().orElse(null);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+        return render(pipeline, streamConfiguration, new Cancellation());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(
+        final Pipeline<E> pipeline,
+        final StreamConfiguration<E> streamConfiguration,
+        final Cancellation cancellation
+    ) {
+        requireNonNull(cancellation);
         optimizePipeline(pipeline);
+        optimizeTerminalOperation(pipeline);
+
+        // Parallel pipelines may be rendered as partitioned scans that modify the query
+        final Optional<List<Object>> shape = pipeline.isParallel()
+            ? Optional.empty()
+            : renderPlanCache.shape(pipeline, streamConfiguration);
+        if (shape.isPresent()) {
+            final Optional<RenderPlanCache.RenderPlan> plan = renderPlanCache.get(shape.get());
+            if (plan.isPresent()) {
+                return render(pipeline, streamConfiguration, cancellation, shape.get(), plan.get());
+            }
+        }
 
-        final Class<E> entityClass = pipeline.root();
+        final Lease lease = lease(pipeline, cancellation);
+        final EntityManager entityManager = lease.entityManager;
 
-        final CriteriaMerger criteriaMerger = mergerFactory.createCriteriaMerger();
-        final QueryMerger queryMerger = mergerFactory.createQueryMerger();
+        final List<IntermediateOperation<?, ?>> intermediateOperations = new ArrayList<>(pipeline.intermediateOperations());
 
-        final Criteria<E, E> criteria = criteriaFactory.createCriteria(entityManager, entityClass);
-        criteria.getRoot().alias(pipeline.root().getSimpleName());
+        final Optional<InListChunker.Chunks> chunks = inListChunker.chunk(pipeline);
+        if (chunks.isPresent()) {
+            final Optional<RenderResult<E, T, S>> chunked = renderChunks(entityManager, pipeline, streamConfiguration, cancellation, chunks.get());
+            if (chunked.isPresent()) {
+                return chunked.get();
+            }
+        }
 
-        // Makes SonarType happy:
-        final Optional<Projection<E>> oSelections = streamConfiguration.selections();
-        if (oSelections.isPresent()) {
-            final Projection<E> projection = oSelections.get();
-            final Path<?>[] columns = projection.fields().stream().map(field -> criteria.getRoot().get(field.columnName())).toArray(Path[]::new);
-            final CompoundSelection<E> selection = criteria.getBuilder().construct(projection.entityClass(), columns);
+        final Class<E> entityClass = pipeline.root();
 
-            criteria.getQuery().select(selection);
-        } else {
-            criteria.getQuery().select(criteria.getRoot());
-        }
+        final CriteriaMerger criteriaMerger = mergerFactory.createCriteriaMerger();
 
-        streamConfiguration.joins()
-                .forEach(joinConfiguration -> criteria.getRoot().fetch(joinConfiguration.field().columnName(), joinConfiguration.joinType()));
+        final Criteria<E, E> criteria = createCriteria(entityManager, pipeline, streamConfiguration);
 
         criteriaMerger.merge(pipeline, criteria);
 
-        if (pipeline.terminatingOperation().type() == TerminalOperationType.COUNT && pipeline.intermediateOperations().isEmpty()) {
-            final Criteria<E, Long> countCriteria = createCountCriteria(criteria);
-
-            final TypedQuery<Long> typedQuery = entityManager.createQuery(countCriteria.getQuery());
+        keysetRenderer.render(criteria, streamConfiguration);
 
-            countCriteria.getQueryParameters().forEach(
-                queryParameter -> typedQuery.setParameter(queryParameter.getParameterExpression(), queryParameter.getValue())
+        final Optional<TerminalOperation<?, ?>> aggregate = aggregateRenderer.render(entityManager, pipeline, criteria, streamConfiguration);
+        if (aggregate.isPresent()) {
+            return new StandardRenderResult<>(
+                    entityClass,
+                    (S) emptyStream(aggregate.get().streamType()),
+                    aggregate.get()
             );
+        }
+
+        final Optional<Field<E>> distinctField = projectionRenderer.distinctField(pipeline, criteria, streamConfiguration);
+
+        final Optional<Long> count = countRenderer.render(entityManager, pipeline, criteria, distinctField, streamConfiguration);
+
+        if (count.isPresent()) {
+            pipeline.intermediateOperations().clear();
 
             return (RenderResult<E, T, S>) new StandardRenderResult<>(
                     entityClass,
-                    typedQuery.getResultStream(),
+                    Stream.of(count.get()),
                     pipeline.terminatingOperation()
             );
         }
 
-        final TypedQuery<E> typedQuery = entityManager.createQuery(criteria.getQuery());
+        final Criteria<E, ?> selectCriteria = projectionRenderer.render(entityManager, pipeline, criteria, streamConfiguration).orElse(criteria);
+
+        if (pipeline.isParallel()) {
+            final Optional<Stream<Object>> partitioned = partitionedScan.scan(entityManagerPool, entityManager, pipeline, selectCriteria, streamConfiguration,
+                (rangeEntityManager, binder) -> {
+                    final TypedQuery<?> typedQuery = queryConfigurer.createQuery(rangeEntityManager, selectCriteria);
+                    queryConfigurer.configure(typedQuery, selectCriteria.getQuery(), rangeEntityManager, pipeline, streamConfiguration);
+                    binder.accept(typedQuery);
+                    return persistenceContextClearer.apply(rangeEntityManager, statementCanceller.apply(rangeEntityManager, (Stream<Object>) typedQuery.getResultStream()));
+                });
+
+            if (partitioned.isPresent()) {
+                // The ranges are read with EntityManagers of their own, which may be leased from a bounded pool
+                lease.release();
+                return result(pipeline, partitioned.get(), cancellation);
+            }
+        }
 
-        criteria.getQueryParameters().forEach(
-            queryParameter -> typedQuery.setParameter(queryParameter.getParameterExpression(), queryParameter.getValue())
-        );
+        final Optional<RenderPlanCache.RenderPlan> plan = shape.flatMap(s ->
+            RenderPlanCache.RenderPlan.create(intermediateOperations, pipeline.intermediateOperations(), selectCriteria));
+
+        if (plan.isPresent()) {
+            renderPlanCache.put(shape.get(), plan.get());
+
+            final Optional<List<Object>> resultKey = resultKey(shape.get(), plan.get().values(intermediateOperations), pipeline);
+            if (resultKey.isPresent()) {
+                return render(pipeline, queryConfigurer.configure(queryConfigurer.createQuery(entityManager, selectCriteria), selectCriteria.getQuery(), entityManager, pipeline, streamConfiguration), cancellation, resultKey.get());
+            }
+        }
+
+        return render(pipeline, entityManager, queryConfigurer.configure(queryConfigurer.createQuery(entityManager, selectCriteria), selectCriteria.getQuery(), entityManager, pipeline, streamConfiguration), cancellation);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Pipeline<?>, Long> renderCounts(final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+        requireNonNull(pipelines);
+
+        final EntityManager entityManager = entityManagerPool.lease();
+        try {
+            final Map<Class<?>, List<PlannedCount<?>>> plannedCounts = new LinkedHashMap<>();
+            pipelines.forEach((pipeline, streamConfiguration) ->
+                planCount(entityManager, (Pipeline<Object>) pipeline, (StreamConfiguration<Object>) streamConfiguration)
+                    .ifPresent(plannedCount -> plannedCounts.computeIfAbsent(pipeline.root(), entityClass -> new ArrayList<>()).add(plannedCount)));
+
+            final Map<Pipeline<?>, Long> counts = new IdentityHashMap<>();
+            plannedCounts.values().forEach(group -> count(entityManager, (List<PlannedCount<Object>>) (List<?>) group, counts));
+            return counts;
+        } finally {
+            entityManagerPool.release(entityManager);
+        }
+    }
+
+    /**
+     * Merges the provided count {@code pipeline} into criteria, if its count can
+     * be computed by a conditional aggregate, and otherwise restores its operations.
+     */
+    private <E> Optional<PlannedCount<E>> planCount(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        if (pipeline.terminatingOperation().type() != TerminalOperationType.COUNT
+            || streamConfiguration.selections().isPresent()
+            || !streamConfiguration.joins().isEmpty()) {
+            return Optional.empty();
+        }
+
+        final List<IntermediateOperation<?, ?>> original = new ArrayList<>(pipeline.intermediateOperations());
+
+        optimizePipeline(pipeline);
+        optimizeTerminalOperation(pipeline);
+
+        final Criteria<E, E> criteria = createCriteria(entityManager, pipeline, streamConfiguration);
+        mergerFactory.createCriteriaMerger().merge(pipeline, criteria);
+        keysetRenderer.render(criteria, streamConfiguration);
+
+        final Optional<LongUnaryOperator> plan = criteria.getQuery().isDistinct() || projectionRenderer.distinctField(pipeline, criteria, streamConfiguration).isPresent()
+            ? Optional.empty()
+            : countRenderer.plan(pipeline, Optional.empty());
+
+        if (!plan.isPresent()) {
+            restore(pipeline, original);
+            return Optional.empty();
+        }
+
+        return Optional.of(new PlannedCount<>(pipeline, original, criteria, streamConfiguration, plan.get()));
+    }
+
+    /**
+     * Computes the provided planned counts of the same entity using a single query,
+     * leaving the pipelines unmodified if the query fails so that they can be
+     * rendered individually.
+     */
+    private <E> void count(
+        final EntityManager entityManager,
+        final List<PlannedCount<E>> plannedCounts,
+        final Map<Pipeline<?>, Long> counts
+    ) {
+        final long[] rows;
+        try {
+            rows = countRenderer.count(
+                entityManager,
+                plannedCounts.get(0).pipeline.root(),
+                plannedCounts.stream().map(plannedCount -> plannedCount.criteria).collect(Collectors.toList()),
+                plannedCounts.stream().map(plannedCount -> plannedCount.streamConfiguration).collect(Collectors.toList())
+            );
+        } catch (RuntimeException e) {
+            plannedCounts.forEach(plannedCount -> restore(plannedCount.pipeline, plannedCount.original));
+            return;
+        }
+
+        for (int i = 0; i < rows.length; i++) {
+            final PlannedCount<E> plannedCount = plannedCounts.get(i);
+            plannedCount.pipeline.intermediateOperations().clear();
+            counts.put(plannedCount.pipeline, plannedCount.plan.applyAsLong(rows[i]));
+        }
+    }
+
+    private static void restore(final Pipeline<?> pipeline, final List<IntermediateOperation<?, ?>> original) {
+        pipeline.intermediateOperations().clear();
+        pipeline.intermediateOperations().addAll(original);
+    }
+
+    private static final class PlannedCount<E> {
+
+        private final Pipeline<E> pipeline;
+        private final List<IntermediateOperation<?, ?>> original;
+        private final Criteria<E, E> criteria;
+        private final StreamConfiguration<E> streamConfiguration;
+        private final LongUnaryOperator plan;
+
+        private PlannedCount(
+            final Pipeline<E> pipeline,
+            final List<IntermediateOperation<?, ?>> original,
+            final Criteria<E, E> criteria,
+            final StreamConfiguration<E> streamConfiguration,
+            final LongUnaryOperator plan
+        ) {
+            this.pipeline = pipeline;
+            this.original = original;
+            this.criteria = criteria;
+            this.streamConfiguration = streamConfiguration;
+            this.plan = plan;
+        }
+    }
+
+    /**
+     * Renders the provided {@code pipeline} using a cached {@code plan} for its
+     * {@code shape}, serving the results from the result cache if possible.
+     */
+    private <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(
+        final Pipeline<E> pipeline,
+        final StreamConfiguration<E> streamConfiguration,
+        final Cancellation cancellation,
+        final List<Object> shape,
+        final RenderPlanCache.RenderPlan plan
+    ) {
+        final List<Object> values = plan.values(pipeline.intermediateOperations());
+        plan.removeMerged(pipeline.intermediateOperations());
+
+        final Optional<List<Object>> resultKey = resultKey(shape, values, pipeline);
+        if (!resultKey.isPresent()) {
+            final EntityManager entityManager = lease(pipeline, cancellation).entityManager;
+            return render(pipeline, entityManager, queryConfigurer.configure(plan.createQuery(entityManager, values), plan.query(), entityManager, pipeline, streamConfiguration), cancellation);
+        }
+
+        final Optional<StandardResultCache.Entry> cached = resultCache.get(resultKey.get());
+        if (cached.isPresent()) {
+            RenderPlanCache.removeIndices(pipeline.intermediateOperations(), cached.get().merged());
+            return result(pipeline, cached.get().results().stream(), cancellation);
+        }
+
+        final EntityManager entityManager = lease(pipeline, cancellation).entityManager;
+        return render(pipeline, queryConfigurer.configure(plan.createQuery(entityManager, values), plan.query(), entityManager, pipeline, streamConfiguration), cancellation, resultKey.get());
+    }
+
+    /**
+     * Leases an {@code EntityManager} for rendering the provided {@code pipeline},
+     * which is released when the stream of the pipeline is closed, unless it is
+     * released before then. The statement of the {@code EntityManager} is cancelled
+     * if the provided {@code cancellation} is cancelled while it is leased.
+     */
+    private Lease lease(final Pipeline<?> pipeline, final Cancellation cancellation) {
+        final EntityManager entityManager = entityManagerPool.lease();
+        final Lease lease = new Lease(entityManager, cancellation.onCancel(() -> statementCanceller.cancel(entityManager)));
+        pipeline.closeHandlers().add(lease::release);
+        return lease;
+    }
+
+    private final class Lease {
+
+        private final EntityManager entityManager;
+        private final Runnable deregistration;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(final EntityManager entityManager, final Runnable deregistration) {
+            this.entityManager = entityManager;
+            this.deregistration = deregistration;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                // The statement of a released EntityManager may belong to another stream
+                deregistration.run();
+                entityManagerPool.release(entityManager);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the results of the provided {@code pipeline} in the result
+     * cache, or {@code Optional.empty()} if there is no result cache. The key is
+     * composed of the shape of the pipeline, the values bound to its query and
+     * the arguments of the remaining operations that may be merged into the query
+     * (e.g. {@code skip} and {@code limit}).
+     */
+    private Optional<List<Object>> resultKey(
+        final List<Object> shape,
+        final List<Object> values,
+        final Pipeline<?> pipeline
+    ) {
+        if (resultCache == null) {
+            return Optional.empty();
+        }
+
+        final List<Object> key = new ArrayList<>(shape);
+        key.addAll(values);
+        for (final IntermediateOperation<?, ?> operation : pipeline.intermediateOperations()) {
+            for (final Object argument : operation.arguments()) {
+                if (argument instanceof Long) {
+                    key.add(argument);
+                }
+            }
+        }
+        return Optional.of(key);
+    }
+
+    /**
+     * Renders the provided {@code typedQuery} like {@link #render(Pipeline, EntityManager, TypedQuery, Cancellation)}
+     * but reads all of its results at once and caches them under the provided
+     * {@code resultKey}.
+     */
+    private <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(
+        final Pipeline<E> pipeline,
+        final TypedQuery<?> typedQuery,
+        final Cancellation cancellation,
+        final List<Object> resultKey
+    ) {
+        final long generation = resultCache.generation();
+
+        final List<IntermediateOperation<?, ?>> unmerged = new ArrayList<>(pipeline.intermediateOperations());
+        mergerFactory.createQueryMerger().merge(pipeline, typedQuery);
+
+        final List<?> results = typedQuery.getResultList();
+
+        RenderPlanCache.mergedIndices(unmerged, pipeline.intermediateOperations())
+            .ifPresent(merged -> resultCache.put(resultKey, results, merged, generation));
+
+        return result(pipeline, results.stream(), cancellation);
+    }
+
+    /**
+     * Merges the remaining operations of the provided {@code pipeline} that affect the
+     * size of the result (e.g. {@code skip} and {@code limit}) into the provided
+     * {@code typedQuery} and applies the other remaining operations to its results.
+     */
+    @SuppressWarnings("unchecked")
+    private <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(
+        final Pipeline<E> pipeline,
+        final EntityManager entityManager,
+        final TypedQuery<?> typedQuery,
+        final Cancellation cancellation
+    ) {
+        final QueryMerger queryMerger = mergerFactory.createQueryMerger();
 
         queryMerger.merge(pipeline, typedQuery);
 
-        final Stream<E> baseStream = typedQuery.getResultStream();
-        final S replayed = replay(baseStream, pipeline);
+        return result(pipeline, results(entityManager, pipeline, typedQuery.getMaxResults(), typedQuery.getResultStream()), cancellation);
+    }
+
+    /**
+     * Returns a stream of the provided {@code rows} of the provided {@code entityManager},
+     * which are read ahead and cleared as configured, and whose statement is cancelled
+     * if the stream is closed before the rows are exhausted. The statement is cancelled
+     * before the rows are closed, so that a producer reading the rows ahead stops
+     * waiting for the database before it is joined. The number of consumed rows is
+     * observed to choose the fetch size of later streams, unless the query returns at
+     * most {@code maxResults} rows.
+     */
+    private <E> Stream<E> results(final EntityManager entityManager, final Pipeline<?> pipeline, final int maxResults, final Stream<E> rows) {
+        return statementCanceller.apply(entityManager,
+            fetchSizer.observe(FetchSizer.shape(pipeline), maxResults, prefetcher.apply(entityManager, rows, persistenceContextClearer)));
+    }
+
+    /**
+     * Applies the remaining operations of the provided {@code pipeline} to the
+     * provided {@code results}, which stop once the provided {@code cancellation}
+     * is cancelled.
+     */
+    @SuppressWarnings("unchecked")
+    private <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> result(
+        final Pipeline<E> pipeline,
+        final Stream<?> results,
+        final Cancellation cancellation
+    ) {
+        final S replayed = replay((Stream<E>) cancellable(results, cancellation), pipeline);
+        // Closes the results before the EntityManager that produced them is released
+        pipeline.closeHandlers().add(0, replayed::close);
 
         return new StandardRenderResult<>(
-                entityClass,
+                pipeline.root(),
                 replayed,
                 pipeline.terminatingOperation()
         );
     }
 
-    private <T> Criteria<T, Long> createCountCriteria(final Criteria<T, T> criteria) {
-        final CriteriaQuery<T> criteriaQuery = criteria.getQuery();
+    /**
+     * Returns a stream of the provided {@code rows} that stops with a
+     * {@code CancellationException} once the provided {@code cancellation} is
+     * cancelled (e.g. when an asynchronous stream operation is cancelled), so
+     * that the stream is closed without reading further rows. The thread
+     * consuming the rows is not interrupted, as interrupting a thread that is
+     * reading from the database may close its connection.
+     */
+    private static <R> Stream<R> cancellable(final Stream<R> rows, final Cancellation cancellation) {
+        return rows.peek(row -> {
+            if (cancellation.isCancelled()) {
+                throw new CancellationException("The stream was cancelled");
+            }
+        });
+    }
 
-        final Criteria<T, Long> countCriteria = criteriaFactory.createCriteria(
-            entityManager,
-            criteriaQuery.getResultType(),
-            Long.class
-        );
+    /**
+     * Renders a pipeline with an oversized {@code IN} filter as one query per chunk
+     * of values. As the chunks select disjoint rows, the results of the queries are
+     * concatenated, or merged in the order of the {@code sorted} operations rendered
+     * to the database. Operations after the filters and sorts (e.g. {@code skip} and
+     * {@code limit}) are applied to the combined results, and the {@code count}
+     * terminal operation is computed from the sum of the counts of the chunks.
+     * <p>
+     * Returns {@code Optional.empty()}, leaving the pipeline unchanged, if the
+     * chunked filter can not be rendered to the database.
+     */
+    @SuppressWarnings("unchecked")
+    private <E, T, S extends BaseStream<T, S>> Optional<RenderResult<E, T, S>> renderChunks(
+        final EntityManager entityManager,
+        final Pipeline<E> pipeline,
+        final StreamConfiguration<E> streamConfiguration,
+        final Cancellation cancellation,
+        final InListChunker.Chunks chunks
+    ) {
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+        final List<IntermediateOperation<?, ?>> original = new ArrayList<>(intermediateOperations);
+
+        final CriteriaMerger criteriaMerger = mergerFactory.createCriteriaMerger();
+
+        final List<Criteria<E, E>> chunkCriteria = new ArrayList<>();
+        Comparator<E> comparator = null;
+
+        for (final IntermediateOperation<?, ?> filter : chunks.filters()) {
+            intermediateOperations.clear();
+            intermediateOperations.addAll(original);
+            intermediateOperations.set(chunks.index(), filter);
+
+            final List<IntermediateOperation<?, ?>> unmerged = new ArrayList<>(intermediateOperations);
+
+            final Criteria<E, E> criteria = createCriteria(entityManager, pipeline, streamConfiguration);
+            criteriaMerger.merge(pipeline, criteria);
+
+            if (containsOperation(intermediateOperations, filter)) {
+                intermediateOperations.clear();
+                intermediateOperations.addAll(original);
+                return Optional.empty();
+            }
+
+            keysetRenderer.render(criteria, streamConfiguration);
+
+            if (chunkCriteria.isEmpty()) {
+                comparator = mergedOrder(entityManager, unmerged, intermediateOperations, streamConfiguration);
+            }
+
+            chunkCriteria.add(criteria);
+        }
 
-        criteria.getQueryParameters().forEach(countCriteria::addQueryParameter);
+        final Class<E> entityClass = pipeline.root();
+
+        final Optional<LongUnaryOperator> countPlan = countRenderer.plan(pipeline, Optional.empty());
+        if (countPlan.isPresent()) {
+            final long count = chunkCriteria.stream()
+                .mapToLong(criteria -> countRenderer.count(entityManager, criteria, Optional.empty(), streamConfiguration))
+                .sum();
+
+            intermediateOperations.clear();
+
+            return Optional.of((RenderResult<E, T, S>) new StandardRenderResult<>(
+                entityClass,
+                Stream.of(countPlan.get().applyAsLong(count)),
+                pipeline.terminatingOperation()
+            ));
+        }
+
+        // The first skip + limit elements of the combined results are among the first skip + limit rows of each chunk
+        final int maxResults = QueryConfigurer.maxResults(intermediateOperations);
+
+        final List<Supplier<Stream<E>>> results = chunkCriteria.stream()
+            .map(criteria -> (Supplier<Stream<E>>) () ->
+                (Stream<E>) queryConfigurer.configure(queryConfigurer.createQuery(entityManager, criteria), criteria.getQuery(), entityManager, pipeline, streamConfiguration).setMaxResults(maxResults).getResultStream())
+            .collect(Collectors.toList());
 
-        countCriteria.getRoot().alias(criteria.getRoot().getAlias());
+        // The chunks are read using the same EntityManager, whose last statement is the one being read
+        final Stream<E> baseStream = results(entityManager, pipeline, maxResults, comparator == null
+            ? results.stream().flatMap(Supplier::get)
+            : MergeSortedIterator.stream(results, comparator));
 
-        final CriteriaQuery<Long> countQuery = countCriteria.getQuery();
+        final S replayed = replay(cancellable(baseStream, cancellation), pipeline);
+        pipeline.closeHandlers().add(0, replayed::close);
 
-        countQuery.select(countCriteria.getBuilder().count(countCriteria.getRoot()));
+        return Optional.of(new StandardRenderResult<>(
+            entityClass,
+            replayed,
+            pipeline.terminatingOperation()
+        ));
+    }
 
-        if (criteriaQuery.getRestriction() != null) {
-            countQuery.where(criteriaQuery.getRestriction());
+    /**
+     * Returns a comparator that corresponds to the order of the {@code sorted}
+     * operations that were merged into the criteria, or {@code null} if no order
+     * was rendered.
+     */
+    @SuppressWarnings("unchecked")
+    private <E> Comparator<E> mergedOrder(
+        final EntityManager entityManager,
+        final List<IntermediateOperation<?, ?>> unmerged,
+        final List<IntermediateOperation<?, ?>> remaining,
+        final StreamConfiguration<E> streamConfiguration
+    ) {
+        Comparator<E> comparator = null;
+
+        for (final IntermediateOperation<?, ?> operation : unmerged) {
+            if (operation.type() == IntermediateOperationType.SORTED && !containsOperation(remaining, operation)) {
+                final Object[] arguments = operation.arguments();
+                final Comparator<E> order = arguments.length == 1 && arguments[0] instanceof Comparator
+                    ? (Comparator<E>) arguments[0]
+                    : idOrder(entityManager);
+
+                comparator = comparator == null ? order : comparator.thenComparing(order);
+            }
         }
 
-        countQuery.distinct(criteriaQuery.isDistinct());
-        countQuery.orderBy(criteria.getQuery().getOrderList());
+        if (streamConfiguration.seekAfter().isPresent()) {
+            comparator = comparator == null ? idOrder(entityManager) : comparator.thenComparing(idOrder(entityManager));
+        }
 
-        return countCriteria;
+        return comparator;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <E> Comparator<E> idOrder(final EntityManager entityManager) {
+        final PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        return Comparator.comparing(entity -> (Comparable) persistenceUnitUtil.getIdentifier(entity));
+    }
+
+    private boolean containsOperation(final List<IntermediateOperation<?, ?>> intermediateOperations, final IntermediateOperation<?, ?> operation) {
+        return intermediateOperations.stream().anyMatch(intermediateOperation -> intermediateOperation == operation);
+    }
+
+    private <E> Criteria<E, E> createCriteria(final EntityManager entityManager, final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration) {
+        final Criteria<E, E> criteria = criteriaFactory.createCriteria(entityManager, pipeline.root());
+        criteria.getRoot().alias(pipeline.root().getSimpleName());
+
+        // Makes SonarType happy:
+        final Optional<Projection<E>> oSelections = streamConfiguration.selections();
+        if (oSelections.isPresent()) {
+            final Projection<E> projection = oSelections.get();
+            final Path<?>[] columns = projection.fields().stream().map(field -> criteria.getRoot().get(field.columnName())).toArray(Path[]::new);
+            final CompoundSelection<E> selection = criteria.getBuilder().construct(projection.entityClass(), columns);
+
+            criteria.getQuery().select(selection);
+        } else {
+            criteria.getQuery().select(criteria.getRoot());
+        }
+
+        streamConfiguration.joins()
+                .forEach(joinConfiguration -> criteria.getRoot().fetch(joinConfiguration.field().columnName(), joinConfiguration.joinType()));
+
+        return criteria;
+    }
+
+    private BaseStream<?, ?> emptyStream(final Class<?> streamType) {
+        if (streamType == IntStream.class) {
+            return IntStream.empty();
+        }
+
+        if (streamType == LongStream.class) {
+            return LongStream.empty();
+        }
+
+        if (streamType == DoubleStream.class) {
+            return DoubleStream.empty();
+        }
+
+        return Stream.empty();
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -182,8 +749,13 @@ final class StandardRenderer implements Renderer {
         intermediateOperationOptimizerFactory.stream().forEach(intermediateOperationOptimizer -> intermediateOperationOptimizer.optimize(pipeline));
     }
 
+    private <T> void optimizeTerminalOperation(final Pipeline<T> pipeline) {
+        terminalOperationOptimizerFactory.get().optimize(pipeline);
+    }
+
     @Override
     public void close() {
-        entityManager.close();
+        prefetcher.close();
+        entityManagerPool.close();
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.renderer.ResultCache;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A {@link ResultCache} that evicts the least recently used results once its
+ * maximum size is exceeded, and expires results once they have been cached
+ * longer than its time to live.
+ * <p>
+ * Results are keyed by the shape of the rendered query (see
+ * {@link RenderPlanCache#shape}) together with the values bound to it. Cached
+ * entities are shared between streams and should hence be treated as read-only.
+ */
+final class StandardResultCache implements ResultCache {
+
+    private final long maximumSize;
+    private final long timeToLiveNanos;
+
+    // Guarded by this
+    private final Map<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    StandardResultCache(final long maximumSize, final Duration timeToLive) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        if (requireNonNull(timeToLive).isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("The time to live must be positive: " + timeToLive);
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = saturatedNanos(timeToLive);
+    }
+
+    /**
+     * Returns the entry cached for the provided {@code key}, or
+     * {@code Optional.empty()} if there is no such entry or it has expired.
+     *
+     * @param key of the entry
+     * @return the entry cached for the provided {@code key}
+     */
+    synchronized Optional<Entry> get(final List<Object> key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Returns the current generation of this cache, which is advanced by every
+     * invalidation. The generation must be obtained before the results
+     * to cache are read from the database.
+     *
+     * @return the current generation of this cache
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches the provided {@code results} under the provided {@code key}, unless
+     * the cache has been invalidated since the provided {@code generation}
+     * was obtained, in which case the results may be stale.
+     *
+     * @param key        of the entry
+     * @param results    to cache
+     * @param merged     indices of the operations that were merged into the query
+     *                   that read the results
+     * @param generation of the cache when the results were read
+     */
+    synchronized void put(final List<Object> key, final List<?> results, final int[] merged, final long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+
+        entries.put(key, new Entry(Collections.unmodifiableList(results), merged, System.nanoTime() + timeToLiveNanos));
+
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maximumSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        entries.clear();
+        generation++;
+    }
+
+    @Override
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    private static long saturatedNanos(final Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE / 2;
+        }
+    }
+
+    static final class Entry {
+
+        private final List<?> results;
+        private final int[] merged;
+        private final long expiresAt;
+
+        private Entry(final List<?> results, final int[] merged, final long expiresAt) {
+            this.results = results;
+            this.merged = merged;
+            this.expiresAt = expiresAt;
+        }
+
+        List<?> results() {
+            return results;
+        }
+
+        int[] merged() {
+            return merged;
+        }
+    }
+}
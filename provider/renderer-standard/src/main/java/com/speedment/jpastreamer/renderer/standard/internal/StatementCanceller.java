@@ -0,0 +1,174 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cancels the statement of a stream that is closed before its results are
+ * exhausted (e.g. after {@code anyMatch}, an in-memory {@code limit} or an
+ * exception), so that the database stops executing the statement instead of
+ * producing rows that are never read, which some drivers also read in full
+ * when the results are closed.
+ * <p>
+ * JPA does not expose the statements of queries, so statements are cancelled
+ * using the {@code JdbcCoordinator} of Hibernate sessions. The results of other
+ * persistence providers are only closed. Cancellation of streams that are
+ * closed early can be disabled by {@code RendererConfiguration.withCancelOnClose(boolean)},
+ * as some drivers cancel statements using a separate connection. Statements
+ * are still cancelled when {@link #cancel(EntityManager) requested} explicitly,
+ * e.g. by cancelling an asynchronous stream operation.
+ */
+final class StatementCanceller {
+
+    private static final String HIBERNATE_SESSION = "org.hibernate.engine.spi.SessionImplementor";
+    private static final String HIBERNATE_JDBC_COORDINATOR = "org.hibernate.engine.jdbc.spi.JdbcCoordinator";
+
+    private final Optional<Canceller> canceller;
+    private final boolean cancelOnClose;
+
+    StatementCanceller(final EntityManager entityManager, final boolean cancelOnClose) {
+        this.canceller = Canceller.resolve(requireNonNull(entityManager));
+        this.cancelOnClose = cancelOnClose;
+    }
+
+    /**
+     * Returns a stream of the provided {@code rows} that cancels the last statement
+     * of the provided {@code entityManager} if the stream is closed before the rows
+     * are exhausted.
+     *
+     * @param entityManager that produces the rows
+     * @param rows          to stream
+     * @param <E>           the row type
+     * @return a stream of the provided {@code rows}
+     */
+    <E> Stream<E> apply(final EntityManager entityManager, final Stream<E> rows) {
+        if (!cancelOnClose || !canceller.isPresent()) {
+            return rows;
+        }
+
+        final Canceller statementCanceller = canceller.get();
+        final ExhaustionSpliterator<E> spliterator = new ExhaustionSpliterator<>(rows.spliterator());
+        return StreamSupport.stream(spliterator, false)
+            .onClose(() -> {
+                try {
+                    if (!spliterator.exhausted) {
+                        statementCanceller.cancel(entityManager);
+                    }
+                } finally {
+                    rows.close();
+                }
+            });
+    }
+
+    /**
+     * Cancels the last statement of the provided {@code entityManager}, if
+     * the persistence provider supports it. The statement may be cancelled
+     * from another thread than the one reading its results.
+     *
+     * @param entityManager whose last statement to cancel
+     */
+    void cancel(final EntityManager entityManager) {
+        canceller.ifPresent(statementCanceller -> statementCanceller.cancel(entityManager));
+    }
+
+    private static final class Canceller {
+
+        private final Class<?> sessionClass;
+        private final Method getJdbcCoordinator;
+        private final Method cancelLastQuery;
+
+        private Canceller(final Class<?> sessionClass, final Method getJdbcCoordinator, final Method cancelLastQuery) {
+            this.sessionClass = sessionClass;
+            this.getJdbcCoordinator = getJdbcCoordinator;
+            this.cancelLastQuery = cancelLastQuery;
+        }
+
+        private static Optional<Canceller> resolve(final EntityManager entityManager) {
+            try {
+                final ClassLoader classLoader = entityManager.getClass().getClassLoader();
+                final Class<?> sessionClass = Class.forName(HIBERNATE_SESSION, false, classLoader);
+                if (!sessionClass.isInstance(entityManager.getDelegate()) && !sessionClass.isInstance(entityManager)) {
+                    return Optional.empty();
+                }
+                final Class<?> jdbcCoordinatorClass = Class.forName(HIBERNATE_JDBC_COORDINATOR, false, classLoader);
+                return Optional.of(new Canceller(
+                    sessionClass,
+                    sessionClass.getMethod("getJdbcCoordinator"),
+                    jdbcCoordinatorClass.getMethod("cancelLastQuery")
+                ));
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // Not a Hibernate session
+                return Optional.empty();
+            }
+        }
+
+        private void cancel(final EntityManager entityManager) {
+            try {
+                final Object jdbcCoordinator = getJdbcCoordinator.invoke(entityManager.unwrap(sessionClass));
+                cancelLastQuery.invoke(jdbcCoordinator);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // The statement is closed with the results, which cancellation is only meant to hasten
+            }
+        }
+    }
+
+    private static final class ExhaustionSpliterator<E> implements Spliterator<E> {
+
+        private final Spliterator<E> delegate;
+
+        private volatile boolean exhausted;
+
+        private ExhaustionSpliterator(final Spliterator<E> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super E> action) {
+            if (delegate.tryAdvance(action)) {
+                return true;
+            }
+            exhausted = true;
+            return false;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics() & ~(SIZED | SUBSIZED);
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+}
@@ -19,6 +19,8 @@ module jpastreamer.renderer.standard {
     requires jpastreamer.criteria;
     requires jpastreamer.merger;
     requires jpastreamer.interopoptimizer;
+    requires jpastreamer.termopoptimizer;
+    requires jpastreamer.field;
 
     exports com.speedment.jpastreamer.renderer.standard;
     // Todo: Enable this
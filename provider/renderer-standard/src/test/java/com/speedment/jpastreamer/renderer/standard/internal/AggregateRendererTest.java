@@ -0,0 +1,141 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.field.collector.FieldCollectors;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.util.Collections;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
+
+final class AggregateRendererTest extends AbstractPipelineTest {
+
+    private EntityManager entityManager;
+    private Criteria<Film, Film> criteria;
+    private CriteriaBuilder builder;
+    private Root<Film> root;
+    private Path<Object> length;
+    private CriteriaQuery<Object> query;
+    private TypedQuery<Object> typedQuery;
+    private AggregateRenderer renderer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        criteria = mock(Criteria.class);
+        builder = mock(CriteriaBuilder.class);
+        root = mock(Root.class);
+        length = mock(Path.class);
+        query = mock(CriteriaQuery.class);
+        typedQuery = mock(TypedQuery.class);
+
+        when(criteria.getRoot()).thenReturn(mock(Root.class));
+        when(criteria.getQuery()).thenReturn(mock(CriteriaQuery.class));
+
+        final Criteria<Film, Object> aggregateCriteria = mock(Criteria.class);
+        when(aggregateCriteria.getBuilder()).thenReturn(builder);
+        when(aggregateCriteria.getRoot()).thenReturn(root);
+        when(aggregateCriteria.getQuery()).thenReturn(query);
+        when(root.get("length")).thenReturn(length);
+        when(entityManager.createQuery(query)).thenReturn(typedQuery);
+
+        final CriteriaFactory criteriaFactory = mock(CriteriaFactory.class);
+        when(criteriaFactory.createCriteria(entityManager, Film.class, Object.class)).thenReturn(aggregateCriteria);
+
+        renderer = new AggregateRenderer(criteriaFactory);
+    }
+
+    @Test
+    void sum() {
+        when(typedQuery.getSingleResult()).thenReturn(new Object[]{3L, 3L, 60L});
+
+        assertEquals(Optional.of(60), result(mapToLength(intTerminalOperationFactory.acquireSum())));
+    }
+
+    @Test
+    void summaryStatisticsCountsRows() {
+        final Expression<Long> rows = mock(Expression.class);
+        when(builder.count(root)).thenReturn(rows);
+        when(typedQuery.getSingleResult()).thenReturn(new Object[]{3L, 3L, 60L, 10, 30});
+
+        final IntSummaryStatistics statistics = (IntSummaryStatistics) result(mapToLength(intTerminalOperationFactory.acquireSummaryStatistics())).get();
+
+        verify(builder).count(root);
+        assertEquals(3, statistics.getCount());
+        assertEquals(60, statistics.getSum());
+        assertEquals(10, statistics.getMin());
+        assertEquals(30, statistics.getMax());
+    }
+
+    @Test
+    void nullValuesAreLeftToTheStream() {
+        when(typedQuery.getSingleResult()).thenReturn(new Object[]{4L, 3L, 60L});
+
+        assertFalse(result(mapToLength(intTerminalOperationFactory.acquireSum())).isPresent());
+    }
+
+    @Test
+    void groupBy() {
+        when(typedQuery.getResultList()).thenReturn(Collections.singletonList(new Object[]{"A", 60, 3L, 3L}));
+
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.terminatingOperation(terminalOperationFactory.createCollect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.summingInt(Film$.length))));
+
+        assertEquals(Optional.of(Collections.singletonMap("A", 60)), result(pipeline).map(Map.class::cast));
+    }
+
+    @Test
+    void groupByNullValuesAreLeftToTheStream() {
+        when(typedQuery.getResultList()).thenReturn(Collections.singletonList(new Object[]{"A", 60, 4L, 3L}));
+
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.terminatingOperation(terminalOperationFactory.createCollect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.summingInt(Film$.length))));
+
+        assertFalse(result(pipeline).isPresent());
+    }
+
+    private Pipeline<Film> mapToLength(final TerminalOperation<?, ?> terminalOperation) {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMapToInt(Film$.length));
+        pipeline.terminatingOperation(terminalOperation);
+        return pipeline;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Object> result(final Pipeline<Film> pipeline) {
+        return renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class))
+            .map(terminalOperation -> ((TerminalOperation<?, Object>) terminalOperation).function().apply(null));
+    }
+}
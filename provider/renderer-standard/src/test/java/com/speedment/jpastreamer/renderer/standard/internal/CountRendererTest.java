@@ -0,0 +1,227 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongUnaryOperator;
+
+final class CountRendererTest extends AbstractPipelineTest {
+
+    private EntityManager entityManager;
+    private CriteriaFactory criteriaFactory;
+    private CriteriaBuilder builder;
+    private Root<Film> root;
+    private CountRenderer renderer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        criteriaFactory = mock(CriteriaFactory.class);
+        builder = mock(CriteriaBuilder.class);
+        root = mock(Root.class);
+        renderer = new CountRenderer(criteriaFactory);
+    }
+
+    @Test
+    void skipAndLimit() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createSkip(2));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMap(Film::getTitle));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createLimit(5));
+        pipeline.terminatingOperation(terminalOperationFactory.acquireCount());
+
+        final LongUnaryOperator plan = renderer.plan(pipeline, Optional.empty()).get();
+
+        assertEquals(5, plan.applyAsLong(10));
+        assertEquals(1, plan.applyAsLong(3));
+        assertEquals(0, plan.applyAsLong(1));
+    }
+
+    @Test
+    void filterIsNotPlanned() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter((Film film) -> film.getTitle().isEmpty()));
+        pipeline.terminatingOperation(terminalOperationFactory.acquireCount());
+
+        assertFalse(renderer.plan(pipeline, Optional.empty()).isPresent());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void countDistinctCountsNull() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMap(Film$.title));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.acquireDistinct());
+        pipeline.terminatingOperation(terminalOperationFactory.acquireCount());
+
+        final CriteriaQuery query = mock(CriteriaQuery.class);
+        when(query.getResultType()).thenReturn(Film.class);
+        final Criteria<Film, Film> criteria = mock(Criteria.class);
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(mock(Root.class));
+
+        final CriteriaQuery<Long> countQuery = mock(CriteriaQuery.class);
+        final Criteria<Film, Long> countCriteria = countCriteria(countQuery);
+        when(criteriaFactory.createCriteria(entityManager, Film.class, Long.class)).thenReturn(countCriteria);
+
+        final Path title = mock(Path.class);
+        final Predicate isNull = mock(Predicate.class);
+        final Expression<Long> distinctValues = mock(Expression.class);
+        final Expression<Long> nullIndicator = mock(Expression.class);
+        final Expression<Long> containsNull = mock(Expression.class);
+        final Expression<Long> coalesced = mock(Expression.class);
+        final Expression<Long> total = mock(Expression.class);
+        final CriteriaBuilder.Case<Long> selectCase = mock(CriteriaBuilder.Case.class);
+        when(root.get("title")).thenReturn(title);
+        when(builder.isNull(title)).thenReturn(isNull);
+        when(builder.<Long>selectCase()).thenReturn(selectCase);
+        when(selectCase.when(isNull, 1L)).thenReturn(selectCase);
+        when(selectCase.otherwise(0L)).thenReturn(nullIndicator);
+        when(builder.max(nullIndicator)).thenReturn(containsNull);
+        when(builder.coalesce(containsNull, 0L)).thenReturn(coalesced);
+        when(builder.countDistinct(title)).thenReturn(distinctValues);
+        when(builder.sum(distinctValues, coalesced)).thenReturn(total);
+
+        final TypedQuery<Long> typedQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(countQuery)).thenReturn(typedQuery);
+        when(typedQuery.getSingleResult()).thenReturn(4L);
+
+        assertEquals(Optional.of(4L), renderer.render(entityManager, pipeline, criteria, Optional.of(Film$.title), StreamConfiguration.of(Film.class)));
+        verify(countQuery).select(total);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void countEach() {
+        final Predicate restriction = mock(Predicate.class);
+        final CriteriaQuery filteredQuery = mock(CriteriaQuery.class);
+        when(filteredQuery.getRestriction()).thenReturn(restriction);
+        final Criteria<Film, Film> filtered = mock(Criteria.class);
+        when(filtered.getQuery()).thenReturn(filteredQuery);
+        when(filtered.getRoot()).thenReturn(mock(Root.class));
+
+        final Criteria<Film, Film> all = mock(Criteria.class);
+        when(all.getQuery()).thenReturn(mock(CriteriaQuery.class));
+
+        final CriteriaQuery<Tuple> countQuery = mock(CriteriaQuery.class);
+        final Criteria<Film, Tuple> countCriteria = countCriteria(countQuery);
+        when(criteriaFactory.createCriteria(entityManager, Film.class, Tuple.class)).thenReturn(countCriteria);
+
+        final CriteriaBuilder.Case<Long> selectCase = mock(CriteriaBuilder.Case.class);
+        final Expression<Long> indicator = mock(Expression.class);
+        final Expression<Long> matches = mock(Expression.class);
+        final Expression<Long> rows = mock(Expression.class);
+        final CompoundSelection<Tuple> tuple = mock(CompoundSelection.class);
+        when(builder.<Long>selectCase()).thenReturn(selectCase);
+        when(selectCase.when(restriction, 1L)).thenReturn(selectCase);
+        when(selectCase.otherwise(0L)).thenReturn(indicator);
+        when(builder.sum(indicator)).thenReturn(matches);
+        when(builder.count(root)).thenReturn(rows);
+        when(builder.tuple(matches, rows)).thenReturn(tuple);
+
+        final Tuple result = mock(Tuple.class);
+        when(result.get(1)).thenReturn(7L);
+        final TypedQuery<Tuple> typedQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(countQuery)).thenReturn(typedQuery);
+        when(typedQuery.getSingleResult()).thenReturn(result);
+
+        final List<StreamConfiguration<Film>> streamConfigurations = Arrays.asList(
+            StreamConfiguration.of(Film.class).queryTimeout(Duration.ofSeconds(5)),
+            StreamConfiguration.of(Film.class).queryTimeout(Duration.ofSeconds(2))
+        );
+
+        // The sum of no rows is null
+        assertArrayEquals(new long[]{0, 7}, renderer.count(entityManager, Film.class, Arrays.asList(filtered, all), streamConfigurations));
+        verify(countQuery).select(tuple);
+        // The shared query times out after the shortest timeout of the streams
+        verify(typedQuery).setHint(QueryConfigurer.QUERY_TIMEOUT_HINT, 2000);
+    }
+
+    @Test
+    void queryTimeout() {
+        final TypedQuery<Long> typedQuery = countQuery(3L);
+        final StreamConfiguration<Film> streamConfiguration = StreamConfiguration.of(Film.class).queryTimeout(Duration.ofMillis(1500));
+
+        assertEquals(3L, renderer.count(entityManager, criteria(), Optional.empty(), streamConfiguration));
+        verify(typedQuery).setHint("javax.persistence.query.timeout", 1500);
+    }
+
+    @Test
+    void readOnly() {
+        final TypedQuery<Long> typedQuery = countQuery(3L);
+
+        assertEquals(3L, renderer.count(entityManager, criteria(), Optional.empty(), StreamConfiguration.of(Film.class).readOnly(true)));
+        // Pending changes are not flushed before the count of a read-only stream
+        verify(typedQuery).setFlushMode(FlushModeType.COMMIT);
+        verify(typedQuery).setHint("org.hibernate.readOnly", true);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Criteria<Film, Film> criteria() {
+        final CriteriaQuery query = mock(CriteriaQuery.class);
+        when(query.getResultType()).thenReturn(Film.class);
+        final Criteria<Film, Film> criteria = mock(Criteria.class);
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(mock(Root.class));
+        return criteria;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Long> countQuery(final long count) {
+        final CriteriaQuery<Long> countQuery = mock(CriteriaQuery.class);
+        when(criteriaFactory.createCriteria(entityManager, Film.class, Long.class)).thenReturn(countCriteria(countQuery));
+
+        final TypedQuery<Long> typedQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(countQuery)).thenReturn(typedQuery);
+        when(typedQuery.getSingleResult()).thenReturn(count);
+        return typedQuery;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> Criteria<Film, R> countCriteria(final CriteriaQuery<R> countQuery) {
+        final Criteria<Film, R> countCriteria = mock(Criteria.class);
+        when(countCriteria.getBuilder()).thenReturn(builder);
+        when(countCriteria.getRoot()).thenReturn(root);
+        when(countCriteria.getQuery()).thenReturn(countQuery);
+        return countCriteria;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+final class EntityManagerPoolTest {
+
+    private final List<EntityManager> created = new ArrayList<>();
+
+    private final Supplier<EntityManager> supplier = () -> {
+        final EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.isOpen()).thenReturn(true);
+        created.add(entityManager);
+        return entityManager;
+    };
+
+    @Test
+    void reusesReleasedEntityManagers() {
+        final EntityManagerPool pool = new EntityManagerPool(supplier, 2, Duration.ofSeconds(1));
+
+        final EntityManager entityManager = pool.lease();
+        pool.release(entityManager);
+
+        assertSame(entityManager, pool.lease());
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void leaseTimesOutWhenAllAreLeased() {
+        final EntityManagerPool pool = new EntityManagerPool(supplier, 1, Duration.ofMillis(20));
+
+        pool.lease();
+
+        assertThrows(IllegalStateException.class, pool::lease);
+    }
+
+    @Test
+    void leaseWaitsForRelease() throws Exception {
+        final EntityManagerPool pool = new EntityManagerPool(supplier, 1, Duration.ofSeconds(10));
+
+        final EntityManager entityManager = pool.lease();
+        final CompletableFuture<EntityManager> waiting = CompletableFuture.supplyAsync(pool::lease);
+        Thread.sleep(20);
+        assertFalse(waiting.isDone());
+
+        pool.release(entityManager);
+
+        assertSame(entityManager, waiting.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedLeaseDoesNotLeakPermit() {
+        final EntityManagerPool pool = new EntityManagerPool(() -> {
+            throw new IllegalStateException("No connection");
+        }, 1, Duration.ofMillis(20));
+
+        assertThrows(IllegalStateException.class, pool::lease);
+        final IllegalStateException e = assertThrows(IllegalStateException.class, pool::lease);
+        assertTrue(e.getMessage().contains("No connection"));
+    }
+
+    @Test
+    void closesReleasedEntityManagersOnceClosed() {
+        final EntityManagerPool pool = new EntityManagerPool(supplier, 2, Duration.ofSeconds(1));
+
+        final EntityManager idle = pool.lease();
+        final EntityManager leased = pool.lease();
+        pool.release(idle);
+        pool.close();
+
+        verify(idle).close();
+        verify(leased, never()).close();
+
+        pool.release(leased);
+        verify(leased).close();
+        assertThrows(IllegalStateException.class, pool::lease);
+    }
+
+    @Test
+    void suppliedEntityManagersAreNeitherPooledNorClearedNorClosed() {
+        final EntityManagerPool pool = EntityManagerPool.supplied(supplier);
+
+        final EntityManager first = pool.lease();
+        final EntityManager second = pool.lease();
+        pool.release(first);
+        pool.release(second);
+        pool.close();
+
+        assertFalse(pool.isOwned());
+        assertTrue(first != second);
+        verify(first, never()).clear();
+        verify(first, never()).close();
+        verify(second, never()).close();
+    }
+
+    @Test
+    void sharedEntityManagerIsClosedWithThePool() {
+        final EntityManager entityManager = supplier.get();
+        final EntityManagerPool pool = EntityManagerPool.shared(entityManager);
+
+        assertSame(entityManager, pool.lease());
+        assertSame(entityManager, pool.lease());
+        pool.release(entityManager);
+        verify(entityManager, never()).clear();
+
+        pool.close();
+        verify(entityManager).close();
+    }
+}
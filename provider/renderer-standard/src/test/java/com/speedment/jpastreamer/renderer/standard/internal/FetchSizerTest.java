@@ -0,0 +1,113 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+final class FetchSizerTest extends AbstractPipelineTest {
+
+    private static final Map<String, Object> MYSQL = Collections.singletonMap("javax.persistence.jdbc.url", "jdbc:mysql://localhost/sakila");
+
+    private final List<Object> scan = shape(String.class, terminalOperationFactory.acquireToArray());
+
+    @Test
+    void defaultFetchSize() {
+        final FetchSizer fetchSizer = new FetchSizer(Collections.emptyMap(), false);
+
+        assertEquals(FetchSizer.DEFAULT_FETCH_SIZE, fetchSizer.adaptiveFetchSize(scan, 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void wideRowsAreFetchedInSmallerBatches() {
+        final FetchSizer fetchSizer = new FetchSizer(Collections.emptyMap(), false);
+
+        assertEquals(FetchSizer.MIN_FETCH_SIZE, fetchSizer.adaptiveFetchSize(scan, 1 << 16, Integer.MAX_VALUE));
+        assertEquals(128, fetchSizer.adaptiveFetchSize(scan, 512, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void fetchSizeFollowsConsumedRows() {
+        final FetchSizer fetchSizer = new FetchSizer(Collections.emptyMap(), false);
+
+        try (Stream<Integer> rows = fetchSizer.observe(scan, Integer.MAX_VALUE, Stream.of(1, 2, 3, 4, 5))) {
+            rows.limit(2).forEach(row -> {});
+        }
+
+        // Fetch sizes are never smaller than the minimum
+        assertEquals(FetchSizer.MIN_FETCH_SIZE, fetchSizer.adaptiveFetchSize(scan, 1, Integer.MAX_VALUE));
+        assertEquals(FetchSizer.DEFAULT_FETCH_SIZE, fetchSizer.adaptiveFetchSize(shape(Integer.class, terminalOperationFactory.acquireToArray()), 1, Integer.MAX_VALUE));
+
+        fetchSizer.record(scan, 10_000);
+        assertEquals(2_502, fetchSizer.adaptiveFetchSize(scan, 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void lookupsDoNotShrinkTheFetchSizeOfScans() {
+        final FetchSizer fetchSizer = new FetchSizer(Collections.emptyMap(), false);
+        fetchSizer.record(scan, 1_000);
+
+        // A lookup bounded by the query is not observed
+        try (Stream<Integer> rows = fetchSizer.observe(scan, 1, Stream.of(1))) {
+            rows.forEach(row -> {});
+        }
+        // A lookup that is not bounded by the query is observed under its own shape
+        final List<Object> lookup = shape(String.class, terminalOperationFactory.acquireFindFirst());
+        for (int i = 0; i < 10; i++) {
+            try (Stream<Integer> rows = fetchSizer.observe(lookup, Integer.MAX_VALUE, Stream.of(1, 2, 3))) {
+                rows.findFirst();
+            }
+        }
+
+        assertEquals(1_000, fetchSizer.adaptiveFetchSize(scan, 1, Integer.MAX_VALUE));
+        assertEquals(FetchSizer.MIN_FETCH_SIZE, fetchSizer.adaptiveFetchSize(lookup, 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void serverSideCursors() {
+        final TypedQuery<Object> typedQuery = mock(TypedQuery.class);
+
+        new FetchSizer(MYSQL, true).apply(typedQuery, scan, 1, Integer.MAX_VALUE, OptionalInt.empty());
+
+        verify(typedQuery).setHint("org.hibernate.fetchSize", Integer.MIN_VALUE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void configuredFetchSizeOverridesServerSideCursors() {
+        final TypedQuery<Object> typedQuery = mock(TypedQuery.class);
+
+        new FetchSizer(MYSQL, true).apply(typedQuery, scan, 1, Integer.MAX_VALUE, OptionalInt.of(100));
+
+        verify(typedQuery).setHint("org.hibernate.fetchSize", 100);
+    }
+
+    private List<Object> shape(final Class<?> entityClass, final TerminalOperation<?, ?> terminalOperation) {
+        final Pipeline<?> pipeline = pipelineFactory.createPipeline(entityClass);
+        pipeline.terminatingOperation(terminalOperation);
+        return FetchSizer.shape(pipeline);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+import com.speedment.jpastreamer.field.predicate.PredicateType;
+import com.speedment.jpastreamer.field.trait.HasArg0;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+final class InListChunkerTest extends AbstractPipelineTest {
+
+    private final InListChunker chunker = new InListChunker(2);
+
+    @Test
+    void chunk() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createSorted(Comparator.comparing(Film::getId)));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter(Film$.id.in(1, 2, 3, 4, 5)));
+
+        final InListChunker.Chunks chunks = chunker.chunk(pipeline).get();
+
+        assertEquals(1, chunks.index());
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5)),
+            chunks.filters().stream().map(InListChunkerTest::values).collect(toList()));
+    }
+
+    @Test
+    void chunkPredicate() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter(Film$.id.in(1, 2, 3)));
+
+        final FieldPredicate<Film> first = predicate(chunker.chunk(pipeline).get().filters().get(0));
+
+        assertEquals(PredicateType.IN, first.getPredicateType());
+        assertTrue(first.test(new Film(2, "Alien", 117)));
+        assertFalse(first.test(new Film(3, "Brazil", 142)));
+        assertEquals(PredicateType.NOT_IN, first.negate().getPredicateType());
+        assertTrue(first.negate().test(new Film(3, "Brazil", 142)));
+    }
+
+    @Test
+    void smallInList() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter(Film$.id.in(1, 2)));
+
+        assertFalse(chunker.chunk(pipeline).isPresent());
+    }
+
+    @Test
+    void notLeading() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createLimit(10));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter(Film$.id.in(1, 2, 3)));
+
+        // Filtering after a limit does not commute with querying each chunk
+        assertFalse(chunker.chunk(pipeline).isPresent());
+    }
+
+    @Test
+    void invalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new InListChunker(0));
+    }
+
+    @Test
+    void resolveChunkSize() {
+        assertEquals(1000, InListChunker.resolveChunkSize(Collections.singletonMap("hibernate.dialect", "org.hibernate.dialect.Oracle12cDialect")));
+        assertEquals(16384, InListChunker.resolveChunkSize(Collections.singletonMap("javax.persistence.jdbc.url", "jdbc:postgresql://localhost/sakila")));
+        assertEquals(8192, InListChunker.resolveChunkSize(Collections.emptyMap()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldPredicate<Film> predicate(final IntermediateOperation<?, ?> filter) {
+        return (FieldPredicate<Film>) filter.arguments()[0];
+    }
+
+    private static List<Object> values(final IntermediateOperation<?, ?> filter) {
+        return Arrays.asList(((Set<?>) ((HasArg0<?>) predicate(filter)).get0()).toArray());
+    }
+}
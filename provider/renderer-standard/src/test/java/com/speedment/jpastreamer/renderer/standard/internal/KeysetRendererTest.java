@@ -0,0 +1,197 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class KeysetRendererTest {
+
+    private final KeysetRenderer renderer = new KeysetRenderer();
+    private final List<Object> parameterValues = new ArrayList<>();
+
+    private CriteriaBuilder builder;
+    private CriteriaQuery<Film> query;
+    private Criteria<Film, Film> criteria;
+    // Raw, so that the comparisons of the builder can be stubbed for any sort key
+    private Path idPath;
+    private Path titlePath;
+    private ParameterExpression idParameter;
+    private ParameterExpression titleParameter;
+
+    @BeforeEach
+    void setUp() throws NoSuchFieldException {
+        builder = mock(CriteriaBuilder.class);
+        query = mock(CriteriaQuery.class);
+
+        final SingularAttribute id = attribute("id", true);
+        final SingularAttribute title = attribute("title", false);
+        final EntityType entityType = mock(EntityType.class);
+        when(entityType.getSingularAttributes()).thenReturn((Set) Collections.singleton(id));
+
+        idPath = mock(Path.class);
+        when(idPath.getModel()).thenReturn(id);
+        titlePath = mock(Path.class);
+        when(titlePath.getModel()).thenReturn(title);
+
+        final Root<Film> root = mock(Root.class);
+        when(root.getModel()).thenReturn(entityType);
+        when(root.get("id")).thenReturn(idPath);
+
+        criteria = mock(Criteria.class);
+        when(criteria.getBuilder()).thenReturn(builder);
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(root);
+        doAnswer(invocation -> parameterValues.add(((QueryParameter<?>) invocation.getArgument(0)).getValue()))
+            .when(criteria).addQueryParameter(any());
+
+        // The sort keys are bound from the last to the first
+        idParameter = mock(ParameterExpression.class);
+        titleParameter = mock(ParameterExpression.class);
+        when(builder.parameter(Comparable.class)).thenReturn(idParameter).thenReturn(titleParameter);
+    }
+
+    @Test
+    void noSeekAfter() {
+        renderer.render(criteria, StreamConfiguration.of(Film.class));
+
+        verify(query, never()).where(any(Predicate.class));
+        verify(query, never()).orderBy(any(List.class));
+    }
+
+    @Test
+    void seekAfterId() {
+        final Order byId = order(idPath, true);
+        when(query.getOrderList()).thenReturn(Collections.emptyList());
+        when(builder.asc(idPath)).thenReturn(byId);
+        final Predicate after = mock(Predicate.class);
+        when(builder.greaterThan(idPath, idParameter)).thenReturn(after);
+
+        renderer.render(criteria, StreamConfiguration.of(Film.class).seekingAfter(new Film(42, "Alien", 117)));
+
+        // The id completes the sort order so that it is total
+        verify(query).orderBy(Collections.singletonList(byId));
+        verify(query).where(after);
+        assertEquals(Collections.singletonList(42), parameterValues);
+    }
+
+    @Test
+    void seekAfterDescendingKey() {
+        final Order byTitle = order(titlePath, false);
+        final Order byId = order(idPath, true);
+        final Predicate restriction = mock(Predicate.class);
+        when(query.getOrderList()).thenReturn(Collections.singletonList(byTitle));
+        when(query.getRestriction()).thenReturn(restriction);
+        when(builder.asc(idPath)).thenReturn(byId);
+
+        final Predicate idAfter = mock(Predicate.class);
+        final Predicate titleBefore = mock(Predicate.class);
+        final Predicate titleEqual = mock(Predicate.class);
+        final Predicate tieBreak = mock(Predicate.class);
+        final Predicate seek = mock(Predicate.class);
+        final Predicate restricted = mock(Predicate.class);
+        when(builder.greaterThan(idPath, idParameter)).thenReturn(idAfter);
+        when(builder.lessThan(titlePath, titleParameter)).thenReturn(titleBefore);
+        when(builder.equal(titlePath, titleParameter)).thenReturn(titleEqual);
+        when(builder.and(titleEqual, idAfter)).thenReturn(tieBreak);
+        when(builder.or(titleBefore, tieBreak)).thenReturn(seek);
+        when(builder.and(restriction, seek)).thenReturn(restricted);
+
+        renderer.render(criteria, StreamConfiguration.of(Film.class).seekingAfter(new Film(42, "Alien", 117)));
+
+        // title < 'Alien' OR (title = 'Alien' AND id > 42), in addition to the filters
+        verify(query).orderBy(Arrays.asList(byTitle, byId));
+        verify(query).where(restricted);
+        assertEquals(Arrays.asList(42, "Alien"), parameterValues);
+    }
+
+    @Test
+    void orderedById() {
+        final Order byIdDescending = order(idPath, false);
+        when(query.getOrderList()).thenReturn(Collections.singletonList(byIdDescending));
+        final Predicate before = mock(Predicate.class);
+        when(builder.lessThan(idPath, idParameter)).thenReturn(before);
+
+        renderer.render(criteria, StreamConfiguration.of(Film.class).seekingAfter(new Film(42, "Alien", 117)));
+
+        verify(query, never()).orderBy(any(List.class));
+        verify(query).where(before);
+    }
+
+    @Test
+    void nullSortKey() {
+        when(query.getOrderList()).thenReturn(Collections.singletonList(order(titlePath, true)));
+        when(builder.asc(idPath)).thenReturn(order(idPath, true));
+
+        final StreamConfiguration<Film> streamConfiguration = StreamConfiguration.of(Film.class).seekingAfter(new Film(42, null, 117));
+
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(criteria, streamConfiguration));
+    }
+
+    @Test
+    void nullableSortKey() {
+        final SingularAttribute title = (SingularAttribute) titlePath.getModel();
+        when(title.isOptional()).thenReturn(true);
+        when(query.getOrderList()).thenReturn(Collections.singletonList(order(titlePath, true)));
+        when(builder.asc(idPath)).thenReturn(order(idPath, true));
+
+        final StreamConfiguration<Film> streamConfiguration = StreamConfiguration.of(Film.class).seekingAfter(new Film(42, "Alien", 117));
+
+        // Rows with a null title would neither be after nor equal to 'Alien'
+        assertThrows(IllegalStateException.class, () -> renderer.render(criteria, streamConfiguration));
+        verify(query, never()).where(any(Predicate.class));
+    }
+
+    private static Order order(final Path path, final boolean ascending) {
+        final Order order = mock(Order.class);
+        when(order.getExpression()).thenReturn(path);
+        when(order.isAscending()).thenReturn(ascending);
+        return order;
+    }
+
+    private static SingularAttribute attribute(final String name, final boolean id) throws NoSuchFieldException {
+        final SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.getName()).thenReturn(name);
+        when(attribute.isId()).thenReturn(id);
+        when(attribute.getJavaMember()).thenReturn(Film.class.getDeclaredField(name));
+        return attribute;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class PartitionedScanTest extends AbstractPipelineTest {
+
+    private final List<EntityManager> rangeEntityManagers = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger closedRanges = new AtomicInteger();
+
+    private EntityManagerPool entityManagerPool;
+    private EntityManager entityManager;
+    private CriteriaBuilder builder;
+    private CriteriaQuery<Film> query;
+    private Criteria<Film, Film> criteria;
+    private CriteriaQuery<Tuple> rangeCriteria;
+    private TypedQuery<Tuple> rangeTypedQuery;
+    private Tuple range;
+    private ParameterExpression from;
+    private ParameterExpression to;
+    private Predicate between;
+
+    @BeforeEach
+    void setUp() {
+        entityManagerPool = new EntityManagerPool(() -> {
+            final EntityManager rangeEntityManager = mock(EntityManager.class);
+            when(rangeEntityManager.isOpen()).thenReturn(true);
+            rangeEntityManagers.add(rangeEntityManager);
+            return rangeEntityManager;
+        }, 8, Duration.ofMillis(100));
+
+        final SingularAttribute id = mock(SingularAttribute.class);
+        when(id.getJavaType()).thenReturn(Long.class);
+        final Type idType = mock(Type.class);
+        when(idType.getJavaType()).thenReturn(Long.class);
+        final EntityType<Film> entityType = mock(EntityType.class);
+        when(entityType.hasSingleIdAttribute()).thenReturn(true);
+        when(entityType.getIdType()).thenReturn(idType);
+        when(entityType.getId(Long.class)).thenReturn(id);
+        final Metamodel metamodel = mock(Metamodel.class);
+        when(metamodel.entity(Film.class)).thenReturn(entityType);
+
+        builder = mock(CriteriaBuilder.class);
+        final Path rangeId = mock(Path.class);
+        final Root rangeRoot = mock(Root.class);
+        when(rangeRoot.get(id)).thenReturn(rangeId);
+        rangeCriteria = mock(CriteriaQuery.class);
+        when(builder.createTupleQuery()).thenReturn(rangeCriteria);
+        when(rangeCriteria.from(Film.class)).thenReturn(rangeRoot);
+
+        range = mock(Tuple.class);
+        rangeTypedQuery = mock(TypedQuery.class);
+        when(rangeTypedQuery.getSingleResult()).thenReturn(range);
+        entityManager = mock(EntityManager.class);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        when(entityManager.createQuery(rangeCriteria)).thenReturn(rangeTypedQuery);
+
+        from = mock(ParameterExpression.class);
+        to = mock(ParameterExpression.class);
+        when(builder.parameter(Long.class)).thenReturn(from).thenReturn(to);
+        final Path idPath = mock(Path.class);
+        between = mock(Predicate.class);
+        when(builder.between(idPath, (Expression) from, (Expression) to)).thenReturn(between);
+
+        final Root<Film> root = mock(Root.class);
+        when(root.get(id)).thenReturn(idPath);
+        query = mock(CriteriaQuery.class);
+        when(query.getOrderList()).thenReturn(Collections.emptyList());
+        criteria = mock(Criteria.class);
+        when(criteria.getBuilder()).thenReturn(builder);
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(root);
+        when(criteria.getQueryParameters()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    void partitioned() {
+        ids(1L, 4096L);
+
+        final Stream<String> stream = new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).get();
+
+        assertTrue(stream.isParallel());
+        final List<String> ranges = stream.sorted().collect(toList());
+        assertEquals(Arrays.asList("1..1024", "1025..2048", "2049..3072", "3073..4096"), ranges);
+        verify(query).where(between);
+        assertEquals(4, closedRanges.get());
+        // Leasing times out if a range did not release its EntityManager
+        for (int i = 0; i < 8; i++) {
+            entityManagerPool.lease();
+        }
+    }
+
+    @Test
+    void rangeOfIdsIsRestricted() {
+        ids(1L, 4096L);
+        final Predicate restriction = mock(Predicate.class);
+        when(query.getRestriction()).thenReturn(restriction);
+        final ParameterExpression<String> title = mock(ParameterExpression.class);
+        final QueryParameter<String> queryParameter = mock(QueryParameter.class);
+        when(queryParameter.getParameterExpression()).thenReturn(title);
+        when(queryParameter.getValue()).thenReturn("Alien");
+        when(criteria.getQueryParameters()).thenReturn(Collections.singletonList(queryParameter));
+
+        new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).get().close();
+
+        verify(rangeCriteria).where(restriction);
+        verify(rangeTypedQuery).setParameter(title, "Alien");
+    }
+
+    @Test
+    void partitionsAreLimitedByTheNumberOfIds() {
+        ids(10L, 10L + 3 * PartitionedScan.MIN_PARTITION_SIZE - 1);
+
+        final List<String> ranges = new PartitionedScan(8).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).get()
+            .sorted()
+            .collect(toList());
+
+        assertEquals(Arrays.asList("10..1033", "1034..2057", "2058..3081"), ranges);
+    }
+
+    @Test
+    void closedEarly() {
+        ids(1L, 4096L);
+
+        final Stream<String> stream = new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).get();
+        assertEquals("1..1024", stream.sequential().iterator().next());
+        assertEquals(0, closedRanges.get());
+
+        stream.close();
+
+        assertEquals(1, closedRanges.get());
+        verify(rangeEntityManagers.get(0)).clear();
+    }
+
+    @Test
+    void tooFewIds() {
+        ids(1L, 2 * PartitionedScan.MIN_PARTITION_SIZE - 1);
+
+        assertFalse(new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+        verify(query, never()).where(any(Expression.class));
+    }
+
+    @Test
+    void noIds() {
+        assertFalse(new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+        verify(query, never()).where(any(Expression.class));
+    }
+
+    @Test
+    void notPartitionable() {
+        ids(1L, 4096L);
+
+        assertFalse(new PartitionedScan(1).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+        assertFalse(new PartitionedScan(4).scan(EntityManagerPool.supplied(() -> entityManager), entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+
+        final Pipeline<Film> limited = pipeline();
+        limited.intermediateOperations().add(intermediateOperationFactory.createLimit(10));
+        assertFalse(new PartitionedScan(4).scan(entityManagerPool, entityManager, limited, criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+
+        when(query.isDistinct()).thenReturn(true);
+        assertFalse(new PartitionedScan(4).scan(entityManagerPool, entityManager, pipeline(), criteria, StreamConfiguration.of(Film.class), this::rangeQuery).isPresent());
+
+        verify(builder, never()).createTupleQuery();
+        verify(query, never()).where(any(Expression.class));
+    }
+
+    @Test
+    void negativePartitions() {
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedScan(-1));
+    }
+
+    private void ids(final long min, final long max) {
+        when(range.get(0)).thenReturn(min);
+        when(range.get(1)).thenReturn(max);
+    }
+
+    private Pipeline<Film> pipeline() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+        return pipeline;
+    }
+
+    private Stream<String> rangeQuery(final EntityManager rangeEntityManager, final Consumer<TypedQuery<?>> binder) {
+        assertTrue(rangeEntityManagers.contains(rangeEntityManager));
+
+        final Object[] bounds = new Object[2];
+        final TypedQuery<Film> typedQuery = mock(TypedQuery.class);
+        when(typedQuery.setParameter(any(Parameter.class), any())).thenAnswer(invocation -> {
+            bounds[invocation.getArgument(0) == from ? 0 : 1] = invocation.getArgument(1);
+            return typedQuery;
+        });
+        binder.accept(typedQuery);
+
+        return Stream.of(bounds[0] + ".." + bounds[1])
+            .onClose(closedRanges::incrementAndGet);
+    }
+}
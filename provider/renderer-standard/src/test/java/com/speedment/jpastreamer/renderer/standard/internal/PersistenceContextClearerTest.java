@@ -0,0 +1,85 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+final class PersistenceContextClearerTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        doAnswer(invocation -> events.add("clear")).when(entityManager).clear();
+    }
+
+    @Test
+    void clearsAfterEveryInterval() {
+        new PersistenceContextClearer(2).apply(entityManager, Stream.of("1", "2", "3", "4", "5"))
+            .forEach(events::add);
+
+        // A row is only detached once the next row is requested
+        assertEquals(Arrays.asList("1", "2", "clear", "3", "4", "clear", "5"), events);
+    }
+
+    @Test
+    void joinedToTransaction() {
+        when(entityManager.isJoinedToTransaction()).thenReturn(true);
+        final Stream<String> rows = Stream.of("1", "2", "3");
+
+        assertSame(rows, new PersistenceContextClearer(1).apply(entityManager, rows));
+        assertEquals(0, new PersistenceContextClearer(1).interval(entityManager));
+    }
+
+    @Test
+    void disabled() {
+        final Stream<String> rows = Stream.of("1", "2", "3");
+
+        assertSame(rows, new PersistenceContextClearer(0).apply(entityManager, rows));
+    }
+
+    @Test
+    void closesRows() {
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        try (Stream<String> rows = new PersistenceContextClearer(1).apply(entityManager, Stream.of("1").onClose(() -> closed.set(true)))) {
+            assertEquals(1, rows.count());
+        }
+
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void negativeInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new PersistenceContextClearer(-1));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class PrefetcherTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    @Test
+    void readsAllRowsInOrder() {
+        final Prefetcher prefetcher = new Prefetcher(8);
+        try (Stream<Integer> rows = prefetcher.apply(entityManager, IntStream.range(0, 100).boxed(), new PersistenceContextClearer(0))) {
+            assertEquals(IntStream.range(0, 100).boxed().collect(Collectors.toList()), rows.collect(Collectors.toList()));
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    void disabled() {
+        final Prefetcher prefetcher = new Prefetcher(0);
+        final Stream<Integer> rows = Stream.of(1, 2, 3);
+
+        assertSame(rows, prefetcher.apply(entityManager, rows, new PersistenceContextClearer(0)));
+    }
+
+    @Test
+    void clearsOnTheConsumerThreadOnceRowsAreConsumed() {
+        final AtomicInteger consumed = new AtomicInteger();
+        final List<Integer> consumedAtClear = new ArrayList<>();
+        final List<Thread> clearingThreads = new ArrayList<>();
+        doAnswer(invocation -> {
+            consumedAtClear.add(consumed.get());
+            clearingThreads.add(Thread.currentThread());
+            return null;
+        }).when(entityManager).clear();
+
+        final Prefetcher prefetcher = new Prefetcher(8);
+        try (Stream<Integer> rows = prefetcher.apply(entityManager, IntStream.range(0, 10).boxed(), new PersistenceContextClearer(3))) {
+            rows.forEach(row -> consumed.incrementAndGet());
+        } finally {
+            prefetcher.close();
+        }
+
+        assertEquals(10, consumed.get());
+        assertEquals(Arrays.asList(3, 6, 9), consumedAtClear);
+        clearingThreads.forEach(thread -> assertSame(Thread.currentThread(), thread));
+    }
+
+    @Test
+    void closeStopsTheProducerBeforeClosingTheRows() {
+        final AtomicBoolean reading = new AtomicBoolean();
+        final AtomicBoolean readWhileClosed = new AtomicBoolean();
+        final Iterator<Integer> source = new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                reading.set(true);
+                try {
+                    return next++;
+                } finally {
+                    reading.set(false);
+                }
+            }
+        };
+        final Stream<Integer> infinite = StreamSupport.stream(Spliterators.spliteratorUnknownSize(source, Spliterator.ORDERED), false)
+            .onClose(() -> readWhileClosed.set(reading.get()));
+
+        final Prefetcher prefetcher = new Prefetcher(8);
+        try {
+            final Stream<Integer> rows = prefetcher.apply(entityManager, infinite, new PersistenceContextClearer(0));
+            assertEquals(Arrays.asList(0, 1, 2), rows.limit(3).collect(Collectors.toList()));
+            rows.close();
+        } finally {
+            prefetcher.close();
+        }
+
+        assertFalse(readWhileClosed.get());
+    }
+
+    @Test
+    void rethrowsFailuresOfTheProducer() {
+        final Stream<Integer> failing = Stream.of(1, 2, 3).map(row -> {
+            if (row == 3) {
+                throw new IllegalStateException("Connection lost");
+            }
+            return row;
+        });
+
+        final Prefetcher prefetcher = new Prefetcher(8);
+        try (Stream<Integer> rows = prefetcher.apply(entityManager, failing, new PersistenceContextClearer(0))) {
+            final IllegalStateException e = assertThrows(IllegalStateException.class, () -> rows.forEach(row -> {}));
+            assertTrue(e.getMessage().contains("Connection lost"));
+        } finally {
+            prefetcher.close();
+        }
+    }
+}
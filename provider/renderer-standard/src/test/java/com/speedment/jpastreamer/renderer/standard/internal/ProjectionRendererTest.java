@@ -0,0 +1,168 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.CriteriaFactory;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.Collections;
+import java.util.Optional;
+
+final class ProjectionRendererTest extends AbstractPipelineTest {
+
+    private EntityManager entityManager;
+    private CriteriaQuery<Film> query;
+    private Criteria<Film, Film> criteria;
+    private CriteriaQuery<Object> columnQuery;
+    private Criteria<Film, Object> columnCriteria;
+    private Path<Object> titlePath;
+    private ProjectionRenderer renderer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+
+        query = mock(CriteriaQuery.class);
+        when(query.getOrderList()).thenReturn(Collections.emptyList());
+        criteria = mock(Criteria.class);
+        when(criteria.getQuery()).thenReturn(query);
+        when(criteria.getRoot()).thenReturn(mock(Root.class));
+
+        titlePath = mock(Path.class);
+        final Root<Film> columnRoot = mock(Root.class);
+        when(columnRoot.get("title")).thenReturn(titlePath);
+        columnQuery = mock(CriteriaQuery.class);
+        columnCriteria = mock(Criteria.class);
+        when(columnCriteria.getQuery()).thenReturn(columnQuery);
+        when(columnCriteria.getRoot()).thenReturn(columnRoot);
+
+        final CriteriaFactory criteriaFactory = mock(CriteriaFactory.class);
+        when(criteriaFactory.createCriteria(entityManager, Film.class, Object.class)).thenReturn(columnCriteria);
+        renderer = new ProjectionRenderer(criteriaFactory);
+    }
+
+    @Test
+    void field() {
+        final Pipeline<Film> pipeline = pipeline(false);
+
+        assertSame(columnCriteria, renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class)).get());
+        verify(columnQuery).select(titlePath);
+        verify(columnQuery, never()).distinct(anyBoolean());
+        assertEquals(0, pipeline.intermediateOperations().size());
+    }
+
+    @Test
+    void distinct() {
+        final Pipeline<Film> pipeline = pipeline(true);
+
+        assertSame(columnCriteria, renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class)).get());
+        verify(columnQuery).distinct(true);
+        assertEquals(0, pipeline.intermediateOperations().size());
+    }
+
+    @Test
+    void distinctSortedOnColumn() {
+        final Pipeline<Film> pipeline = pipeline(true);
+        when(query.getOrderList()).thenReturn(Collections.singletonList(order("title")));
+
+        renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class));
+
+        verify(columnQuery).distinct(true);
+        assertEquals(0, pipeline.intermediateOperations().size());
+    }
+
+    @Test
+    void distinctSortedOnOtherColumn() {
+        final Pipeline<Film> pipeline = pipeline(true);
+        when(query.getOrderList()).thenReturn(Collections.singletonList(order("length")));
+
+        assertSame(columnCriteria, renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class)).get());
+
+        // SELECT DISTINCT title ... ORDER BY length is rejected by some databases, so the stream applies distinct
+        verify(columnQuery, never()).distinct(anyBoolean());
+        assertEquals(1, pipeline.intermediateOperations().size());
+        assertEquals(IntermediateOperationType.DISTINCT, pipeline.intermediateOperations().getFirst().type());
+    }
+
+    @Test
+    void count() {
+        final Pipeline<Film> pipeline = pipeline(true);
+        pipeline.terminatingOperation(terminalOperationFactory.acquireCount());
+
+        assertFalse(renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class)).isPresent());
+        assertEquals(Optional.of(Film$.title), renderer.distinctField(pipeline, criteria, StreamConfiguration.of(Film.class)));
+        assertEquals(2, pipeline.intermediateOperations().size());
+    }
+
+    @Test
+    void joined() {
+        final Pipeline<Film> pipeline = pipeline(true);
+        final StreamConfiguration<Film> streamConfiguration = StreamConfiguration.of(Film.class).joining(Film$.title);
+
+        assertFalse(renderer.render(entityManager, pipeline, criteria, streamConfiguration).isPresent());
+        assertFalse(renderer.distinctField(pipeline, criteria, streamConfiguration).isPresent());
+    }
+
+    @Test
+    void lambda() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMap(Film::getTitle));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.acquireDistinct());
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+
+        assertFalse(renderer.render(entityManager, pipeline, criteria, StreamConfiguration.of(Film.class)).isPresent());
+        assertFalse(renderer.distinctField(pipeline, criteria, StreamConfiguration.of(Film.class)).isPresent());
+    }
+
+    private Pipeline<Film> pipeline(final boolean distinct) {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMap(Film$.title));
+        if (distinct) {
+            pipeline.intermediateOperations().add(intermediateOperationFactory.acquireDistinct());
+        }
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+        return pipeline;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Order order(final String column) {
+        final SingularAttribute attribute = mock(SingularAttribute.class);
+        when(attribute.getName()).thenReturn(column);
+        final Path path = mock(Path.class);
+        when(path.getModel()).thenReturn(attribute);
+        final Order order = mock(Order.class);
+        when(order.getExpression()).thenReturn(path);
+        return order;
+    }
+}
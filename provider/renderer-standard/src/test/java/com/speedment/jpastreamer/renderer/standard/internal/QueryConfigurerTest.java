@@ -0,0 +1,126 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+final class QueryConfigurerTest extends AbstractPipelineTest {
+
+    private EntityManager entityManager;
+    private CriteriaQuery<Object> criteriaQuery;
+    private TypedQuery<Object> typedQuery;
+    private QueryConfigurer queryConfigurer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        criteriaQuery = mock(CriteriaQuery.class);
+        typedQuery = mock(TypedQuery.class);
+        queryConfigurer = new QueryConfigurer(new FetchSizer(Collections.emptyMap(), false));
+    }
+
+    @Test
+    void configuredFetchSize() {
+        configure(pipelineFactory.createPipeline(Film.class), StreamConfiguration.of(Film.class).fetchSize(500));
+
+        verify(typedQuery).setHint("org.hibernate.fetchSize", 500);
+        verify(typedQuery).setHint("eclipselink.jdbc.fetch-size", 500);
+    }
+
+    @Test
+    void fetchSizeIsBoundedByLimit() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createSkip(10));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createLimit(20));
+
+        configure(pipeline, StreamConfiguration.of(Film.class));
+
+        verify(typedQuery).setHint("org.hibernate.fetchSize", 30);
+    }
+
+    @Test
+    void readOnly() {
+        configure(pipelineFactory.createPipeline(Film.class), StreamConfiguration.of(Film.class).readOnly(true));
+
+        verify(typedQuery).setHint("org.hibernate.readOnly", true);
+        verify(typedQuery).setHint("eclipselink.read-only", "true");
+        verify(typedQuery).setFlushMode(FlushModeType.COMMIT);
+    }
+
+    @Test
+    void queryTimeout() {
+        configure(pipelineFactory.createPipeline(Film.class), StreamConfiguration.of(Film.class).queryTimeout(Duration.ofSeconds(5)));
+
+        verify(typedQuery).setHint("javax.persistence.query.timeout", 5000);
+    }
+
+    @Test
+    void notReadOnly() {
+        configure(pipelineFactory.createPipeline(Film.class), StreamConfiguration.of(Film.class).readOnly(false));
+
+        verify(typedQuery, never()).setHint("org.hibernate.readOnly", true);
+        verify(typedQuery, never()).setFlushMode(FlushModeType.COMMIT);
+    }
+
+    @Test
+    void sharedQueryIsReadOnlyIfAllStreamsAre() {
+        QueryConfigurer.configureHints(typedQuery, Arrays.asList(
+            StreamConfiguration.of(Film.class).readOnly(true),
+            StreamConfiguration.of(Film.class)
+        ));
+        verify(typedQuery, never()).setFlushMode(FlushModeType.COMMIT);
+
+        QueryConfigurer.configureHints(typedQuery, Arrays.asList(
+            StreamConfiguration.of(Film.class).readOnly(true),
+            StreamConfiguration.of(Film.class).readOnly(true)
+        ));
+        verify(typedQuery).setFlushMode(FlushModeType.COMMIT);
+    }
+
+    @Test
+    void maxResults() {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        assertEquals(Integer.MAX_VALUE, QueryConfigurer.maxResults(pipeline.intermediateOperations()));
+
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createSkip(5));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createLimit(Long.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, QueryConfigurer.maxResults(pipeline.intermediateOperations()));
+
+        pipeline.intermediateOperations().set(1, intermediateOperationFactory.createLimit(7));
+        assertEquals(12, QueryConfigurer.maxResults(pipeline.intermediateOperations()));
+    }
+
+    private void configure(final Pipeline<Film> pipeline, final StreamConfiguration<Film> streamConfiguration) {
+        when(criteriaQuery.getSelection()).thenReturn(null);
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+        queryConfigurer.configure(typedQuery, criteriaQuery, entityManager, pipeline, streamConfiguration);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.speedment.jpastreamer.criteria.Criteria;
+import com.speedment.jpastreamer.criteria.QueryParameter;
+import com.speedment.jpastreamer.field.collector.FieldCollectors;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+import com.speedment.jpastreamer.field.trait.HasArg0;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+final class RenderPlanCacheTest extends AbstractPipelineTest {
+
+    @SuppressWarnings("unchecked")
+    private static final CriteriaQuery<Film> QUERY = mock(CriteriaQuery.class);
+
+    @SuppressWarnings("unchecked")
+    private static final ParameterExpression<Object> PARAMETER = mock(ParameterExpression.class);
+
+    private final RenderPlanCache cache = new RenderPlanCache();
+
+    @Test
+    void shapeIgnoresValues() {
+        assertEquals(shape(Film$.title.equal("Alien")), shape(Film$.title.equal("Jaws")));
+        assertEquals(shape(Film$.length.in(1, 2, 3)), shape(Film$.length.in(4, 5, 6)));
+    }
+
+    @Test
+    void shapeDependsOnStructure() {
+        assertNotEquals(shape(Film$.title.equal("Alien")), shape(Film$.title.notEqual("Alien")));
+        assertNotEquals(shape(Film$.title.equal("Alien")), shape(Film$.length.equal(117)));
+        assertNotEquals(shape(Film$.length.between(1, 2)), shape(Film$.length.greaterThan(1).and(Film$.length.lessThan(2))));
+        // The number of parameters of an IN list depends on the number of values
+        assertNotEquals(shape(Film$.length.in(1, 2, 3)), shape(Film$.length.in(1, 2)));
+    }
+
+    @Test
+    void lambdasAreOpaque() {
+        final Predicate<Film> first = film -> film.getLength() > 60;
+        final Predicate<Film> second = film -> film.getTitle().isEmpty();
+
+        assertEquals(shape(first), shape(second));
+    }
+
+    @Test
+    void uncacheableShapes() {
+        final Pipeline<Film> pipeline = pipeline(Film$.title.equal("Alien"));
+
+        assertFalse(cache.shape(pipeline, StreamConfiguration.of(Film.class).seekingAfter(new Film(42, "Alien", 117))).isPresent());
+
+        pipeline.terminatingOperation(terminalOperationFactory.createCollect(FieldCollectors.groupingBy(Film$.title, FieldCollectors.summingInt(Film$.length))));
+        assertFalse(cache.shape(pipeline, StreamConfiguration.of(Film.class)).isPresent());
+    }
+
+    @Test
+    void aggregatesAreUncacheable() {
+        // The aggregate query is not rendered if the mapped values contain nulls, which may change
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMapToInt(Film$.length));
+        pipeline.terminatingOperation(intTerminalOperationFactory.acquireSum());
+
+        assertFalse(cache.shape(pipeline, StreamConfiguration.of(Film.class)).isPresent());
+    }
+
+    @Test
+    void leastRecentlyUsedPlanIsEvicted() {
+        final RenderPlanCache small = new RenderPlanCache(2);
+        final List<Object> first = Collections.singletonList(1);
+        final List<Object> second = Collections.singletonList(2);
+        final List<Object> third = Collections.singletonList(3);
+
+        small.put(first, plan(pipeline(Film$.title.equal("Alien"))));
+        small.put(second, plan(pipeline(Film$.title.equal("Alien"))));
+        small.get(first);
+        small.put(third, plan(pipeline(Film$.title.equal("Alien"))));
+
+        assertEquals(2, small.size());
+        assertTrue(small.get(first).isPresent());
+        assertFalse(small.get(second).isPresent());
+        assertTrue(small.get(third).isPresent());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void planBindsValuesOfOtherPipeline() {
+        final Pipeline<Film> rendered = pipeline(Film$.title.equal("Alien"));
+        final RenderPlanCache.RenderPlan plan = plan(rendered);
+
+        final Pipeline<Film> other = pipeline(Film$.title.equal("Jaws"));
+        final List<IntermediateOperation<?, ?>> remaining = new ArrayList<>(other.intermediateOperations());
+        remaining.remove(0);
+
+        final List<Object> values = plan.values(other.intermediateOperations());
+        plan.removeMerged(other.intermediateOperations());
+
+        assertEquals(Collections.singletonList("Jaws"), values);
+        assertEquals(remaining, other.intermediateOperations());
+
+        final EntityManager entityManager = mock(EntityManager.class);
+        final TypedQuery<Film> typedQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery((CriteriaQuery<Film>) plan.query())).thenReturn(typedQuery);
+
+        plan.createQuery(entityManager, values);
+
+        verify(typedQuery).setParameter(PARAMETER, "Jaws");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void parameterWithoutSource() {
+        final Criteria<Film, Film> criteria = mock(Criteria.class);
+        when(criteria.getQueryParameters()).thenReturn(Collections.singletonList(new FixedParameter()));
+
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline(Film$.title.equal("Alien")).intermediateOperations();
+
+        assertFalse(RenderPlanCache.RenderPlan.create(intermediateOperations, intermediateOperations.subList(1, 2), criteria).isPresent());
+    }
+
+    @Test
+    void mergedIndices() {
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline(Film$.title.equal("Alien")).intermediateOperations();
+
+        assertEquals(Optional.of(0), RenderPlanCache.mergedIndices(intermediateOperations, intermediateOperations.subList(1, 2)).map(indices -> indices[0]));
+
+        // A partially merged filter leaves a new operation in the pipeline
+        final List<IntermediateOperation<?, ?>> replaced = Arrays.asList(intermediateOperationFactory.createFilter(Film$.title.equal("Alien")), intermediateOperations.get(1));
+        assertFalse(RenderPlanCache.mergedIndices(intermediateOperations, replaced).isPresent());
+    }
+
+    private Optional<List<Object>> shape(final Predicate<Film> predicate) {
+        return cache.shape(pipeline(predicate), StreamConfiguration.of(Film.class));
+    }
+
+    private Pipeline<Film> pipeline(final Predicate<Film> predicate) {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createFilter(predicate));
+        pipeline.intermediateOperations().add(intermediateOperationFactory.createMap(Film::getTitle));
+        pipeline.terminatingOperation(terminalOperationFactory.acquireToArray());
+        return pipeline;
+    }
+
+    /**
+     * Creates a plan of the provided pipeline, whose leading filter is merged
+     * into a query with a single parameter.
+     */
+    @SuppressWarnings("unchecked")
+    private static RenderPlanCache.RenderPlan plan(final Pipeline<Film> pipeline) {
+        final List<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+        final FieldPredicate<?> filter = (FieldPredicate<?>) intermediateOperations.get(0).arguments()[0];
+
+        final Criteria<Film, Film> criteria = mock(Criteria.class);
+        when(criteria.getQuery()).thenReturn(QUERY);
+        when(criteria.getQueryParameters()).thenReturn(Collections.singletonList(new SourcedParameter(filter)));
+
+        return RenderPlanCache.RenderPlan.create(intermediateOperations, intermediateOperations.subList(1, 2), criteria).get();
+    }
+
+    private static final class SourcedParameter implements QueryParameter<Object> {
+
+        private final FieldPredicate<?> source;
+
+        private SourcedParameter(final FieldPredicate<?> source) {
+            this.source = source;
+        }
+
+        @Override
+        public ParameterExpression<Object> getParameterExpression() {
+            return PARAMETER;
+        }
+
+        @Override
+        public Object getValue() {
+            return getValue(source);
+        }
+
+        @Override
+        public Optional<FieldPredicate<?>> getSource() {
+            return Optional.of(source);
+        }
+
+        @Override
+        public Object getValue(final FieldPredicate<?> predicate) {
+            return ((HasArg0<?>) predicate).get0();
+        }
+    }
+
+    private static final class FixedParameter implements QueryParameter<Object> {
+
+        @Override
+        public ParameterExpression<Object> getParameterExpression() {
+            return PARAMETER;
+        }
+
+        @Override
+        public Object getValue() {
+            return "Alien";
+        }
+    }
+}
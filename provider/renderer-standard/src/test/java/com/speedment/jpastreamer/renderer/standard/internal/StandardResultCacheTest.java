@@ -0,0 +1,109 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+final class StandardResultCacheTest {
+
+    private static final List<Object> FIRST = Collections.singletonList(1);
+    private static final List<Object> SECOND = Collections.singletonList(2);
+    private static final List<Object> THIRD = Collections.singletonList(3);
+
+    @Test
+    void get() {
+        final StandardResultCache cache = new StandardResultCache(10, Duration.ofMinutes(1));
+        cache.put(FIRST, Arrays.asList("Alien", "Jaws"), new int[]{0, 2}, cache.generation());
+
+        final StandardResultCache.Entry entry = cache.get(FIRST).get();
+
+        assertEquals(Arrays.asList("Alien", "Jaws"), entry.results());
+        assertArrayEquals(new int[]{0, 2}, entry.merged());
+        assertFalse(cache.get(SECOND).isPresent());
+        assertThrows(UnsupportedOperationException.class, () -> entry.results().clear());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        final StandardResultCache cache = new StandardResultCache(2, Duration.ofMinutes(1));
+        cache.put(FIRST, Collections.emptyList(), new int[0], cache.generation());
+        cache.put(SECOND, Collections.emptyList(), new int[0], cache.generation());
+        cache.get(FIRST);
+        cache.put(THIRD, Collections.emptyList(), new int[0], cache.generation());
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(FIRST).isPresent());
+        assertFalse(cache.get(SECOND).isPresent());
+        assertTrue(cache.get(THIRD).isPresent());
+    }
+
+    @Test
+    void expiredEntryIsRemoved() throws InterruptedException {
+        final StandardResultCache cache = new StandardResultCache(10, Duration.ofMillis(1));
+        cache.put(FIRST, Collections.emptyList(), new int[0], cache.generation());
+
+        Thread.sleep(10);
+
+        assertFalse(cache.get(FIRST).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidate() {
+        final StandardResultCache cache = new StandardResultCache(10, Duration.ofMinutes(1));
+        cache.put(FIRST, Collections.emptyList(), new int[0], cache.generation());
+
+        cache.invalidate();
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.get(FIRST).isPresent());
+    }
+
+    @Test
+    void resultsReadBeforeInvalidationAreNotCached() {
+        final StandardResultCache cache = new StandardResultCache(10, Duration.ofMinutes(1));
+        final long generation = cache.generation();
+
+        // The results are invalidated while they are read from the database
+        cache.invalidate();
+        cache.put(FIRST, Collections.singletonList("Alien"), new int[0], generation);
+
+        assertFalse(cache.get(FIRST).isPresent());
+    }
+
+    @Test
+    void unlimitedTimeToLive() {
+        final StandardResultCache cache = new StandardResultCache(10, Duration.ofSeconds(Long.MAX_VALUE));
+        cache.put(FIRST, Collections.emptyList(), new int[0], cache.generation());
+
+        assertTrue(cache.get(FIRST).isPresent());
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StandardResultCache(0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new StandardResultCache(10, Duration.ZERO));
+        assertThrows(NullPointerException.class, () -> new StandardResultCache(10, null));
+    }
+}
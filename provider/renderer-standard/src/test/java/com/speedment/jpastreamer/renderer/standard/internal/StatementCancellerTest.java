@@ -0,0 +1,96 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer.standard.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+final class StatementCancellerTest {
+
+    private EntityManager entityManager;
+    private JdbcCoordinator jdbcCoordinator;
+
+    @BeforeEach
+    void setUp() {
+        final SessionImplementor session = mock(SessionImplementor.class);
+        jdbcCoordinator = mock(JdbcCoordinator.class);
+        when(session.getJdbcCoordinator()).thenReturn(jdbcCoordinator);
+
+        entityManager = mock(EntityManager.class);
+        when(entityManager.getDelegate()).thenReturn(session);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+    }
+
+    @Test
+    void streamClosedEarlyIsCancelled() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final StatementCanceller statementCanceller = new StatementCanceller(entityManager, true);
+
+        try (Stream<Integer> rows = statementCanceller.apply(entityManager, Stream.of(1, 2, 3).onClose(() -> closed.set(true)))) {
+            assertEquals(1, rows.findFirst().get().intValue());
+        }
+
+        verify(jdbcCoordinator).cancelLastQuery();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void exhaustedStreamIsNotCancelled() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final StatementCanceller statementCanceller = new StatementCanceller(entityManager, true);
+
+        try (Stream<Integer> rows = statementCanceller.apply(entityManager, Stream.of(1, 2, 3).onClose(() -> closed.set(true)))) {
+            assertEquals(3, rows.count());
+        }
+
+        verify(jdbcCoordinator, never()).cancelLastQuery();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void cancelOnCloseCanBeDisabled() {
+        final StatementCanceller statementCanceller = new StatementCanceller(entityManager, false);
+        final Stream<Integer> rows = Stream.of(1, 2, 3);
+
+        assertSame(rows, statementCanceller.apply(entityManager, rows));
+
+        // Explicit cancellation, e.g. of an asynchronous operation, is still honored
+        statementCanceller.cancel(entityManager);
+        verify(jdbcCoordinator).cancelLastQuery();
+    }
+
+    @Test
+    void otherProvidersAreOnlyClosed() {
+        final EntityManager other = mock(EntityManager.class);
+        when(other.getDelegate()).thenReturn(new Object());
+        final StatementCanceller statementCanceller = new StatementCanceller(other, true);
+        final Stream<Integer> rows = Stream.of(1, 2, 3);
+
+        assertSame(rows, statementCanceller.apply(other, rows));
+        statementCanceller.cancel(other);
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package org.hibernate.engine.spi;
+
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+
+/**
+ * Stands in for the Hibernate session SPI that {@code StatementCanceller}
+ * cancels statements with, as Hibernate is not a dependency of the renderer.
+ */
+public interface SessionImplementor {
+
+    JdbcCoordinator getJdbcCoordinator();
+}
@@ -19,9 +19,12 @@ import com.speedment.jpastreamer.projection.Projection;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 
 import javax.persistence.criteria.JoinType;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -30,17 +33,29 @@ public final class StandardStreamConfiguration<T> implements StreamConfiguration
     private final Class<T> entityClass;
     private final Projection<T> projection;
     private final Set<JoinConfiguration<T>> joinConfigurations;
+    private final T seekAfter;
+    private final Boolean readOnly;
+    private final int fetchSize;
+    private final Duration queryTimeout;
 
     public StandardStreamConfiguration(final Class<T> entityClass) {
         this.entityClass = requireNonNull(entityClass);
         this.projection = null;
         this.joinConfigurations = Collections.emptySet();
+        this.seekAfter = null;
+        this.readOnly = null;
+        this.fetchSize = 0;
+        this.queryTimeout = null;
     }
 
-    private StandardStreamConfiguration(final Class<T> entityClass, Projection<T> projection, final Set<JoinConfiguration<T>> joinConfigurations) {
+    private StandardStreamConfiguration(final Class<T> entityClass, Projection<T> projection, final Set<JoinConfiguration<T>> joinConfigurations, final T seekAfter, final Boolean readOnly, final int fetchSize, final Duration queryTimeout) {
         this.entityClass = entityClass;
         this.projection = projection;
         this.joinConfigurations = new HashSet<>(joinConfigurations);
+        this.seekAfter = seekAfter;
+        this.readOnly = readOnly;
+        this.fetchSize = fetchSize;
+        this.queryTimeout = queryTimeout;
     }
 
     @Override
@@ -59,7 +74,7 @@ public final class StandardStreamConfiguration<T> implements StreamConfiguration
         requireNonNull(joinType);
         final Set<JoinConfiguration<T>> newJoins = new HashSet<>(joinConfigurations);
         newJoins.add(new StandardJoinConfiguration<>(field, joinType));
-        return new StandardStreamConfiguration<>(entityClass, projection, newJoins);
+        return new StandardStreamConfiguration<>(entityClass, projection, newJoins, seekAfter, readOnly, fetchSize, queryTimeout);
     }
 
     @Override
@@ -70,7 +85,55 @@ public final class StandardStreamConfiguration<T> implements StreamConfiguration
     @Override
     public StreamConfiguration<T> selecting(Projection<T> projection) {
         requireNonNull(projection);
-        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations);
+        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations, seekAfter, readOnly, fetchSize, queryTimeout);
+    }
+
+    @Override
+    public Optional<T> seekAfter() {
+        return Optional.ofNullable(seekAfter);
+    }
+
+    @Override
+    public StreamConfiguration<T> seekingAfter(final T element) {
+        requireNonNull(element);
+        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations, element, readOnly, fetchSize, queryTimeout);
+    }
+
+    @Override
+    public Optional<Boolean> readOnly() {
+        return Optional.ofNullable(readOnly);
+    }
+
+    @Override
+    public StreamConfiguration<T> readOnly(final boolean readOnly) {
+        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations, seekAfter, readOnly, fetchSize, queryTimeout);
+    }
+
+    @Override
+    public OptionalInt fetchSize() {
+        return fetchSize == 0 ? OptionalInt.empty() : OptionalInt.of(fetchSize);
+    }
+
+    @Override
+    public StreamConfiguration<T> fetchSize(final int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("The fetch size must be positive: " + fetchSize);
+        }
+        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations, seekAfter, readOnly, fetchSize, queryTimeout);
+    }
+
+    @Override
+    public Optional<Duration> queryTimeout() {
+        return Optional.ofNullable(queryTimeout);
+    }
+
+    @Override
+    public StreamConfiguration<T> queryTimeout(final Duration timeout) {
+        requireNonNull(timeout);
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("The query timeout must be positive: " + timeout);
+        }
+        return new StandardStreamConfiguration<>(entityClass, projection, joinConfigurations, seekAfter, readOnly, fetchSize, timeout);
     }
 
     @Override
@@ -81,13 +144,23 @@ public final class StandardStreamConfiguration<T> implements StreamConfiguration
         final StandardStreamConfiguration<?> that = (StandardStreamConfiguration<?>) o;
 
         if (!entityClass.equals(that.entityClass)) return false;
+        if (!Objects.equals(projection, that.projection)) return false;
+        if (!Objects.equals(seekAfter, that.seekAfter)) return false;
+        if (!Objects.equals(readOnly, that.readOnly)) return false;
+        if (fetchSize != that.fetchSize) return false;
+        if (!Objects.equals(queryTimeout, that.queryTimeout)) return false;
         return joinConfigurations.equals(that.joinConfigurations);
     }
 
     @Override
     public int hashCode() {
         int result = entityClass.hashCode();
+        result = 31 * result + Objects.hashCode(projection);
         result = 31 * result + joinConfigurations.hashCode();
+        result = 31 * result + Objects.hashCode(seekAfter);
+        result = 31 * result + Objects.hashCode(readOnly);
+        result = 31 * result + fetchSize;
+        result = 31 * result + Objects.hashCode(queryTimeout);
         return result;
     }
 
@@ -104,6 +177,10 @@ public final class StandardStreamConfiguration<T> implements StreamConfiguration
         return "StandardStreamConfiguration{" +
                 "of " + entityClass.getSimpleName() +
                 joinText +
+                (seekAfter == null ? "" : " seeking after " + seekAfter) +
+                (readOnly == null ? "" : readOnly ? " read-only" : " read-write") +
+                (fetchSize == 0 ? "" : " fetching " + fetchSize) +
+                (queryTimeout == null ? "" : " timing out after " + queryTimeout) +
                 '}';
     }
 }
@@ -13,12 +13,15 @@
 package com.speedment.jpastreamer.streamconfiguration.standard.internal;
 
 import com.speedment.jpastreamer.field.Field;
+import com.speedment.jpastreamer.projection.Projection;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.persistence.criteria.JoinType;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -52,6 +55,47 @@ final class StandardStreamConfigurationTest {
         assertNotSame(j1, j2);
     }
 
+    @Test
+    void seekAfter() {
+        final Film film = new Film();
+        assertFalse(initial.seekAfter().isPresent());
+        assertSame(film, initial.seekingAfter(film).seekAfter().orElseThrow(NoSuchElementException::new));
+        assertThrows(NullPointerException.class, () -> initial.seekingAfter(null));
+    }
+
+    @Test
+    void readOnly() {
+        assertFalse(initial.readOnly().isPresent());
+        assertTrue(initial.readOnly(true).readOnly().orElseThrow(NoSuchElementException::new));
+        assertFalse(initial.readOnly(true).readOnly(false).readOnly().orElseThrow(NoSuchElementException::new));
+    }
+
+    @Test
+    void fetchSize() {
+        assertFalse(initial.fetchSize().isPresent());
+        assertEquals(500, initial.fetchSize(500).fetchSize().orElseThrow(NoSuchElementException::new));
+        assertThrows(IllegalArgumentException.class, () -> initial.fetchSize(0));
+    }
+
+    @Test
+    void queryTimeout() {
+        assertFalse(initial.queryTimeout().isPresent());
+        assertEquals(Duration.ofSeconds(5), initial.queryTimeout(Duration.ofSeconds(5)).queryTimeout().orElseThrow(NoSuchElementException::new));
+        assertThrows(IllegalArgumentException.class, () -> initial.queryTimeout(Duration.ZERO));
+        assertThrows(NullPointerException.class, () -> initial.queryTimeout(null));
+    }
+
+    @Test
+    void selecting() {
+        assertFalse(initial.selections().isPresent());
+        final StreamConfiguration<Film> s1 = initial.selecting(Projection.select(Film$.title, Film$.length));
+        assertEquals(Projection.select(Film$.title, Film$.length), s1.selections().orElseThrow(NoSuchElementException::new));
+        assertNotEquals(initial, s1);
+        assertNotEquals(initial.selecting(Projection.select(Film$.title)), s1);
+        assertEquals(initial.selecting(Projection.select(Film$.length, Film$.title)), s1);
+        assertEquals(initial.selecting(Projection.select(Film$.length, Film$.title)).hashCode(), s1.hashCode());
+    }
+
     @Test
     void testEquals() {
         final StreamConfiguration<Film> first = initial.joining(Film$.title).joining(Film$.length);
@@ -12,18 +12,59 @@
  */
 package com.speedment.jpastreamer.termopoptimizer.standard.internal;
 
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.ALL_MATCH;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.ANY_MATCH;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.FIND_ANY;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.FIND_FIRST;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.NONE_MATCH;
 import static java.util.Objects.requireNonNull;
 
 import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.rootfactory.RootFactory;
 import com.speedment.jpastreamer.termopoptimizer.TerminalOperationOptimizer;
+import com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy.FindOptimizer;
+import com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy.MatchOptimizer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.ServiceLoader;
 
 final class StandardTerminalOperationOptimizer implements TerminalOperationOptimizer {
 
+    private final Map<TerminalOperationType, TerminalOperationOptimizer> optimizationStrategies = new EnumMap<>(TerminalOperationType.class);
+
+    StandardTerminalOperationOptimizer() {
+        final IntermediateOperationFactory intermediateOperationFactory = RootFactory
+            .getOrThrow(IntermediateOperationFactory.class, ServiceLoader::load);
+
+        final MatchOptimizer matchOptimizer = new MatchOptimizer(intermediateOperationFactory);
+        registerOptimizationStrategy(ANY_MATCH, matchOptimizer);
+        registerOptimizationStrategy(NONE_MATCH, matchOptimizer);
+        registerOptimizationStrategy(ALL_MATCH, matchOptimizer);
+
+        final FindOptimizer findOptimizer = new FindOptimizer(intermediateOperationFactory);
+        registerOptimizationStrategy(FIND_FIRST, findOptimizer);
+        registerOptimizationStrategy(FIND_ANY, findOptimizer);
+    }
+
     @Override
     public <T> Pipeline<T> optimize(Pipeline<T> pipeline) {
         requireNonNull(pipeline);
-        // For now, just return whatever we get.
-        return pipeline;
+
+        final TerminalOperationOptimizer optimizationStrategy =
+            optimizationStrategies.get(pipeline.terminatingOperation().type());
+
+        if (optimizationStrategy == null) {
+            return pipeline;
+        }
+
+        return optimizationStrategy.optimize(pipeline);
+    }
+
+    private void registerOptimizationStrategy(final TerminalOperationType operationType, final TerminalOperationOptimizer optimizationStrategy) {
+        optimizationStrategies.put(operationType, optimizationStrategy);
     }
 
 }
@@ -0,0 +1,77 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.LIMIT;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.FIND_ANY;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.FIND_FIRST;
+import static java.util.Objects.requireNonNull;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.termopoptimizer.TerminalOperationOptimizer;
+
+import java.util.LinkedList;
+
+/**
+ * Appends an implicit limit of one to pipelines terminated by {@code findFirst}
+ * or {@code findAny}, allowing the limit to be merged into the query so that only
+ * a single row is fetched.
+ * <p>
+ * For {@code findAny} any trailing sort is removed as well since the encounter
+ * order does not matter.
+ */
+public final class FindOptimizer implements TerminalOperationOptimizer {
+
+    private final IntermediateOperationFactory intermediateOperationFactory;
+
+    public FindOptimizer(final IntermediateOperationFactory intermediateOperationFactory) {
+        this.intermediateOperationFactory = requireNonNull(intermediateOperationFactory);
+    }
+
+    @Override
+    public <T> Pipeline<T> optimize(final Pipeline<T> pipeline) {
+        requireNonNull(pipeline);
+
+        final TerminalOperationType terminalOperationType = pipeline.terminatingOperation().type();
+
+        if (terminalOperationType != FIND_FIRST && terminalOperationType != FIND_ANY) {
+            return pipeline;
+        }
+
+        final LinkedList<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+
+        if (terminalOperationType == FIND_ANY) {
+            while (!intermediateOperations.isEmpty() && intermediateOperations.getLast().type() == SORTED) {
+                intermediateOperations.removeLast();
+            }
+        }
+
+        if (!intermediateOperations.isEmpty() && intermediateOperations.getLast().type() == LIMIT) {
+            final Object[] arguments = intermediateOperations.getLast().arguments();
+
+            if (arguments.length == 1 && arguments[0] instanceof Long && (long) arguments[0] <= 1) {
+                return pipeline;
+            }
+
+            intermediateOperations.removeLast();
+        }
+
+        intermediateOperations.add(intermediateOperationFactory.createLimit(1));
+
+        return pipeline;
+    }
+}
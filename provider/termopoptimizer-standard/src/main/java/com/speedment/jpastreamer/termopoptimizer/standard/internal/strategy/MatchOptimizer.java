@@ -0,0 +1,215 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.FILTER;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.ALL_MATCH;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.ANY_MATCH;
+import static com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType.NONE_MATCH;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import com.speedment.jpastreamer.field.ReferenceField;
+import com.speedment.jpastreamer.field.predicate.CombinedPredicate;
+import com.speedment.jpastreamer.field.predicate.FieldPredicate;
+import com.speedment.jpastreamer.field.trait.HasArg0;
+import com.speedment.jpastreamer.field.trait.HasArg1;
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationFactory;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperationType;
+import com.speedment.jpastreamer.termopoptimizer.TerminalOperationOptimizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites the short-circuiting match operations ({@code anyMatch}, {@code noneMatch}
+ * and {@code allMatch}) into an existence probe that can be merged into the query.
+ * <p>
+ * The probe predicate is appended as a filter followed by a limit of one so that at
+ * most a single row is fetched. For {@code allMatch} the probe is the negated predicate,
+ * i.e. the database is asked for a single counterexample. The terminal operation itself
+ * is left untouched and is evaluated on a stream of at most one element.
+ * <p>
+ * Field predicates reject elements whose field is {@code null} whereas the negation of a
+ * SQL comparison is unknown for a NULL column, so the {@code allMatch} probe of a
+ * nullable field also accepts rows where that field is NULL.
+ * <p>
+ * The rewrite is only performed if every intermediate operation can be merged into the
+ * query as well, otherwise the pipeline is returned as is.
+ */
+public final class MatchOptimizer implements TerminalOperationOptimizer {
+
+    private final IntermediateOperationFactory intermediateOperationFactory;
+
+    public MatchOptimizer(final IntermediateOperationFactory intermediateOperationFactory) {
+        this.intermediateOperationFactory = requireNonNull(intermediateOperationFactory);
+    }
+
+    @Override
+    public <T> Pipeline<T> optimize(final Pipeline<T> pipeline) {
+        requireNonNull(pipeline);
+
+        final TerminalOperation<?, ?> terminalOperation = pipeline.terminatingOperation();
+        final TerminalOperationType terminalOperationType = terminalOperation.type();
+
+        if (terminalOperationType != ANY_MATCH && terminalOperationType != NONE_MATCH && terminalOperationType != ALL_MATCH) {
+            return pipeline;
+        }
+
+        final Optional<Predicate<T>> optionalPredicate = getPredicate(terminalOperation.arguments());
+
+        if (!optionalPredicate.isPresent()) {
+            return pipeline;
+        }
+
+        final Optional<Predicate<T>> optionalProbe = terminalOperationType == ALL_MATCH
+            ? counterexample(optionalPredicate.get())
+            : optionalPredicate;
+
+        if (!optionalProbe.isPresent() || !isMergeable(optionalProbe.get())) {
+            return pipeline;
+        }
+
+        final Predicate<T> probe = optionalProbe.get();
+
+        final List<Predicate<? super T>> predicates = new ArrayList<>();
+
+        for (final IntermediateOperation<?, ?> operation : pipeline.intermediateOperations()) {
+            if (operation.type() == SORTED) {
+                // The order of the elements does not affect the outcome of a match
+                continue;
+            }
+
+            final Optional<Predicate<T>> optionalFilterPredicate = getPredicate(operation.arguments());
+
+            if (operation.type() != FILTER || !optionalFilterPredicate.isPresent()) {
+                return pipeline;
+            }
+
+            predicates.add(optionalFilterPredicate.get());
+        }
+
+        predicates.add(probe);
+
+        final Predicate<T> predicate = predicates.size() == 1
+            ? probe
+            : CombinedPredicate.and(predicates);
+
+        final LinkedList<IntermediateOperation<?, ?>> intermediateOperations = pipeline.intermediateOperations();
+        intermediateOperations.clear();
+        intermediateOperations.add(intermediateOperationFactory.createFilter(predicate));
+        intermediateOperations.add(intermediateOperationFactory.createLimit(1));
+
+        return pipeline;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<Predicate<T>> getPredicate(final Object[] arguments) {
+        if (arguments.length != 1) {
+            return Optional.empty();
+        }
+
+        if (arguments[0] instanceof Predicate && isMergeable((Predicate<?>) arguments[0])) {
+            return Optional.of((Predicate<T>) arguments[0]);
+        }
+
+        return Optional.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<Predicate<T>> counterexample(final Predicate<T> predicate) {
+        if (predicate instanceof FieldPredicate) {
+            return fieldCounterexample((FieldPredicate<T>) predicate);
+        }
+
+        if (predicate instanceof CombinedPredicate) {
+            final CombinedPredicate<T> combinedPredicate = (CombinedPredicate<T>) predicate;
+            final List<Optional<Predicate<T>>> operands = combinedPredicate.stream()
+                .map(operand -> counterexample((Predicate<T>) operand))
+                .collect(toList());
+
+            if (!operands.stream().allMatch(Optional::isPresent)) {
+                return Optional.empty();
+            }
+
+            final List<Predicate<? super T>> counterexamples = operands.stream()
+                .map(Optional::get)
+                .collect(toList());
+
+            // De Morgan: a conjunction is rejected if any operand is, a disjunction if all are
+            return Optional.of(combinedPredicate.getType() == CombinedPredicate.Type.AND
+                ? CombinedPredicate.or(counterexamples)
+                : CombinedPredicate.and(counterexamples));
+        }
+
+        return Optional.empty();
+    }
+
+    private static <T> Optional<Predicate<T>> fieldCounterexample(final FieldPredicate<T> predicate) {
+        final FieldPredicate<T> negated = predicate.negate();
+
+        if (!(predicate.getField() instanceof ReferenceField)) {
+            // Fields of primitive type are never null
+            return Optional.of(negated);
+        }
+
+        switch (predicate.getPredicateType()) {
+            case IS_NULL:
+            case IS_EMPTY:
+            case ALWAYS_TRUE:
+                // These accept null, so the negation rejects NULL rows just like the database
+                return Optional.of(negated);
+            default:
+                break;
+        }
+
+        if (hasNullArgument(predicate)) {
+            // The outcome for a null field then depends on the predicate type
+            return Optional.empty();
+        }
+
+        final ReferenceField<T, ?> field = (ReferenceField<T, ?>) predicate.getField();
+        return Optional.of(CombinedPredicate.or(negated, field.isNull()));
+    }
+
+    private static boolean hasNullArgument(final FieldPredicate<?> predicate) {
+        return Stream.of(
+                predicate instanceof HasArg0 ? ((HasArg0<?>) predicate).get0() : "",
+                predicate instanceof HasArg1 ? ((HasArg1<?>) predicate).get1() : ""
+            )
+            .anyMatch(argument -> argument == null
+                || argument instanceof Collection && ((Collection<?>) argument).stream().anyMatch(Objects::isNull));
+    }
+
+    private static boolean isMergeable(final Predicate<?> predicate) {
+        if (predicate instanceof FieldPredicate) {
+            return true;
+        }
+
+        if (predicate instanceof CombinedPredicate) {
+            return ((CombinedPredicate<?>) predicate).stream().allMatch(MatchOptimizer::isMergeable);
+        }
+
+        return false;
+    }
+}
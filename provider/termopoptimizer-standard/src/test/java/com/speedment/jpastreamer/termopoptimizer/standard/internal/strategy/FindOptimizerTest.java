@@ -0,0 +1,107 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.FILTER;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.LIMIT;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.SORTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+final class FindOptimizerTest extends AbstractOptimizerTest {
+
+    private final FindOptimizer optimizer = new FindOptimizer(operationFactory);
+
+    @Test
+    void findFirst() {
+        final Pipeline<String> pipeline = createPipeline(
+            terminalOperationFactory.acquireFindFirst(),
+            operationFactory.createFilter(s -> true),
+            operationFactory.createSorted(Comparator.naturalOrder())
+        );
+
+        optimizer.optimize(pipeline);
+
+        final List<IntermediateOperation<?, ?>> operations = pipeline.intermediateOperations();
+        assertEquals(3, operations.size());
+        assertEquals(FILTER, operations.get(0).type());
+        assertEquals(SORTED, operations.get(1).type());
+        assertLimit(1L, operations.get(2));
+    }
+
+    @Test
+    void findAny() {
+        final Pipeline<String> pipeline = createPipeline(
+            terminalOperationFactory.acquireFindAny(),
+            operationFactory.createFilter(s -> true),
+            operationFactory.createSorted(Comparator.naturalOrder())
+        );
+
+        optimizer.optimize(pipeline);
+
+        final List<IntermediateOperation<?, ?>> operations = pipeline.intermediateOperations();
+        assertEquals(2, operations.size());
+        assertEquals(FILTER, operations.get(0).type());
+        assertLimit(1L, operations.get(1));
+    }
+
+    @Test
+    void findFirstAfterLimit() {
+        final Pipeline<String> pipeline = createPipeline(
+            terminalOperationFactory.acquireFindFirst(),
+            operationFactory.createLimit(10)
+        );
+
+        optimizer.optimize(pipeline);
+
+        assertEquals(1, pipeline.intermediateOperations().size());
+        assertLimit(1L, pipeline.intermediateOperations().get(0));
+    }
+
+    @Test
+    void findFirstAfterLimitZero() {
+        final Pipeline<String> pipeline = createPipeline(
+            terminalOperationFactory.acquireFindFirst(),
+            operationFactory.createLimit(0)
+        );
+
+        optimizer.optimize(pipeline);
+
+        assertEquals(1, pipeline.intermediateOperations().size());
+        assertLimit(0L, pipeline.intermediateOperations().get(0));
+    }
+
+    private void assertLimit(final long expected, final IntermediateOperation<?, ?> operation) {
+        assertEquals(LIMIT, operation.type());
+        assertEquals(expected, operation.arguments()[0]);
+    }
+
+    private Pipeline<String> createPipeline(final TerminalOperation<?, ?> terminalOperation, final IntermediateOperation<?, ?>... operations) {
+        final Pipeline<String> pipeline = pipelineFactory.createPipeline(String.class);
+
+        for (IntermediateOperation<?, ?> operation : operations) {
+            pipeline.intermediateOperations().add(operation);
+        }
+
+        pipeline.terminatingOperation(terminalOperation);
+
+        return pipeline;
+    }
+}
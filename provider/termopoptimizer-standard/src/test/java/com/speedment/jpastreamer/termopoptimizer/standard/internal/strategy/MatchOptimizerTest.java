@@ -0,0 +1,149 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.termopoptimizer.standard.internal.strategy;
+
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.FILTER;
+import static com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperationType.LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.speedment.jpastreamer.pipeline.Pipeline;
+import com.speedment.jpastreamer.pipeline.intermediate.IntermediateOperation;
+import com.speedment.jpastreamer.pipeline.terminal.TerminalOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+final class MatchOptimizerTest extends AbstractOptimizerTest {
+
+    private final MatchOptimizer optimizer = new MatchOptimizer(operationFactory);
+
+    @Test
+    void anyMatch() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAnyMatch(Film$.title.equal("A")),
+            operationFactory.createFilter(Film$.title.startsWith("A"))
+        );
+
+        optimizer.optimize(pipeline);
+
+        final Predicate<Film> probe = assertProbe(pipeline);
+        assertTrue(probe.test(new Film("A")));
+        assertFalse(probe.test(new Film("AB")));
+    }
+
+    @Test
+    void allMatch() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAllMatch(Film$.title.equal("A")),
+            operationFactory.createSorted(Film$.title.comparator())
+        );
+
+        optimizer.optimize(pipeline);
+
+        final Predicate<Film> probe = assertProbe(pipeline);
+        assertFalse(probe.test(new Film("A")));
+        assertTrue(probe.test(new Film("B")));
+        assertTrue(probe.test(new Film(null)));
+    }
+
+    @Test
+    void allMatchIsNull() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAllMatch(Film$.title.isNull())
+        );
+
+        optimizer.optimize(pipeline);
+
+        final Predicate<Film> probe = assertProbe(pipeline);
+        assertFalse(probe.test(new Film(null)));
+        assertTrue(probe.test(new Film("A")));
+    }
+
+    @Test
+    void allMatchCombined() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAllMatch(Film$.title.startsWith("A").or(Film$.title.isNull()))
+        );
+
+        optimizer.optimize(pipeline);
+
+        final Predicate<Film> probe = assertProbe(pipeline);
+        assertFalse(probe.test(new Film("AB")));
+        assertFalse(probe.test(new Film(null)));
+        assertTrue(probe.test(new Film("B")));
+    }
+
+    @Test
+    void allMatchNullArgument() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAllMatch(Film$.title.in("A", null))
+        );
+
+        optimizer.optimize(pipeline);
+
+        assertTrue(pipeline.intermediateOperations().isEmpty());
+    }
+
+    @Test
+    void noneMatchLambda() {
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.<Film>createNoneMatch(film -> film.getTitle().isEmpty())
+        );
+
+        optimizer.optimize(pipeline);
+
+        assertTrue(pipeline.intermediateOperations().isEmpty());
+    }
+
+    @Test
+    void anyMatchAfterLimit() {
+        final IntermediateOperation<?, ?> limit = operationFactory.createLimit(10);
+        final Pipeline<Film> pipeline = createPipeline(
+            terminalOperationFactory.createAnyMatch(Film$.title.equal("A")),
+            limit
+        );
+
+        optimizer.optimize(pipeline);
+
+        assertEquals(1, pipeline.intermediateOperations().size());
+        assertSame(limit, pipeline.intermediateOperations().get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate<Film> assertProbe(final Pipeline<Film> pipeline) {
+        final List<IntermediateOperation<?, ?>> operations = pipeline.intermediateOperations();
+
+        assertEquals(2, operations.size());
+        assertEquals(FILTER, operations.get(0).type());
+        assertEquals(LIMIT, operations.get(1).type());
+        assertEquals(1L, operations.get(1).arguments()[0]);
+
+        return (Predicate<Film>) operations.get(0).arguments()[0];
+    }
+
+    private Pipeline<Film> createPipeline(final TerminalOperation<?, ?> terminalOperation, final IntermediateOperation<?, ?>... operations) {
+        final Pipeline<Film> pipeline = pipelineFactory.createPipeline(Film.class);
+
+        for (IntermediateOperation<?, ?> operation : operations) {
+            pipeline.intermediateOperations().add(operation);
+        }
+
+        pipeline.terminatingOperation(terminalOperation);
+
+        return pipeline;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request to cancel the streams rendered for an operation, e.g. an
+ * asynchronous stream operation, which a {@code Renderer} may honor by
+ * cancelling the statements of the streams that are open when it is cancelled.
+ * <p>
+ * Actions are registered while the resource they cancel is in use, and are
+ * deregistered before the resource is released. Cancellation runs the actions
+ * that are registered at the time, and actions registered afterwards are run
+ * immediately.
+ */
+public final class Cancellation {
+
+    // Guarded by this
+    private final List<Runnable> actions = new ArrayList<>();
+    // Written while holding this, read without holding it
+    private volatile boolean cancelled;
+
+    /**
+     * Registers the provided {@code action} to be run when this {@code Cancellation}
+     * is cancelled, or runs it immediately if it is already cancelled. The returned
+     * deregistration must be run before the resource that the action cancels is
+     * released; once it has returned, the action is never run.
+     *
+     * @param action to run when this {@code Cancellation} is cancelled
+     * @return a deregistration of the provided {@code action}
+     */
+    public synchronized Runnable onCancel(final Runnable action) {
+        requireNonNull(action);
+        if (cancelled) {
+            action.run();
+            return () -> {};
+        }
+        actions.add(action);
+        return () -> {
+            synchronized (this) {
+                actions.remove(action);
+            }
+        };
+    }
+
+    /**
+     * Cancels this {@code Cancellation}, running the registered actions.
+     */
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        final List<Runnable> registered = new ArrayList<>(actions);
+        actions.clear();
+        // Actions are run while holding the lock, so that no action is run after it is deregistered
+        registered.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns whether this {@code Cancellation} is cancelled. This method does not
+     * block, so that it may be checked for every row of a stream.
+     *
+     * @return whether this {@code Cancellation} is cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
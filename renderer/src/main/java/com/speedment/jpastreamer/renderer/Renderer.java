@@ -15,6 +15,8 @@ package com.speedment.jpastreamer.renderer;
 import com.speedment.jpastreamer.pipeline.Pipeline;
 import com.speedment.jpastreamer.streamconfiguration.StreamConfiguration;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.stream.BaseStream;
 
 public interface Renderer {
@@ -32,6 +34,40 @@ public interface Renderer {
      */
     <E, T,  S extends BaseStream<T, S>> RenderResult<E, T, S> render(final Pipeline<E> pipeline, final StreamConfiguration<E> streamConfiguration);
 
+    /**
+     * Creates and returns a new RenderResult like {@link #render(Pipeline, StreamConfiguration)},
+     * whereby the statements of the rendered stream are cancelled if the provided
+     * {@code cancellation} is cancelled while the stream is open. By default, the
+     * {@code cancellation} is ignored.
+     *
+     * @param pipeline describing the intended Stream
+     * @param streamConfiguration containing additional information, such as joins
+     * @param cancellation that cancels the statements of the rendered stream
+     * @param <E> type of the root elements in the returned Stream's source
+     * @return a new RenderResult whereby the provided {@code Pipeline}
+     *         is rendered to a stream
+     */
+    default <E, T, S extends BaseStream<T, S>> RenderResult<E, T, S> render(
+        final Pipeline<E> pipeline,
+        final StreamConfiguration<E> streamConfiguration,
+        final Cancellation cancellation
+    ) {
+        return render(pipeline, streamConfiguration);
+    }
+
+    /**
+     * Computes the counts of the provided {@code pipelines} that terminate with
+     * {@code count()}, using as few queries as possible, and returns the computed
+     * count of each pipeline. Pipelines whose count is not computed are left
+     * unmodified and should be rendered using {@link #render(Pipeline, StreamConfiguration)}.
+     *
+     * @param pipelines to count, each mapped to its stream configuration
+     * @return the computed count of each pipeline that could be counted
+     */
+    default Map<Pipeline<?>, Long> renderCounts(final Map<Pipeline<?>, StreamConfiguration<?>> pipelines) {
+        return Collections.emptyMap();
+    }
+
     /**
      * Used to release any dangling resources after the expiration period of the
      * Renderer instance.
@@ -0,0 +1,334 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * The settings of a {@code Renderer} that are not specific to a stream, such as
+ * how {@code EntityManager}s are leased and how results are read.
+ * <p>
+ * A {@code RendererConfiguration} is immutable; each {@code with} method returns
+ * a new configuration that differs from this configuration in a single setting.
+ */
+public final class RendererConfiguration {
+
+    private static final RendererConfiguration DEFAULTS = new RendererConfiguration(
+        null,
+        true,
+        Math.max(4, 2 * Runtime.getRuntime().availableProcessors()),
+        Duration.ofSeconds(30),
+        0,
+        0,
+        -1,
+        true,
+        false,
+        0
+    );
+
+    private final ResultCache resultCache;
+    private final boolean ownedEntityManagers;
+    private final int poolSize;
+    private final Duration leaseTimeout;
+    private final int clearInterval;
+    private final int prefetch;
+    private final int partitions;
+    private final boolean cancelOnClose;
+    private final boolean serverSideCursors;
+    private final int inChunkSize;
+
+    private RendererConfiguration(
+        final ResultCache resultCache,
+        final boolean ownedEntityManagers,
+        final int poolSize,
+        final Duration leaseTimeout,
+        final int clearInterval,
+        final int prefetch,
+        final int partitions,
+        final boolean cancelOnClose,
+        final boolean serverSideCursors,
+        final int inChunkSize
+    ) {
+        this.resultCache = resultCache;
+        this.ownedEntityManagers = ownedEntityManagers;
+        this.poolSize = poolSize;
+        this.leaseTimeout = leaseTimeout;
+        this.clearInterval = clearInterval;
+        this.prefetch = prefetch;
+        this.partitions = partitions;
+        this.cancelOnClose = cancelOnClose;
+        this.serverSideCursors = serverSideCursors;
+        this.inChunkSize = inChunkSize;
+    }
+
+    /**
+     * Returns the default configuration, which pools owned {@code EntityManager}s,
+     * does not cache results, does not clear the persistence context or read
+     * ahead while streaming and cancels the statements of streams that are
+     * closed early.
+     *
+     * @return the default configuration
+     */
+    public static RendererConfiguration defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Returns the cache that the results of queries are cached in, if any.
+     *
+     * @return the cache that the results of queries are cached in, if any
+     */
+    public Optional<ResultCache> resultCache() {
+        return Optional.ofNullable(resultCache);
+    }
+
+    /**
+     * Returns a configuration that caches the results of queries in the provided
+     * {@code resultCache}, which is created by {@link RendererFactory#createResultCache(long, Duration)}.
+     *
+     * @param resultCache to cache the results of queries in
+     * @return a configuration that caches the results of queries in the provided {@code resultCache}
+     */
+    public RendererConfiguration withResultCache(final ResultCache resultCache) {
+        requireNonNull(resultCache);
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns whether the {@code Renderer} owns the {@code EntityManager}s it obtains
+     * from its supplier, which is {@code true} by default.
+     * <p>
+     * Owned {@code EntityManager}s are pooled, cleared between streams and closed
+     * by the {@code Renderer}. {@code EntityManager}s that are not owned are obtained
+     * from the supplier for each stream and are never cleared or closed, and the
+     * settings that use an {@code EntityManager} from another thread or clear its
+     * persistence context are not applied to them.
+     *
+     * @return whether the {@code Renderer} owns the {@code EntityManager}s it obtains
+     */
+    public boolean ownedEntityManagers() {
+        return ownedEntityManagers;
+    }
+
+    /**
+     * Returns a configuration where the {@code Renderer} owns the {@code EntityManager}s
+     * it obtains from its supplier, or not.
+     *
+     * @param ownedEntityManagers whether the {@code Renderer} owns the {@code EntityManager}s it obtains
+     * @return a configuration where the {@code Renderer} owns the {@code EntityManager}s
+     *         it obtains, or not
+     * @see #ownedEntityManagers()
+     */
+    public RendererConfiguration withOwnedEntityManagers(final boolean ownedEntityManagers) {
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns the maximum number of owned {@code EntityManager}s that are leased
+     * at the same time, which defaults to twice the number of available processors
+     * (and at least four).
+     *
+     * @return the maximum number of owned {@code EntityManager}s that are leased
+     *         at the same time
+     */
+    public int poolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Returns how long a stream waits for an owned {@code EntityManager} when
+     * {@link #poolSize()} {@code EntityManager}s are leased, which defaults to
+     * 30 seconds.
+     *
+     * @return how long a stream waits for an owned {@code EntityManager}
+     */
+    public Duration leaseTimeout() {
+        return leaseTimeout;
+    }
+
+    /**
+     * Returns a configuration where at most {@code poolSize} owned {@code EntityManager}s
+     * are leased at the same time, and a stream waits at most {@code leaseTimeout}
+     * for an {@code EntityManager} to be released when they are.
+     *
+     * @param poolSize the maximum number of owned {@code EntityManager}s that are leased at the same time
+     * @param leaseTimeout how long a stream waits for an owned {@code EntityManager}
+     * @return a configuration with the provided pool size and lease timeout
+     * @throws IllegalArgumentException if the provided {@code poolSize} or
+     *                                  {@code leaseTimeout} is not positive
+     */
+    public RendererConfiguration withPool(final int poolSize, final Duration leaseTimeout) {
+        requireNonNull(leaseTimeout);
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The pool size must be positive: " + poolSize);
+        }
+        if (leaseTimeout.isNegative() || leaseTimeout.isZero()) {
+            throw new IllegalArgumentException("The lease timeout must be positive: " + leaseTimeout);
+        }
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns the number of rows after which the persistence context of an owned
+     * {@code EntityManager} is cleared while streaming, or {@code 0} if it is
+     * never cleared, which is the default.
+     *
+     * @return the number of rows after which the persistence context is cleared
+     */
+    public int clearInterval() {
+        return clearInterval;
+    }
+
+    /**
+     * Returns a configuration where the persistence context of an owned
+     * {@code EntityManager} is cleared after every {@code clearInterval} streamed
+     * rows, or never if {@code clearInterval} is {@code 0}.
+     *
+     * @param clearInterval the number of rows after which the persistence context is cleared
+     * @return a configuration with the provided clear interval
+     * @throws IllegalArgumentException if the provided {@code clearInterval} is negative
+     */
+    public RendererConfiguration withClearInterval(final int clearInterval) {
+        if (clearInterval < 0) {
+            throw new IllegalArgumentException("The clear interval must not be negative: " + clearInterval);
+        }
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns the maximum number of rows that are read ahead of the consumer of
+     * a stream, or {@code 0} if rows are never read ahead, which is the default.
+     *
+     * @return the maximum number of rows that are read ahead of the consumer of a stream
+     */
+    public int prefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Returns a configuration where at most {@code prefetch} rows are read ahead
+     * of the consumer of a stream of an owned {@code EntityManager}, or none if
+     * {@code prefetch} is {@code 0}.
+     *
+     * @param prefetch the maximum number of rows that are read ahead
+     * @return a configuration with the provided number of rows to read ahead
+     * @throws IllegalArgumentException if the provided {@code prefetch} is negative
+     */
+    public RendererConfiguration withPrefetch(final int prefetch) {
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("The number of rows to prefetch must not be negative: " + prefetch);
+        }
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns the number of key ranges that parallel streams are read in, or
+     * {@code OptionalInt.empty()} if it is the parallelism of the common
+     * fork-join pool, which is the default.
+     *
+     * @return the number of key ranges that parallel streams are read in
+     */
+    public OptionalInt partitions() {
+        return partitions < 0 ? OptionalInt.empty() : OptionalInt.of(partitions);
+    }
+
+    /**
+     * Returns a configuration where parallel streams are read in {@code partitions}
+     * key ranges, each using its own owned {@code EntityManager}. Parallel streams
+     * are read by a single query if {@code partitions} is less than two.
+     *
+     * @param partitions the number of key ranges that parallel streams are read in
+     * @return a configuration with the provided number of partitions
+     * @throws IllegalArgumentException if the provided {@code partitions} is negative
+     */
+    public RendererConfiguration withPartitions(final int partitions) {
+        if (partitions < 0) {
+            throw new IllegalArgumentException("The number of partitions must not be negative: " + partitions);
+        }
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns whether the statement of a stream of an owned {@code EntityManager}
+     * is cancelled if the stream is closed before its results are exhausted,
+     * which is {@code true} by default.
+     *
+     * @return whether the statements of streams that are closed early are cancelled
+     */
+    public boolean cancelOnClose() {
+        return cancelOnClose;
+    }
+
+    /**
+     * Returns a configuration where the statement of a stream is cancelled if the
+     * stream is closed before its results are exhausted, or not.
+     *
+     * @param cancelOnClose whether the statements of streams that are closed early are cancelled
+     * @return a configuration where the statements of streams that are closed early are cancelled, or not
+     */
+    public RendererConfiguration withCancelOnClose(final boolean cancelOnClose) {
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns whether the fetch size that makes the driver of the database stream
+     * rows from a server-side cursor is used, for databases whose driver otherwise
+     * reads the whole result at once, which is {@code false} by default.
+     *
+     * @return whether server-side cursors are used
+     */
+    public boolean serverSideCursors() {
+        return serverSideCursors;
+    }
+
+    /**
+     * Returns a configuration where server-side cursors are used, or not.
+     *
+     * @param serverSideCursors whether server-side cursors are used
+     * @return a configuration where server-side cursors are used, or not
+     * @see #serverSideCursors()
+     */
+    public RendererConfiguration withServerSideCursors(final boolean serverSideCursors) {
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+
+    /**
+     * Returns the maximum number of values of an {@code IN} predicate that is
+     * rendered in a single query, or {@code OptionalInt.empty()} if it depends
+     * on the database, which is the default.
+     *
+     * @return the maximum number of values of an {@code IN} predicate in a single query
+     */
+    public OptionalInt inChunkSize() {
+        return inChunkSize == 0 ? OptionalInt.empty() : OptionalInt.of(inChunkSize);
+    }
+
+    /**
+     * Returns a configuration where an {@code IN} predicate with more than
+     * {@code inChunkSize} values is rendered as one query per chunk of values.
+     *
+     * @param inChunkSize the maximum number of values of an {@code IN} predicate in a single query
+     * @return a configuration with the provided chunk size
+     * @throws IllegalArgumentException if the provided {@code inChunkSize} is not positive
+     */
+    public RendererConfiguration withInChunkSize(final int inChunkSize) {
+        if (inChunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive: " + inChunkSize);
+        }
+        return new RendererConfiguration(resultCache, ownedEntityManagers, poolSize, leaseTimeout, clearInterval, prefetch, partitions, cancelOnClose, serverSideCursors, inChunkSize);
+    }
+}
@@ -14,6 +14,7 @@ package com.speedment.jpastreamer.renderer;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.function.Supplier;
 
 public interface RendererFactory {
@@ -40,4 +41,27 @@ public interface RendererFactory {
     Renderer createRenderer(final Supplier<EntityManager> entityManagerSupplier);
     
     Renderer createRenderer(final EntityManager entityManager);
+
+    /**
+     * Creates and returns a new {@code Renderer} whereby the provided {@code entityManagerSupplier}
+     * is used to create streams as set out by the provided {@code configuration}.
+     *
+     * @param entityManagerSupplier to be used for creating streams
+     * @param configuration of the {@code Renderer}
+     * @return a new {@code Renderer} where the provided {@code entityManagerSupplier}
+     *         is used for creating streams
+     */
+    Renderer createRenderer(final Supplier<EntityManager> entityManagerSupplier, final RendererConfiguration configuration);
+
+    /**
+     * Creates and returns a new {@code ResultCache} that holds at most {@code maximumSize}
+     * results, each for at most the provided {@code timeToLive}.
+     *
+     * @param maximumSize of the cache
+     * @param timeToLive of each result in the cache
+     * @return a new {@code ResultCache}
+     * @throws IllegalArgumentException if the {@code maximumSize} or {@code timeToLive}
+     *                                  is not positive
+     */
+    ResultCache createResultCache(final long maximumSize, final Duration timeToLive);
 }
@@ -0,0 +1,33 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer;
+
+/**
+ * A cache of query results that can be shared by the {@code Renderer}s
+ * of an entity. Results are evicted when the cache exceeds its maximum size
+ * or when they have been cached longer than the time to live of the cache.
+ */
+public interface ResultCache {
+
+    /**
+     * Removes all results from this cache.
+     */
+    void invalidate();
+
+    /**
+     * Returns the number of results currently held by this cache.
+     *
+     * @return the number of results currently held by this cache
+     */
+    long size();
+}
@@ -0,0 +1,62 @@
+/*
+ * JPAstreamer - Express JPA queries with Java Streams
+ * Copyright (c) 2020-2022, Speedment, Inc. All Rights Reserved.
+ *
+ * License: GNU Lesser General Public License (LGPL), version 2.1 or later.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * See: https://github.com/speedment/jpa-streamer/blob/master/LICENSE
+ */
+package com.speedment.jpastreamer.renderer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class CancellationTest {
+
+    @Test
+    void cancelRunsRegisteredActions() {
+        final Cancellation cancellation = new Cancellation();
+        final AtomicInteger runs = new AtomicInteger();
+        cancellation.onCancel(runs::incrementAndGet);
+        cancellation.onCancel(runs::incrementAndGet);
+
+        assertFalse(cancellation.isCancelled());
+        cancellation.cancel();
+        cancellation.cancel();
+
+        assertTrue(cancellation.isCancelled());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void deregisteredActionIsNotRun() {
+        final Cancellation cancellation = new Cancellation();
+        final AtomicInteger runs = new AtomicInteger();
+        final Runnable deregistration = cancellation.onCancel(runs::incrementAndGet);
+
+        deregistration.run();
+        cancellation.cancel();
+
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void actionRegisteredAfterCancelIsRunImmediately() {
+        final Cancellation cancellation = new Cancellation();
+        final AtomicInteger runs = new AtomicInteger();
+        cancellation.cancel();
+
+        cancellation.onCancel(runs::incrementAndGet).run();
+
+        assertEquals(1, runs.get());
+    }
+}
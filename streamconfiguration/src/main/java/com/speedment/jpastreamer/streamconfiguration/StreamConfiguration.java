@@ -17,7 +17,9 @@ import com.speedment.jpastreamer.projection.Projection;
 import com.speedment.jpastreamer.rootfactory.RootFactory;
 
 import javax.persistence.criteria.JoinType;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.ServiceLoader;
 import java.util.Set;
 
@@ -130,6 +132,136 @@ public interface StreamConfiguration<T> {
      */
     StreamConfiguration<T> selecting(final Projection<T> projection);
 
+    /**
+     * Returns the element after which a future stream shall start or
+     * {@link Optional#empty()} if the stream shall start with the first element.
+     *
+     * @return the element after which a future stream shall start or
+     * {@link Optional#empty()} if the stream shall start with the first element
+     * @see #seekingAfter(Object)
+     */
+    Optional<T> seekAfter();
+
+    /**
+     * Creates and returns a new StreamConfiguration configured so that
+     * the <em>initial</em> entities in a future stream start right after the
+     * provided {@code element} (keyset pagination).
+     * <p>
+     * The position of the element is determined by the sort order of the
+     * {@code sorted} operations that are rendered to the database, followed
+     * by the id of the entity. If no sort order is rendered, the entities are
+     * ordered by their id. Rather than skipping over the elements of previous
+     * pages (e.g. {@code OFFSET n}), the position is rendered as a restriction on
+     * the sort keys which allows the database to seek directly to the page, for example:
+     * <pre>{@code
+     *     List<Film> page = jpaStreamer.stream(StreamConfiguration.of(Film.class).seekingAfter(last))
+     *         .sorted(Film$.title)
+     *         .limit(20)
+     *         .collect(Collectors.toList());
+     * }</pre>
+     * The sort keys must not be nullable, as a row with a {@code null} sort key
+     * would be skipped: {@code null} is neither greater than nor equal to any
+     * value, and its position in the sort order depends on the database. Streams
+     * that are sorted by an attribute that is optional according to the metamodel
+     * (e.g. a column that is not declared with {@code nullable = false}) fail with
+     * an {@code IllegalStateException} when the terminal operation is invoked.
+     * The sort key values of the provided {@code element} must not be {@code null}.
+     *
+     * @param element the last element of the previous page
+     * @return a new StreamConfiguration configured so that
+     * the <em>initial</em> entities in a future stream start right after the
+     * provided {@code element}
+     */
+    StreamConfiguration<T> seekingAfter(final T element);
+
+    /**
+     * Returns whether a future stream shall be read-only or
+     * {@link Optional#empty()} if the default of the JPAStreamer
+     * instance shall be used.
+     *
+     * @return whether a future stream shall be read-only or
+     * {@link Optional#empty()} if the default of the JPAStreamer
+     * instance shall be used
+     * @see #readOnly(boolean)
+     */
+    Optional<Boolean> readOnly();
+
+    /**
+     * Creates and returns a new StreamConfiguration configured so that
+     * a future stream is read-only, or not, as indicated by the provided
+     * {@code readOnly} flag.
+     * <p>
+     * The entities of a read-only stream are loaded in read-only mode, so the
+     * persistence provider does not retain snapshots of them for dirty
+     * checking, and its queries do not flush pending changes before they
+     * are executed ({@code FlushModeType.COMMIT}). Changes made to the
+     * entities of a read-only stream are hence not written to the database.
+     *
+     * @param readOnly whether a future stream shall be read-only
+     * @return a new StreamConfiguration configured so that
+     * a future stream is read-only, or not, as indicated by the provided
+     * {@code readOnly} flag
+     */
+    StreamConfiguration<T> readOnly(final boolean readOnly);
+
+    /**
+     * Returns the JDBC fetch size to use in a future stream or
+     * {@link OptionalInt#empty()} if the fetch size shall be chosen
+     * adaptively.
+     *
+     * @return the JDBC fetch size to use in a future stream or
+     * {@link OptionalInt#empty()} if the fetch size shall be chosen
+     * adaptively
+     * @see #fetchSize(int)
+     */
+    OptionalInt fetchSize();
+
+    /**
+     * Creates and returns a new StreamConfiguration configured so that
+     * a future stream fetches the provided number of rows from the
+     * database in each round trip.
+     * <p>
+     * If no fetch size is configured, the fetch size is chosen adaptively
+     * from the number of rows and columns that are selected and the number
+     * of rows that previous streams consumed.
+     *
+     * @param fetchSize the number of rows to fetch in each round trip
+     * @return a new StreamConfiguration configured so that
+     * a future stream fetches the provided number of rows from the
+     * database in each round trip
+     * @throws IllegalArgumentException if the provided {@code fetchSize}
+     * is not positive
+     */
+    StreamConfiguration<T> fetchSize(final int fetchSize);
+
+    /**
+     * Returns the timeout of the queries of a future stream or
+     * {@link Optional#empty()} if the queries shall not time out
+     * (unless a timeout is configured for the persistence unit).
+     *
+     * @return the timeout of the queries of a future stream or
+     * {@link Optional#empty()} if the queries shall not time out
+     * @see #queryTimeout(Duration)
+     */
+    Optional<Duration> queryTimeout();
+
+    /**
+     * Creates and returns a new StreamConfiguration configured so that
+     * the queries of a future stream are cancelled by the database if
+     * they run longer than the provided {@code timeout}.
+     * <p>
+     * The timeout is set using the {@code javax.persistence.query.timeout}
+     * query hint, which some persistence providers round to whole seconds.
+     *
+     * @param timeout of the queries
+     * @return a new StreamConfiguration configured so that
+     * the queries of a future stream time out after the provided
+     * {@code timeout}
+     * @throws IllegalArgumentException if the provided {@code timeout}
+     * is not positive
+     */
+    StreamConfiguration<T> queryTimeout(final Duration timeout);
+
     /**
      * Creates and returns a new StreamConfiguration that can be used
      * to configure streams.